@@ -1,26 +1,17 @@
 package org.generictech.accounts;
 
-import org.generictech.accounts.exception.RestTemplateErrorHandler;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
-import org.springframework.context.annotation.Bean;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableDiscoveryClient
+@EnableScheduling
 public class AccountsServiceApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(AccountsServiceApplication.class, args);
 	}
-	
-	@Bean
-	public RestTemplate getRestTemplate() {
-		return new RestTemplateBuilder()
-				.errorHandler(new RestTemplateErrorHandler())
-				.build();
-	}
 
 }
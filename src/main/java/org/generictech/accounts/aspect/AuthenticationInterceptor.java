@@ -0,0 +1,55 @@
+package org.generictech.accounts.aspect;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.generictech.accounts.config.ShardDirectory;
+import org.generictech.accounts.dto.SystemUserDTO;
+import org.generictech.accounts.exception.ServiceUnavailableException;
+import org.generictech.accounts.service.AccountsService;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Interceptor to validate the request token before the handler is called. The user is resolved once per
+ * request and stored as a request attribute, so requests with a bad token are rejected before the request 
+ * body is read. When accounts are sharded, changes from a user whose data is being moved between shards
+ * are refused until the move finishes.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+public class AuthenticationInterceptor implements HandlerInterceptor {
+
+	public static final String USER = "org.generictech.accounts.user";
+	private static final String TOKEN = "tokenId";
+	
+	private final AccountsService accountsService;
+	private final ShardDirectory shardDirectory;
+	
+	/**
+	 * @param accountsService
+	 * @param shardDirectory directory of user shards, or null when accounts are not sharded
+	 */
+	public AuthenticationInterceptor(AccountsService accountsService, ShardDirectory shardDirectory) {
+		this.accountsService = accountsService;
+		this.shardDirectory = shardDirectory;
+	}
+	
+	/**
+	 * Method to resolve the user for the request. Exceptions thrown here are handled by the 
+	 * {@link ControllerExceptionHandler}. 
+	 */
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+		if (request.getAttribute(USER) == null) {
+			request.setAttribute(USER, accountsService.getUser(request.getHeader(TOKEN)));
+		}
+		if (shardDirectory != null && !HttpMethod.GET.matches(request.getMethod())) {
+			SystemUserDTO user = (SystemUserDTO) request.getAttribute(USER);
+			if (user != null && shardDirectory.isMoving(user.getId())) {
+				throw new ServiceUnavailableException("Accounts are being moved, try again shortly");
+			}
+		}
+		return true;
+	}
+}
@@ -2,15 +2,19 @@ package org.generictech.accounts.aspect;
 
 import java.util.Date;
 import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.generictech.accounts.exception.AccountNotFoundException;
 import org.generictech.accounts.exception.BadValueException;
 import org.generictech.accounts.exception.ExceptionResponse;
+import org.generictech.accounts.exception.PreconditionFailedException;
 import org.generictech.accounts.exception.ProcessingException;
 import org.generictech.accounts.exception.ProcessingRuntimeException;
+import org.generictech.accounts.exception.ServiceUnavailableException;
 import org.generictech.accounts.exception.TypeNotFoundException;
 import org.generictech.accounts.exception.UnauthorizedAccessException;
 import org.generictech.accounts.exception.UserNotFoundException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -80,4 +84,44 @@ public class ControllerExceptionHandler {
 		return new ResponseEntity<>(new ExceptionResponse(new Date(), 400, e.getClass().getSimpleName()
 				, e.getMessage()), HttpStatus.BAD_REQUEST);
 	}
+	
+	/**
+	 * Method to handle exceptions when a required service is unavailable or there is no capacity
+	 * to process the request
+	 * @param web
+	 * @param e
+	 * @return ResponseEntity<ExceptionResponse>
+	 */
+	@ExceptionHandler({ServiceUnavailableException.class, RejectedExecutionException.class})
+	public ResponseEntity<ExceptionResponse> serviceUnavailableExceptions(WebRequest web, Exception e) {
+		log.error(e.getMessage());
+		return new ResponseEntity<>(new ExceptionResponse(new Date(), 503, e.getClass().getSimpleName()
+				, e.getMessage()), HttpStatus.SERVICE_UNAVAILABLE);
+	}
+	
+	/**
+	 * Method to handle conditional requests that do not match the current version
+	 * @param web
+	 * @param e
+	 * @return ResponseEntity<ExceptionResponse>
+	 */
+	@ExceptionHandler(PreconditionFailedException.class)
+	public ResponseEntity<ExceptionResponse> preconditionFailedExceptions(WebRequest web, Exception e) {
+		log.error(e.getMessage());
+		return new ResponseEntity<>(new ExceptionResponse(new Date(), 412, e.getClass().getSimpleName()
+				, e.getMessage()), HttpStatus.PRECONDITION_FAILED);
+	}
+	
+	/**
+	 * Method to handle writes that lost a race with a concurrent change to the same record
+	 * @param web
+	 * @param e
+	 * @return ResponseEntity<ExceptionResponse>
+	 */
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	public ResponseEntity<ExceptionResponse> conflictExceptions(WebRequest web, Exception e) {
+		log.error(e.getMessage());
+		return new ResponseEntity<>(new ExceptionResponse(new Date(), 409, e.getClass().getSimpleName()
+				, "The record was changed by another request"), HttpStatus.CONFLICT);
+	}
 }
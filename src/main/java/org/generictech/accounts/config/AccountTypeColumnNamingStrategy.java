@@ -0,0 +1,31 @@
+package org.generictech.accounts.config;
+
+import org.generictech.accounts.model.Accounts;
+import org.hibernate.boot.model.naming.Identifier;
+import org.hibernate.engine.jdbc.env.spi.JdbcEnvironment;
+import org.springframework.boot.orm.jpa.hibernate.SpringPhysicalNamingStrategy;
+
+/**
+ * Naming strategy that switches reads of the account type from acount_type_id to account_type_id. The 
+ * type association is joined on account_type_id and the copy of the type id is written to 
+ * acount_type_id, so both columns are still written and instances that have not switched yet keep 
+ * reading correct values. All other names are left to {@link SpringPhysicalNamingStrategy}.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+public class AccountTypeColumnNamingStrategy extends SpringPhysicalNamingStrategy {
+
+	static final String LEGACY_COLUMN = "acount_type_id";
+	static final String COLUMN = "account_type_id";
+	
+	@Override
+	public Identifier toPhysicalColumnName(Identifier name, JdbcEnvironment jdbcEnvironment) {
+		if (name.getText().equals(LEGACY_COLUMN)) {
+			return new Identifier(COLUMN, name.isQuoted());
+		}
+		if (name.getText().equals(Accounts.TYPE_ID_COPY)) {
+			return new Identifier(LEGACY_COLUMN, name.isQuoted());
+		}
+		return super.toPhysicalColumnName(name, jdbcEnvironment);
+	}
+}
@@ -0,0 +1,77 @@
+package org.generictech.accounts.config;
+
+import java.util.Collections;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Configuration class for the executor that runs the asynchronous account endpoints. The executor is
+ * bounded so that a slow dependency fills its queue and rejects work rather than growing without limit.
+ * Account change events are written to their subscribers by a separate executor, so a slow client holds
+ * up neither the endpoints nor the transaction that made the change.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Configuration
+public class AsyncConfig {
+
+	public static final String ACCOUNTS_EXECUTOR = "accountsExecutor";
+	public static final String ACCOUNT_EVENTS_EXECUTOR = "accountEventsExecutor";
+	
+	/**
+	 * Method to create the executor for the asynchronous account endpoints.
+	 * @param coreSize
+	 * @param maxSize
+	 * @param queueCapacity
+	 * @return ThreadPoolTaskExecutor
+	 */
+	@Bean(ACCOUNTS_EXECUTOR)
+	public ThreadPoolTaskExecutor accountsExecutor(@Value("${accounts.async.core-size:8}") int coreSize
+			, @Value("${accounts.async.max-size:32}") int maxSize
+			, @Value("${accounts.async.queue-capacity:200}") int queueCapacity) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(coreSize);
+		executor.setMaxPoolSize(maxSize);
+		executor.setQueueCapacity(queueCapacity);
+		executor.setThreadNamePrefix("accounts-async-");
+		return executor;
+	}
+	
+	/**
+	 * Method to create the executor that writes account change events to subscribers. Each subscriber 
+	 * has at most one write queued at a time, and a subscriber whose write cannot be queued is 
+	 * disconnected. The pool is grown by AccountEventService while writers are stuck on clients that have
+	 * stopped reading.
+	 * @param threads
+	 * @param queueCapacity
+	 * @return ThreadPoolTaskExecutor
+	 */
+	@Bean(ACCOUNT_EVENTS_EXECUTOR)
+	public ThreadPoolTaskExecutor accountEventsExecutor(@Value("${accounts.events.dispatch-threads:4}") int threads
+			, @Value("${accounts.events.queue-capacity:10000}") int queueCapacity) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(threads);
+		executor.setMaxPoolSize(threads);
+		executor.setQueueCapacity(queueCapacity);
+		executor.setThreadNamePrefix("account-events-");
+		return executor;
+	}
+	
+	/**
+	 * Method to publish the pool size, active count and queue depth of the accounts executor.
+	 * @param accountsExecutor
+	 * @return MeterBinder
+	 */
+	@Bean
+	public MeterBinder accountsExecutorMetrics(@Qualifier(ACCOUNTS_EXECUTOR) ThreadPoolTaskExecutor accountsExecutor) {
+		return new ExecutorServiceMetrics(accountsExecutor.getThreadPoolExecutor(), ACCOUNTS_EXECUTOR
+				, Collections.emptyList());
+	}
+}
@@ -0,0 +1,95 @@
+package org.generictech.accounts.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.generictech.accounts.aspect.AuthenticationInterceptor;
+import org.generictech.accounts.dto.SystemUserDTO;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Configuration class for sending read only transactions to read replicas. It is only active when
+ * accounts.datasource.replica-urls lists at least one replica, otherwise the single datasource from
+ * spring.datasource is used for everything. Replicas use the same driver and credentials as the primary.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Configuration
+@ConditionalOnProperty("accounts.datasource.replica-urls")
+public class DataSourceConfig {
+
+	/**
+	 * Method to create the routing datasource over the primary and the replicas.
+	 * @param properties spring.datasource properties of the primary
+	 * @param replicaUrls
+	 * @param pinMs how long a user reads from the primary after writing to this instance
+	 * @param checkTimeoutSeconds
+	 * @return ReplicaRoutingDataSource
+	 */
+	@Bean
+	public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties
+			, @Value("${accounts.datasource.replica-urls}") String[] replicaUrls
+			, @Value("${accounts.datasource.pin-ms:5000}") long pinMs
+			, @Value("${accounts.datasource.replica-check-timeout-s:1}") int checkTimeoutSeconds) {
+		DataSource primary = properties.initializeDataSourceBuilder().build();
+		Map<String, DataSource> replicas = new LinkedHashMap<>();
+		for (int i = 0; i < replicaUrls.length; i++) {
+			replicas.put("replica-" + i, DataSourceBuilder.create()
+					.driverClassName(properties.determineDriverClassName())
+					.url(replicaUrls[i].trim())
+					.username(properties.determineUsername())
+					.password(properties.determinePassword())
+					.build());
+		}
+		return new ReplicaRoutingDataSource(primary, replicas, DataSourceConfig::currentUserId, pinMs
+				, checkTimeoutSeconds);
+	}
+
+	/**
+	 * Method to create the datasource used by the application. Connections are only taken from the
+	 * routing datasource when the first statement runs, after the transaction has been marked read only.
+	 * @param replicaRoutingDataSource
+	 * @return DataSource
+	 */
+	@Bean
+	@Primary
+	public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+		return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+	}
+
+	/**
+	 * Method to make Hibernate give connections back at the end of each transaction, so a request that
+	 * reads and then writes gets a new routing decision for the write.
+	 * @return HibernatePropertiesCustomizer
+	 */
+	@Bean
+	public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+		return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING
+				, PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+	}
+
+	/**
+	 * Method to get the id of the user of the current request.
+	 * @return Integer user id or null outside of an authenticated request
+	 */
+	static Integer currentUserId() {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		Object user = attributes == null ? null
+				: attributes.getAttribute(AuthenticationInterceptor.USER, RequestAttributes.SCOPE_REQUEST);
+		return user instanceof SystemUserDTO ? ((SystemUserDTO) user).getId() : null;
+	}
+}
@@ -0,0 +1,114 @@
+package org.generictech.accounts.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.generictech.accounts.exception.RestTemplateErrorHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+
+/**
+ * Configuration class for the HTTP client used to call other services. Connections are pooled and 
+ * kept alive between requests, and every request is bounded by connect and read timeouts.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Configuration
+public class HttpClientConfig {
+
+	/**
+	 * Method to create the pool of connections shared by all outgoing requests.
+	 * @param maxTotal
+	 * @param maxPerRoute
+	 * @param validateAfterInactivityMs
+	 * @return PoolingHttpClientConnectionManager
+	 */
+	@Bean
+	public PoolingHttpClientConnectionManager connectionManager(@Value("${accounts.http.pool.max-total:100}") int maxTotal
+			, @Value("${accounts.http.pool.max-per-route:20}") int maxPerRoute
+			, @Value("${accounts.http.pool.validate-after-inactivity-ms:2000}") int validateAfterInactivityMs) {
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(maxTotal);
+		connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+		connectionManager.setValidateAfterInactivity(validateAfterInactivityMs);
+		return connectionManager;
+	}
+	
+	/**
+	 * Method to create the HTTP client. Idle connections are closed by a background thread so the 
+	 * pool does not hold on to connections the remote side has already dropped. 
+	 * @param connectionManager
+	 * @param connectTimeoutMs
+	 * @param readTimeoutMs
+	 * @param connectionRequestTimeoutMs time to wait for a connection from the pool
+	 * @param idleEvictionMs
+	 * @return CloseableHttpClient
+	 */
+	@Bean
+	public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager connectionManager
+			, @Value("${accounts.http.connect-timeout-ms:1000}") int connectTimeoutMs
+			, @Value("${accounts.http.read-timeout-ms:3000}") int readTimeoutMs
+			, @Value("${accounts.http.pool.connection-request-timeout-ms:1000}") int connectionRequestTimeoutMs
+			, @Value("${accounts.http.pool.idle-eviction-ms:30000}") long idleEvictionMs) {
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(connectTimeoutMs)
+				.setSocketTimeout(readTimeoutMs)
+				.setConnectionRequestTimeout(connectionRequestTimeoutMs)
+				.build();
+		return HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig)
+				.setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+				.evictExpiredConnections()
+				.evictIdleConnections(idleEvictionMs, TimeUnit.MILLISECONDS)
+				.build();
+	}
+	
+	/**
+	 * Method to create the request factory that sends RestTemplate requests through the pooled client,
+	 * so they use its connections and timeouts.
+	 * @param httpClient
+	 * @return ClientHttpRequestFactory
+	 */
+	@Bean
+	public ClientHttpRequestFactory clientHttpRequestFactory(CloseableHttpClient httpClient) {
+		return new HttpComponentsClientHttpRequestFactory(httpClient);
+	}
+	
+	/**
+	 * Method to publish the leased, pending and available connection counts of the pool.
+	 * @param connectionManager
+	 * @return MeterBinder
+	 */
+	@Bean
+	public MeterBinder connectionPoolMetrics(PoolingHttpClientConnectionManager connectionManager) {
+		return new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "accounts-http");
+	}
+	
+	/**
+	 * Method to create the RestTemplate used to call other services. Error responses are handled by
+	 * {@link RestTemplateErrorHandler}, while timeouts and connection failures are thrown as
+	 * ResourceAccessException for the caller to handle.
+	 * @param clientHttpRequestFactory
+	 * @return RestTemplate
+	 */
+	@Bean
+	public RestTemplate getRestTemplate(ClientHttpRequestFactory clientHttpRequestFactory) {
+		return new RestTemplateBuilder()
+				.requestFactory(() -> clientHttpRequestFactory)
+				.errorHandler(new RestTemplateErrorHandler())
+				.build();
+	}
+}
@@ -0,0 +1,59 @@
+package org.generictech.accounts.config;
+
+import java.util.Iterator;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.Property;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * Integrator that switches reads of amounts from the decimal columns to the minor unit columns replacing
+ * them. Minor unit columns are mapped with a read expression converting their decimal column, and this 
+ * reads the minor unit column instead, falling back to that expression for rows the backfill has not 
+ * reached. Both columns are still written, so instances that have not switched yet keep reading correct 
+ * values. It runs before the entity persisters are built, so every entity load and query uses the 
+ * switched reads.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+public class MinorUnitsReadIntegrator implements Integrator {
+
+	static final String SUFFIX = "_minor";
+
+	@Override
+	public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory
+			, SessionFactoryServiceRegistry serviceRegistry) {
+		for (PersistentClass entity : metadata.getEntityBindings()) {
+			Iterator<?> properties = entity.getPropertyIterator();
+			while (properties.hasNext()) {
+				Iterator<?> columns = ((Property) properties.next()).getColumnIterator();
+				while (columns.hasNext()) {
+					Object column = columns.next();
+					if (column instanceof Column && ((Column) column).getName().endsWith(SUFFIX)
+							&& ((Column) column).getCustomRead() != null) {
+						Column minorUnits = (Column) column;
+						minorUnits.setCustomRead(read(minorUnits.getQuotedName(), minorUnits.getCustomRead()));
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+	}
+
+	/**
+	 * Method to build the expression reading an amount from a minor unit column once reads are switched.
+	 * @param column minor unit column
+	 * @param decimalRead expression converting the decimal column it replaces
+	 * @return String SQL expression
+	 */
+	public static String read(String column, String decimalRead) {
+		return "coalesce(" + column + ", " + decimalRead + ")";
+	}
+}
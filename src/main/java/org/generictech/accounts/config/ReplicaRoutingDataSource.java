@@ -0,0 +1,162 @@
+package org.generictech.accounts.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * DataSource that sends the connections of read only transactions to a pool of replicas and everything
+ * else to the primary. Replicas are used round-robin and a replica that fails its health check is left
+ * out until it passes again. A user that writes is pinned to the primary for pinMs so that their next
+ * reads see their own writes even if the replicas are behind.
+ * <p>
+ * Pins are kept in memory by each instance, so a user only reads their own writes from the instance
+ * that took the write. Behind a load balancer that does not keep a user on one instance, a read
+ * following a write can still go to a replica that is behind. The user is found from the current
+ * request, so reads made on other threads, such as those behind /account/async, are never pinned
+ * and can also return stale data.
+ * <p>
+ * The routing decision is made when a connection is requested, so this DataSource must be wrapped in a
+ * LazyConnectionDataSourceProxy and connections must be released at the end of each transaction.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+	static final String PRIMARY = "primary";
+
+	private final DataSource primary;
+	private final Map<String, DataSource> replicas;
+	private final Supplier<Integer> currentUserId;
+	private final long pinMs;
+	private final int checkTimeoutSeconds;
+	private final LongSupplier clock;
+
+	private volatile List<String> healthy;
+	private final AtomicInteger next = new AtomicInteger();
+	private final ConcurrentMap<Integer, Long> pinnedUntil = new ConcurrentHashMap<>();
+
+	public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Supplier<Integer> currentUserId
+			, long pinMs, int checkTimeoutSeconds) {
+		this(primary, replicas, currentUserId, pinMs, checkTimeoutSeconds, System::currentTimeMillis);
+	}
+
+	ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Supplier<Integer> currentUserId
+			, long pinMs, int checkTimeoutSeconds, LongSupplier clock) {
+		this.primary = primary;
+		this.replicas = Collections.unmodifiableMap(new LinkedHashMap<>(replicas));
+		this.currentUserId = currentUserId;
+		this.pinMs = pinMs;
+		this.checkTimeoutSeconds = checkTimeoutSeconds;
+		this.clock = clock;
+		this.healthy = Collections.unmodifiableList(new ArrayList<>(replicas.keySet()));
+		Map<Object, Object> targets = new HashMap<>(replicas);
+		targets.put(PRIMARY, primary);
+		setTargetDataSources(targets);
+		setDefaultTargetDataSource(primary);
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		Integer userId = currentUserId.get();
+		if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			if (userId != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+				pinnedUntil.put(userId, clock.getAsLong() + pinMs);
+			}
+			return PRIMARY;
+		}
+		if (userId != null && isPinned(userId)) {
+			return PRIMARY;
+		}
+		List<String> candidates = healthy;
+		if (candidates.isEmpty()) {
+			return PRIMARY;
+		}
+		return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+	}
+
+	/**
+	 * Method to check every replica and update the ones reads are sent to. Expired pins are also removed
+	 * here so the pin map only holds users that wrote recently.
+	 */
+	@Scheduled(fixedDelayString = "${accounts.datasource.replica-check-ms:5000}"
+			, initialDelayString = "${accounts.datasource.replica-check-ms:5000}")
+	public void checkReplicas() {
+		List<String> passed = new ArrayList<>(replicas.size());
+		for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+			if (isValid(replica.getValue())) {
+				passed.add(replica.getKey());
+			}
+		}
+		if (!passed.equals(healthy)) {
+			log.warn("Healthy replicas changed from " + healthy + " to " + passed);
+		}
+		healthy = Collections.unmodifiableList(passed);
+		long now = clock.getAsLong();
+		pinnedUntil.values().removeIf(until -> until <= now);
+	}
+
+	/**
+	 * Method to get the replicas that reads are currently sent to.
+	 * @return List<String> replica names
+	 */
+	public List<String> getHealthyReplicas() {
+		return healthy;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closeIfPossible(primary);
+		for (DataSource replica : replicas.values()) {
+			closeIfPossible(replica);
+		}
+	}
+
+	private boolean isPinned(int userId) {
+		Long until = pinnedUntil.get(userId);
+		if (until == null) {
+			return false;
+		}
+		if (until <= clock.getAsLong()) {
+			pinnedUntil.remove(userId, until);
+			return false;
+		}
+		return true;
+	}
+
+	private boolean isValid(DataSource replica) {
+		try (Connection connection = replica.getConnection()) {
+			return connection.isValid(checkTimeoutSeconds);
+		} catch (SQLException e) {
+			log.debug("Replica health check failed: " + e.getMessage());
+			return false;
+		}
+	}
+
+	private static void closeIfPossible(DataSource dataSource) throws IOException {
+		if (dataSource instanceof Closeable) {
+			((Closeable) dataSource).close();
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package org.generictech.accounts.config;
+
+import java.util.Collections;
+
+import org.hibernate.boot.model.naming.PhysicalNamingStrategy;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class for schema changes that are rolled out in steps. While acount_type_id is renamed,
+ * setting accounts.migration.type-column.read-new reads the account type from account_type_id. While
+ * amounts are moved to minor unit columns, setting accounts.migration.minor-units.read-new reads them from
+ * those columns. Each should only be set once every instance writes both columns and the backfill has
+ * finished on every shard. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Configuration
+public class SchemaMigrationConfig {
+
+	/**
+	 * Method to create the naming strategy that reads the account type from account_type_id.
+	 * @return PhysicalNamingStrategy
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "accounts.migration.type-column.read-new", havingValue = "true")
+	public PhysicalNamingStrategy accountTypeColumnNamingStrategy() {
+		return new AccountTypeColumnNamingStrategy();
+	}
+
+	/**
+	 * Method to register the integrator that reads amounts from the minor unit columns.
+	 * @return HibernatePropertiesCustomizer
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "accounts.migration.minor-units.read-new", havingValue = "true")
+	public HibernatePropertiesCustomizer minorUnitsReadCustomizer() {
+		IntegratorProvider integrators = () -> Collections.singletonList(new MinorUnitsReadIntegrator());
+		return properties -> properties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER, integrators);
+	}
+}
@@ -0,0 +1,47 @@
+package org.generictech.accounts.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Holder for the shard that work on the current thread is sent to, for work that is not done on behalf 
+ * of the user of the current request. A shard set here takes precedence over the user's shard. Routing 
+ * is decided when a transaction takes its connection, so a shard must be set before the transaction 
+ * starts. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+public final class ShardContext {
+
+	private static final ThreadLocal<String> SHARD = new ThreadLocal<>();
+	
+	private ShardContext() {
+	}
+	
+	/**
+	 * Method to get the shard set for the current thread.
+	 * @return String shard name or null if none is set
+	 */
+	public static String current() {
+		return SHARD.get();
+	}
+	
+	/**
+	 * Method to run a task against one shard.
+	 * @param shard
+	 * @param task
+	 * @return T result of the task
+	 */
+	public static <T> T callOn(String shard, Supplier<T> task) {
+		String previous = SHARD.get();
+		SHARD.set(shard);
+		try {
+			return task.get();
+		} finally {
+			if (previous == null) {
+				SHARD.remove();
+			} else {
+				SHARD.set(previous);
+			}
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package org.generictech.accounts.config;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Directory of the shard each user's data lives on. Users are placed by the {@link ShardRing} unless
+ * they have been moved, in which case the user_shard table on the directory shard records where their
+ * data now is. The table is cached in memory and reloaded every accounts.shards.directory-refresh-ms so
+ * moves made by another instance are picked up. Decisions that cannot wait for the next reload, such as
+ * where a move starts from, reload the user's entry first.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Slf4j
+public class ShardDirectory {
+
+	private final ShardRing ring;
+	private final JdbcTemplate jdbcTemplate;
+
+	private volatile Map<Integer, Assignment> assignments = Collections.emptyMap();
+
+	public ShardDirectory(ShardRing ring, DataSource directoryShard) {
+		this.ring = ring;
+		this.jdbcTemplate = new JdbcTemplate(directoryShard);
+	}
+
+	/**
+	 * Method to find the shard a user's data lives on.
+	 * @param userId
+	 * @return String shard name
+	 */
+	public String shardFor(int userId) {
+		Assignment assignment = assignments.get(userId);
+		return assignment != null ? assignment.shard : ring.shardFor(userId);
+	}
+
+	/**
+	 * Method to check whether a user's data is being moved between shards. Their data must not be
+	 * changed until the move finishes.
+	 * @param userId
+	 * @return boolean
+	 */
+	public boolean isMoving(int userId) {
+		Assignment assignment = assignments.get(userId);
+		return assignment != null && assignment.moving;
+	}
+
+	/**
+	 * Method to reload the directory from the user_shard table.
+	 */
+	@Scheduled(fixedDelayString = "${accounts.shards.directory-refresh-ms:5000}"
+			, initialDelayString = "${accounts.shards.directory-refresh-ms:5000}")
+	public synchronized void refresh() {
+		Map<Integer, Assignment> loaded = new HashMap<>();
+		jdbcTemplate.query("select system_user_id, shard, moving from user_shard", row -> {
+			loaded.put(row.getInt(1), new Assignment(row.getString(2), row.getBoolean(3)));
+		});
+		assignments = Collections.unmodifiableMap(loaded);
+	}
+
+	/**
+	 * Method to reload one user's entry from the user_shard table.
+	 * @param userId
+	 */
+	public synchronized void refresh(int userId) {
+		List<Assignment> loaded = jdbcTemplate.query("select shard, moving from user_shard where system_user_id = ?"
+				, (row, i) -> new Assignment(row.getString(1), row.getBoolean(2)), userId);
+		Map<Integer, Assignment> updated = new HashMap<>(assignments);
+		if (loaded.isEmpty()) {
+			updated.remove(userId);
+		} else {
+			updated.put(userId, loaded.get(0));
+		}
+		assignments = Collections.unmodifiableMap(updated);
+	}
+
+	/**
+	 * Method to mark a user as being moved. The user stays on the shard the user_shard table currently
+	 * records for them.
+	 * @param userId
+	 */
+	public synchronized void startMove(int userId) {
+		refresh(userId);
+		save(userId, new Assignment(shardFor(userId), true));
+	}
+
+	/**
+	 * Method to record the shard a user's data was moved to and end the move.
+	 * @param userId
+	 * @param shard
+	 */
+	public synchronized void finishMove(int userId, String shard) {
+		save(userId, new Assignment(shard, false));
+		log.info("User " + userId + " moved to " + shard);
+	}
+
+	public ShardRing getRing() {
+		return ring;
+	}
+
+	private void save(int userId, Assignment assignment) {
+		if (jdbcTemplate.update("update user_shard set shard = ?, moving = ? where system_user_id = ?"
+				, assignment.shard, assignment.moving, userId) == 0) {
+			jdbcTemplate.update("insert into user_shard (system_user_id, shard, moving) values (?, ?, ?)"
+					, userId, assignment.shard, assignment.moving);
+		}
+		Map<Integer, Assignment> updated = new HashMap<>(assignments);
+		updated.put(userId, assignment);
+		assignments = Collections.unmodifiableMap(updated);
+	}
+
+	private static final class Assignment {
+		private final String shard;
+		private final boolean moving;
+
+		private Assignment(String shard, boolean moving) {
+			this.shard = shard;
+			this.moving = moving;
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package org.generictech.accounts.config;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring from user id to shard. Each shard is placed on the ring at virtualNodes points 
+ * and a user belongs to the first shard point at or after the hash of their id, so adding a shard only 
+ * moves the users that now fall on its points. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+public class ShardRing {
+
+	private final List<String> shards;
+	private final int virtualNodes;
+	private final NavigableMap<Long, String> ring = new TreeMap<>();
+	
+	public ShardRing(List<String> shards, int virtualNodes) {
+		if (shards.isEmpty() || virtualNodes < 1) {
+			throw new IllegalArgumentException("A shard ring needs at least one shard and one virtual node");
+		}
+		this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+		this.virtualNodes = virtualNodes;
+		for (String shard : shards) {
+			for (int i = 0; i < virtualNodes; i++) {
+				ring.put(hash(shard + "#" + i), shard);
+			}
+		}
+	}
+	
+	/**
+	 * Method to find the shard a user belongs to.
+	 * @param userId
+	 * @return String shard name
+	 */
+	public String shardFor(int userId) {
+		Map.Entry<Long, String> point = ring.ceilingEntry(hash("user:" + userId));
+		return (point != null ? point : ring.firstEntry()).getValue();
+	}
+	
+	/**
+	 * Method to create a ring over a different set of shards with the same number of virtual nodes.
+	 * @param shards
+	 * @return ShardRing
+	 */
+	public ShardRing withShards(List<String> shards) {
+		return new ShardRing(shards, virtualNodes);
+	}
+	
+	public List<String> getShards() {
+		return shards;
+	}
+	
+	private static long hash(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+			return ByteBuffer.wrap(digest).getLong();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("MD5 not available", e);
+		}
+	}
+}
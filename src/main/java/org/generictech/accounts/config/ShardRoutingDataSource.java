@@ -0,0 +1,78 @@
+package org.generictech.accounts.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * DataSource that sends each connection to one shard. Work run through {@link ShardContext} goes to the
+ * shard it names, work done for the user of the current request goes to that user's shard from the 
+ * {@link ShardDirectory}, and anything else, such as account types and the directory itself, goes to 
+ * the directory shard.
+ * <p>
+ * Like {@link ReplicaRoutingDataSource} this must be wrapped in a LazyConnectionDataSourceProxy and
+ * connections must be released at the end of each transaction.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+	private final Map<String, DataSource> shards;
+	private final String directoryShard;
+	private final ShardDirectory directory;
+	private final Supplier<Integer> currentUserId;
+	
+	public ShardRoutingDataSource(Map<String, DataSource> shards, String directoryShard, ShardDirectory directory
+			, Supplier<Integer> currentUserId) {
+		this.shards = Collections.unmodifiableMap(new LinkedHashMap<>(shards));
+		this.directoryShard = directoryShard;
+		this.directory = directory;
+		this.currentUserId = currentUserId;
+		setTargetDataSources(new HashMap<>(shards));
+		setDefaultTargetDataSource(shards.get(directoryShard));
+		setLenientFallback(false);
+	}
+	
+	@Override
+	protected Object determineCurrentLookupKey() {
+		String shard = ShardContext.current();
+		if (shard != null) {
+			return shard;
+		}
+		Integer userId = currentUserId.get();
+		return userId == null ? directoryShard : directory.shardFor(userId);
+	}
+	
+	/**
+	 * Method to get the shards by name, with the directory shard first.
+	 * @return Map<String, DataSource>
+	 */
+	public Map<String, DataSource> getShards() {
+		return shards;
+	}
+	
+	public String getDirectoryShard() {
+		return directoryShard;
+	}
+	
+	public ShardDirectory getDirectory() {
+		return directory;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		for (DataSource shard : shards.values()) {
+			if (shard instanceof Closeable) {
+				((Closeable) shard).close();
+			}
+		}
+	}
+}
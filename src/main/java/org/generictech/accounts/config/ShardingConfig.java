@@ -0,0 +1,142 @@
+package org.generictech.accounts.config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.generictech.accounts.migration.V4__Shard_id_ranges;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Configuration class for splitting accounts across several databases by user id. It is only active when
+ * accounts.shards.urls lists the shards, and cannot be combined with accounts.datasource.replica-urls.
+ * The first shard is the directory shard, which holds the user_shard table and is the source of the
+ * account types copied to the other shards. Shards use the same driver and credentials as spring.datasource.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Configuration
+@ConditionalOnProperty("accounts.shards.urls")
+public class ShardingConfig {
+
+	/**
+	 * Method to create the routing datasource over the shards. New users are placed by a ring over the
+	 * shards in accounts.shards.ring, or over all shards when it is not set, so shards can be added
+	 * before any users are placed on them.
+	 * @param properties spring.datasource properties shared by the shards
+	 * @param urls
+	 * @param ring names of the shards new users are placed on
+	 * @param virtualNodes
+	 * @return ShardRoutingDataSource
+	 */
+	@Bean
+	public ShardRoutingDataSource shardRoutingDataSource(DataSourceProperties properties
+			, @Value("${accounts.shards.urls}") String[] urls
+			, @Value("${accounts.shards.ring:}") String[] ring
+			, @Value("${accounts.shards.virtual-nodes:128}") int virtualNodes) {
+		Map<String, DataSource> shards = new LinkedHashMap<>();
+		for (int i = 0; i < urls.length; i++) {
+			shards.put(shardName(i), DataSourceBuilder.create()
+					.driverClassName(properties.determineDriverClassName())
+					.url(urls[i].trim())
+					.username(properties.determineUsername())
+					.password(properties.determinePassword())
+					.build());
+		}
+		List<String> ringShards = ring.length == 0 ? new ArrayList<>(shards.keySet()) : trim(ring);
+		if (!shards.keySet().containsAll(ringShards)) {
+			throw new IllegalStateException("accounts.shards.ring " + ringShards + " must only name shards in "
+					+ shards.keySet());
+		}
+		String directoryShard = shardName(0);
+		ShardDirectory directory = new ShardDirectory(new ShardRing(ringShards, virtualNodes), shards.get(directoryShard));
+		return new ShardRoutingDataSource(shards, directoryShard, directory, DataSourceConfig::currentUserId);
+	}
+
+	/**
+	 * Method to expose the directory so its refresh is scheduled and it can be used by the
+	 * authentication interceptor and the rebalancer.
+	 * @param shardRoutingDataSource
+	 * @return ShardDirectory
+	 */
+	@Bean
+	public ShardDirectory shardDirectory(ShardRoutingDataSource shardRoutingDataSource) {
+		return shardRoutingDataSource.getDirectory();
+	}
+
+	/**
+	 * Method to create the datasource used by the application. Connections are only taken from the
+	 * routing datasource when the first statement runs, after any shard has been set in {@link ShardContext}.
+	 * @param shardRoutingDataSource
+	 * @return DataSource
+	 */
+	@Bean
+	@Primary
+	public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+		return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+	}
+
+	/**
+	 * Method to make Hibernate give connections back at the end of each transaction, so work for
+	 * different shards on the same thread gets a new routing decision.
+	 * @return HibernatePropertiesCustomizer
+	 */
+	@Bean
+	public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+		return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING
+				, PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+	}
+
+	/**
+	 * Method to run the migrations on every shard instead of only the directory shard. Each shard gets
+	 * its index as the shard-index placeholder so it generates account ids from its own range. The
+	 * directory is loaded once the user_shard table is known to exist.
+	 * @param shardRoutingDataSource
+	 * @return FlywayMigrationStrategy
+	 */
+	@Bean
+	public FlywayMigrationStrategy shardMigrationStrategy(ShardRoutingDataSource shardRoutingDataSource) {
+		return flyway -> {
+			int index = 0;
+			for (DataSource shard : shardRoutingDataSource.getShards().values()) {
+				Map<String, String> placeholders = new HashMap<>(flyway.getConfiguration().getPlaceholders());
+				placeholders.put(V4__Shard_id_ranges.SHARD_INDEX_PLACEHOLDER, Integer.toString(index++));
+				Flyway.configure()
+						.configuration(flyway.getConfiguration())
+						.dataSource(shard)
+						.placeholders(placeholders)
+						.load()
+						.migrate();
+			}
+			shardRoutingDataSource.getDirectory().refresh();
+		};
+	}
+
+	static String shardName(int index) {
+		return "shard-" + index;
+	}
+
+	private static List<String> trim(String[] values) {
+		List<String> trimmed = new ArrayList<>(values.length);
+		for (String value : values) {
+			trimmed.add(value.trim());
+		}
+		return trimmed;
+	}
+}
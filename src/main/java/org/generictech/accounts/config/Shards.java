@@ -0,0 +1,124 @@
+package org.generictech.accounts.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Class to run work that is not scoped to one user against every shard. When sharding is not configured
+ * there is a single unnamed shard and each task simply runs once. Tasks must not be called from inside
+ * a transaction, as the transaction's connection is already bound to one shard.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Component
+public class Shards {
+
+	private final List<String> names;
+	private final String directoryShard;
+	private final ShardDirectory directory;
+	private final Executor executor;
+
+	@Autowired
+	public Shards(ObjectProvider<ShardRoutingDataSource> shardRoutingDataSource
+			, @Qualifier(AsyncConfig.ACCOUNTS_EXECUTOR) ObjectProvider<Executor> executor) {
+		this(shardRoutingDataSource.getIfAvailable(), executor.getIfAvailable(ForkJoinPool::commonPool));
+	}
+
+	Shards(ShardRoutingDataSource routing, Executor executor) {
+		this.names = routing == null ? Collections.emptyList()
+				: Collections.unmodifiableList(new ArrayList<>(routing.getShards().keySet()));
+		this.directoryShard = routing == null ? null : routing.getDirectoryShard();
+		this.directory = routing == null ? null : routing.getDirectory();
+		this.executor = executor;
+	}
+
+	public boolean isSharded() {
+		return !names.isEmpty();
+	}
+
+	public List<String> getNames() {
+		return names;
+	}
+
+	/**
+	 * Method to run a query on every shard in parallel and combine the results.
+	 * @param query
+	 * @return List<T> results of each shard in shard order
+	 */
+	public <T> List<T> gather(Supplier<List<T>> query) {
+		if (!isSharded()) {
+			return query.get();
+		}
+		List<CompletableFuture<List<T>>> results = new ArrayList<>(names.size());
+		for (String name : names) {
+			results.add(CompletableFuture.supplyAsync(() -> ShardContext.callOn(name, query), executor));
+		}
+		List<T> combined = new ArrayList<>();
+		try {
+			for (CompletableFuture<List<T>> result : results) {
+				combined.addAll(result.join());
+			}
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+		return combined;
+	}
+
+	/**
+	 * Method to run a task on every shard in turn.
+	 * @param task
+	 */
+	public void forEach(Runnable task) {
+		if (!isSharded()) {
+			task.run();
+			return;
+		}
+		for (String name : names) {
+			runOn(name, task);
+		}
+	}
+
+	/**
+	 * Method to copy a change made on the directory shard to every other shard. Used for reference data
+	 * such as account types that every shard needs.
+	 * @param task
+	 */
+	public void replicate(Runnable task) {
+		for (String name : names) {
+			if (!name.equals(directoryShard)) {
+				runOn(name, task);
+			}
+		}
+	}
+
+	/**
+	 * Method to run a task on the shard a user's data lives on, for work done outside the user's request.
+	 * @param userId
+	 * @param task
+	 * @return T result of the task
+	 */
+	public <T> T callForUser(int userId, Supplier<T> task) {
+		return isSharded() ? ShardContext.callOn(directory.shardFor(userId), task) : task.get();
+	}
+
+	private static void runOn(String name, Runnable task) {
+		ShardContext.callOn(name, () -> {
+			task.run();
+			return null;
+		});
+	}
+}
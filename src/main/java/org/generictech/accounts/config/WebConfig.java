@@ -0,0 +1,33 @@
+package org.generictech.accounts.config;
+
+import org.generictech.accounts.aspect.AuthenticationInterceptor;
+import org.generictech.accounts.service.AccountsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuration class for Spring MVC. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+	@Autowired
+	private AccountsService accountsService;
+	@Autowired(required = false)
+	private ShardDirectory shardDirectory;
+	
+	/**
+	 * Method to register the authentication interceptor for the account endpoints. Account types are 
+	 * not user specific, and the asynchronous endpoints validate the token alongside the account lookup.
+	 */
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new AuthenticationInterceptor(accountsService, shardDirectory))
+			.addPathPatterns("/account", "/account/**")
+			.excludePathPatterns("/account/type", "/account/type/**", "/account/async", "/account/async/**");
+	}
+}
@@ -2,12 +2,16 @@ package org.generictech.accounts.controller;
 
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
 
 import org.generictech.accounts.exception.BadValueException;
 import org.generictech.accounts.exception.TypeNotFoundException;
 import org.generictech.accounts.model.AccountType;
+import org.generictech.accounts.service.AccountTypeRegistry;
 import org.generictech.accounts.service.AccountTypeService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -31,14 +35,21 @@ public class AccountTypeController {
 
 	@Autowired
 	private AccountTypeService accountTypeService;
+	@Value("${accounts.types.max-age-s:60}")
+	private long maxAge;
 	
 	/**
 	 * Method to handle GET requests to /account/type. This method returns all types in the database. 
+	 * The response carries an ETag, and a request with a matching If-None-Match gets a 304 with no body. 
 	 * @return ResponseEntity<List<AccountType>>
 	 */
 	@GetMapping("")
 	public ResponseEntity<List<AccountType>> findAll() {
-		return new ResponseEntity<>(accountTypeService.findAll(), HttpStatus.OK);
+		AccountTypeRegistry.Snapshot snapshot = accountTypeService.snapshot();
+		return ResponseEntity.ok()
+				.eTag(snapshot.getETag())
+				.cacheControl(CacheControl.maxAge(maxAge, TimeUnit.SECONDS).cachePublic())
+				.body(snapshot.getTypes());
 	}
 	
 	/**
@@ -0,0 +1,58 @@
+package org.generictech.accounts.controller;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.generictech.accounts.model.Accounts;
+import org.generictech.accounts.service.AccountsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Class to handle incoming HTTP requests for accounts asynchronously. The request thread is released
+ * while the token is validated and the accounts are read. With read replicas configured, the reads
+ * run outside the request and are not pinned to the primary after the user writes, so they may not
+ * include the user's latest changes.
+ * @author Jaden Wilson
+ * @since 1.0
+ *
+ */
+@RestController
+@RequestMapping("/account/async")
+public class AccountsAsyncController {
+
+	@Autowired
+	private AccountsService accountsService;
+	@Autowired
+	private HttpServletRequest req;
+	
+	private static final String TOKEN = "tokenId";
+	
+	/**
+	 * Method to handle GET requests to /account/async endpoint.
+	 * @return CompletableFuture<ResponseEntity<List<Accounts>>>
+	 */
+	@GetMapping("")
+	public CompletableFuture<ResponseEntity<List<Accounts>>> getAll() {
+		return accountsService.findByUserIdAsync(req.getHeader(TOKEN))
+				.thenApply(accounts -> new ResponseEntity<>(accounts, HttpStatus.OK));
+	}
+	
+	/**
+	 * Method to handle GET requests to /account/async/id/{id}
+	 * @param id
+	 * @return CompletableFuture<ResponseEntity<Accounts>>
+	 */
+	@GetMapping("/id/{id}")
+	public CompletableFuture<ResponseEntity<Accounts>> getById(@PathVariable int id) {
+		return accountsService.findByIdAsync(id, req.getHeader(TOKEN))
+				.thenApply(account -> new ResponseEntity<>(account, HttpStatus.OK));
+	}
+}
@@ -1,30 +1,55 @@
 package org.generictech.accounts.controller;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.NoSuchElementException;
 
-import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
+import org.generictech.accounts.aspect.AuthenticationInterceptor;
+import org.generictech.accounts.dto.AccountSummaryDTO;
+import org.generictech.accounts.dto.AccountsPageDTO;
+import org.generictech.accounts.dto.AdjustmentDTO;
+import org.generictech.accounts.dto.BalanceDTO;
+import org.generictech.accounts.dto.BatchResultDTO;
 import org.generictech.accounts.dto.SystemUserDTO;
 import org.generictech.accounts.exception.AccountNotFoundException;
+import org.generictech.accounts.exception.BadValueException;
+import org.generictech.accounts.exception.PreconditionFailedException;
 import org.generictech.accounts.exception.ProcessingException;
 import org.generictech.accounts.exception.ProcessingRuntimeException;
 import org.generictech.accounts.exception.TypeNotFoundException;
 import org.generictech.accounts.exception.UnauthorizedAccessException;
 import org.generictech.accounts.exception.UserNotFoundException;
 import org.generictech.accounts.model.Accounts;
+import org.generictech.accounts.service.AccountAdjustmentService;
+import org.generictech.accounts.service.AccountEventService;
+import org.generictech.accounts.service.AccountSummaryService;
+import org.generictech.accounts.service.AccountsBatchService;
+import org.generictech.accounts.service.AccountsExportService;
 import org.generictech.accounts.service.AccountsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.databind.JsonNode;
 
 /**
  * Class to handle incoming HTTP requests dealing with accounts
@@ -39,9 +64,17 @@ public class AccountsController {
 	@Autowired
 	private AccountsService accountsService;
 	@Autowired
-	private HttpServletRequest req;
+	private AccountsExportService accountsExportService;
+	@Autowired
+	private AccountAdjustmentService accountAdjustmentService;
+	@Autowired
+	private AccountsBatchService accountsBatchService;
+	@Autowired
+	private AccountSummaryService accountSummaryService;
+	@Autowired
+	private AccountEventService accountEventService;
 	
-	private static final String TOKEN = "tokenId";
+	private static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
 	
 	/**
 	 * Method to handle GET requests to /account endpoint.
@@ -52,9 +85,56 @@ public class AccountsController {
 	 * @throws AccountNotFoundException 
 	 */
 	@GetMapping("")
-	public ResponseEntity<List<Accounts>> getAll() throws ProcessingRuntimeException, UserNotFoundException, ProcessingException, AccountNotFoundException {
-		SystemUserDTO user = accountsService.getUser(req.getHeader(TOKEN));
-		return new ResponseEntity<>(accountsService.findByUserId(user.getId()), HttpStatus.OK);
+	public ResponseEntity<List<Accounts>> getAll(@RequestAttribute(AuthenticationInterceptor.USER) SystemUserDTO user) throws ProcessingRuntimeException, UserNotFoundException, ProcessingException, AccountNotFoundException {
+		List<Accounts> accounts = accountsService.findByUserId(user.getId());
+		return ResponseEntity.ok().eTag(eTag(accounts)).body(accounts);
+	}
+	
+	/**
+	 * Method to handle GET requests to /account?limit={limit}&after={after}. Returns one page of accounts 
+	 * and the cursor for the next page. 
+	 * @param limit
+	 * @param after cursor from the previous page, omitted for the first page
+	 * @return ResponseEntity<AccountsPageDTO>
+	 * @throws BadValueException 
+	 */
+	@GetMapping(value = "", params = "limit")
+	public ResponseEntity<AccountsPageDTO> getPage(@RequestParam int limit, @RequestParam(required = false) String after
+		, @RequestAttribute(AuthenticationInterceptor.USER) SystemUserDTO user) throws BadValueException {
+		return new ResponseEntity<>(accountsService.findPageByUserId(user.getId(), limit, after), HttpStatus.OK);
+	}
+	
+	/**
+	 * Method to handle GET requests to /account/summary. Returns the number and total balance of the 
+	 * user's accounts by type and over all types. 
+	 * @return ResponseEntity<AccountSummaryDTO>
+	 */
+	@GetMapping("/summary")
+	public ResponseEntity<AccountSummaryDTO> getSummary(@RequestAttribute(AuthenticationInterceptor.USER) SystemUserDTO user) {
+		return new ResponseEntity<>(accountSummaryService.findByUserId(user.getId()), HttpStatus.OK);
+	}
+	
+	/**
+	 * Method to handle GET requests to /account/stream. Accounts are written to the response as they are 
+	 * read rather than collected into a list first. 
+	 * @param response
+	 * @throws IOException 
+	 */
+	@GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+	public void stream(@RequestAttribute(AuthenticationInterceptor.USER) SystemUserDTO user, HttpServletResponse response) throws IOException {
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		accountsExportService.writeByUserId(user.getId(), response.getOutputStream());
+	}
+	
+	/**
+	 * Method to handle GET requests to /account/stream that accept text/event-stream. Changes to the user's 
+	 * accounts are sent as created, updated and deleted events with the account id and version, once 
+	 * they have committed. 
+	 * @return SseEmitter
+	 */
+	@GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter subscribe(@RequestAttribute(AuthenticationInterceptor.USER) SystemUserDTO user) {
+		return accountEventService.subscribe(user.getId());
 	}
 	
 	/**
@@ -68,9 +148,9 @@ public class AccountsController {
 	 * @throws UnauthorizedAccessException 
 	 */
 	@GetMapping("/id/{id}")
-	public ResponseEntity<Accounts> getById(@PathVariable int id) throws AccountNotFoundException, ProcessingRuntimeException, UserNotFoundException, ProcessingException, UnauthorizedAccessException {
-		SystemUserDTO user = accountsService.getUser(req.getHeader(TOKEN));
-		return new ResponseEntity<>(accountsService.findById(id, user), HttpStatus.OK);			
+	public ResponseEntity<Accounts> getById(@PathVariable int id, @RequestAttribute(AuthenticationInterceptor.USER) SystemUserDTO user) throws AccountNotFoundException, ProcessingRuntimeException, UserNotFoundException, ProcessingException, UnauthorizedAccessException {
+		Accounts account = accountsService.findById(id, user);
+		return ResponseEntity.ok().eTag(eTag(account)).body(account);
 	}
 	
 	/**
@@ -83,13 +163,25 @@ public class AccountsController {
 	 * @throws ProcessingRuntimeException 
 	 */
 	@PostMapping("")
-	public ResponseEntity<Accounts> save(@RequestBody Accounts account) throws TypeNotFoundException, ProcessingRuntimeException
+	public ResponseEntity<Accounts> save(@RequestBody Accounts account, @RequestAttribute(AuthenticationInterceptor.USER) SystemUserDTO user) throws TypeNotFoundException, ProcessingRuntimeException
 		, UserNotFoundException, ProcessingException {
-		SystemUserDTO user = accountsService.getUser(req.getHeader(TOKEN));
 		account.setUserId(user.getId());
 		return ResponseEntity.status(HttpStatus.CREATED).body(accountsService.save(account));			
 	}
 	
+	/**
+	 * Method to handle POST requests to /account/batch. Saves every valid account in the array and 
+	 * returns a result for each item in request order. 
+	 * @param accounts
+	 * @return ResponseEntity<List<BatchResultDTO>>
+	 * @throws BadValueException 
+	 */
+	@PostMapping("/batch")
+	public ResponseEntity<List<BatchResultDTO>> saveBatch(@RequestBody List<Accounts> accounts
+		, @RequestAttribute(AuthenticationInterceptor.USER) SystemUserDTO user) throws BadValueException {
+		return ResponseEntity.ok(accountsBatchService.saveAll(accounts, user));
+	}
+	
 	/**
 	 * Method to handle PUT requests to /account/{id}
 	 * @param id
@@ -102,13 +194,68 @@ public class AccountsController {
 	 * @throws UserNotFoundException 
 	 * @throws ProcessingRuntimeException 
 	 * @throws UnauthorizedAccessException 
+	 * @throws PreconditionFailedException 
 	 */
 	@PutMapping("/{id}")
-	public ResponseEntity<Accounts> update(@PathVariable int id, @RequestBody Accounts accountData) throws NoSuchElementException, AccountNotFoundException
-		, TypeNotFoundException, ProcessingRuntimeException, UserNotFoundException, ProcessingException, UnauthorizedAccessException {
+	public ResponseEntity<Accounts> update(@PathVariable int id, @RequestBody Accounts accountData
+		, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+		, @RequestAttribute(AuthenticationInterceptor.USER) SystemUserDTO user) throws NoSuchElementException, AccountNotFoundException
+		, TypeNotFoundException, ProcessingRuntimeException, UserNotFoundException, ProcessingException, UnauthorizedAccessException
+		, PreconditionFailedException {
 		accountData.setId(id);
-		SystemUserDTO user = accountsService.getUser(req.getHeader(TOKEN));
-		return new ResponseEntity<>(accountsService.update(accountData, user), HttpStatus.OK);			
+		Accounts account = accountsService.update(accountData, user, version(ifMatch));
+		return ResponseEntity.ok().eTag(eTag(account)).body(account);
+	}
+	
+	/**
+	 * Method to handle PATCH requests to /account/{id}. The body is a JSON Merge Patch, members that are 
+	 * present are applied and all others are left unchanged. 
+	 * @param id
+	 * @param patch
+	 * @return ResponseEntity<Object>
+	 * @throws BadValueException 
+	 * @throws TypeNotFoundException 
+	 * @throws AccountNotFoundException 
+	 * @throws UnauthorizedAccessException 
+	 */
+	@PatchMapping(value = "/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+	public ResponseEntity<Object> patch(@PathVariable int id, @RequestBody JsonNode patch
+		, @RequestAttribute(AuthenticationInterceptor.USER) SystemUserDTO user) throws BadValueException, TypeNotFoundException
+		, AccountNotFoundException, UnauthorizedAccessException {
+		accountsService.patch(id, patch, user);
+		return ResponseEntity.status(HttpStatus.NO_CONTENT).body(null);
+	}
+	
+	/**
+	 * Method to handle PATCH requests to /account/batch. Each item is a JSON Merge Patch with the id of 
+	 * the account it applies to, and a result is returned for each item in request order. 
+	 * @param patches
+	 * @return ResponseEntity<List<BatchResultDTO>>
+	 * @throws BadValueException 
+	 */
+	@PatchMapping(value = "/batch", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+	public ResponseEntity<List<BatchResultDTO>> patchBatch(@RequestBody List<JsonNode> patches
+		, @RequestAttribute(AuthenticationInterceptor.USER) SystemUserDTO user) throws BadValueException {
+		return ResponseEntity.ok(accountsBatchService.patchAll(patches, user));
+	}
+	
+	/**
+	 * Method to handle POST requests to /account/{id}/adjust. Adds the signed delta to the account balance 
+	 * and returns the new balance. A request repeated with the same Idempotency-Key is only applied once. 
+	 * @param id
+	 * @param adjustment
+	 * @param idempotencyKey
+	 * @return ResponseEntity<BalanceDTO>
+	 * @throws BadValueException 
+	 * @throws AccountNotFoundException 
+	 * @throws UnauthorizedAccessException 
+	 */
+	@PostMapping("/{id}/adjust")
+	public ResponseEntity<BalanceDTO> adjust(@PathVariable int id, @RequestBody AdjustmentDTO adjustment
+		, @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
+		, @RequestAttribute(AuthenticationInterceptor.USER) SystemUserDTO user) throws BadValueException, AccountNotFoundException
+		, UnauthorizedAccessException {
+		return new ResponseEntity<>(accountAdjustmentService.adjust(id, adjustment.getDelta(), idempotencyKey, user), HttpStatus.OK);
 	}
 	
 	/**
@@ -120,12 +267,59 @@ public class AccountsController {
 	 * @throws UserNotFoundException 
 	 * @throws ProcessingRuntimeException 
 	 * @throws UnauthorizedAccessException 
+	 * @throws PreconditionFailedException 
 	 */
 	@DeleteMapping("/{id}") 
-	public ResponseEntity<Object> delete(@PathVariable int id) throws AccountNotFoundException, ProcessingRuntimeException, UserNotFoundException
-		, ProcessingException, UnauthorizedAccessException {
-		SystemUserDTO user = accountsService.getUser(req.getHeader(TOKEN));
-		accountsService.delete(id, user);
+	public ResponseEntity<Object> delete(@PathVariable int id, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+		, @RequestAttribute(AuthenticationInterceptor.USER) SystemUserDTO user) throws AccountNotFoundException, ProcessingRuntimeException, UserNotFoundException
+		, ProcessingException, UnauthorizedAccessException, PreconditionFailedException {
+		accountsService.delete(id, user, version(ifMatch));
 		return ResponseEntity.status(HttpStatus.NO_CONTENT).body(null);
 	}
+	
+	/**
+	 * Method to handle DELETE requests to /account/batch. The body is an array of account ids, and a 
+	 * result is returned for each id in request order. 
+	 * @param ids
+	 * @return ResponseEntity<List<BatchResultDTO>>
+	 * @throws BadValueException 
+	 */
+	@DeleteMapping("/batch")
+	public ResponseEntity<List<BatchResultDTO>> deleteBatch(@RequestBody List<Integer> ids
+		, @RequestAttribute(AuthenticationInterceptor.USER) SystemUserDTO user) throws BadValueException {
+		return ResponseEntity.ok(accountsBatchService.deleteAll(ids, user));
+	}
+	
+	private static String eTag(Accounts account) {
+		return "\"" + account.getVersion() + "\"";
+	}
+	
+	private static String eTag(List<Accounts> accounts) {
+		StringBuilder versions = new StringBuilder();
+		for (Accounts account : accounts) {
+			versions.append(account.getId()).append('.').append(account.getVersion()).append(',');
+		}
+		return "\"" + DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+	}
+	
+	/**
+	 * Method to read the version from an If-Match header.
+	 * @param ifMatch
+	 * @return Long or null if there is no header or it matches any version
+	 * @throws PreconditionFailedException if the header is not an ETag issued by this controller
+	 */
+	private static Long version(String ifMatch) throws PreconditionFailedException {
+		if (ifMatch == null || ifMatch.trim().equals("*")) {
+			return null;
+		}
+		String tag = ifMatch.trim();
+		if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+			throw new PreconditionFailedException("If-Match must be a strong ETag");
+		}
+		try {
+			return Long.parseLong(tag.substring(1, tag.length() - 1));
+		} catch (NumberFormatException e) {
+			throw new PreconditionFailedException("If-Match does not match the current version");
+		}
+	}
 }
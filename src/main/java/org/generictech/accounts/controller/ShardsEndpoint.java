@@ -0,0 +1,77 @@
+package org.generictech.accounts.controller;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.generictech.accounts.config.ShardDirectory;
+import org.generictech.accounts.config.ShardRing;
+import org.generictech.accounts.config.ShardRoutingDataSource;
+import org.generictech.accounts.service.ShardRebalanceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint for moving users between shards. Like other actuator endpoints it is only reachable
+ * once it is listed in management.endpoints.web.exposure.include, which should only be done on a
+ * management port that users cannot reach.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Component
+@Endpoint(id = "shards")
+@ConditionalOnProperty("accounts.shards.urls")
+public class ShardsEndpoint {
+
+	@Autowired
+	private ShardRoutingDataSource shardRoutingDataSource;
+	@Autowired
+	private ShardDirectory shardDirectory;
+	@Autowired
+	private ShardRebalanceService shardRebalanceService;
+
+	/**
+	 * Method to handle GET requests to /actuator/shards. Lists the shards, the shards new users are placed
+	 * on, and the users that would move if every shard was in the ring.
+	 * @return Map
+	 */
+	@ReadOperation
+	public Map<String, Object> shards() {
+		Map<String, Object> shards = new LinkedHashMap<>();
+		shards.put("shards", shardRoutingDataSource.getShards().keySet());
+		shards.put("ring", shardDirectory.getRing().getShards());
+		shards.put("pending", shardRebalanceService.plan(fullRing()));
+		return shards;
+	}
+
+	/**
+	 * Method to handle POST requests to /actuator/shards. Moves every user to their shard on a ring over
+	 * all shards.
+	 * @return Map of user id to the shard they were moved to
+	 * @throws InterruptedException
+	 */
+	@WriteOperation
+	public Map<Integer, String> rebalance() throws InterruptedException {
+		return shardRebalanceService.rebalance(fullRing());
+	}
+
+	/**
+	 * Method to handle POST requests to /actuator/shards/{userId}. Moves one user to the given shard.
+	 * @param userId
+	 * @param shard
+	 * @throws InterruptedException
+	 */
+	@WriteOperation
+	public void move(@Selector int userId, String shard) throws InterruptedException {
+		shardRebalanceService.move(userId, shard);
+	}
+
+	private ShardRing fullRing() {
+		return shardDirectory.getRing().withShards(new ArrayList<>(shardRoutingDataSource.getShards().keySet()));
+	}
+}
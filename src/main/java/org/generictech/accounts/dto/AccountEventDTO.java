@@ -0,0 +1,61 @@
+package org.generictech.accounts.dto;
+
+/**
+ * DTO class to hold a change to one of a user's accounts, sent to the user's subscribers once the change
+ * has committed. The version is the account's version after the change, or its last version when it was 
+ * deleted. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+
+public class AccountEventDTO {
+
+	public static final String CREATED = "created";
+	public static final String UPDATED = "updated";
+	public static final String DELETED = "deleted";
+	
+	String event;
+	int id;
+	long version;
+	
+	public AccountEventDTO() {
+		super();
+	}
+
+	public AccountEventDTO(String event, int id, long version) {
+		super();
+		this.event = event;
+		this.id = id;
+		this.version = version;
+	}
+
+	public String getEvent() {
+		return event;
+	}
+
+	public void setEvent(String event) {
+		this.event = event;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
+	@Override
+	public String toString() {
+		return "AccountEventDTO [event=" + event + ", id=" + id + ", version=" + version + "]";
+	}
+	
+}
@@ -0,0 +1,65 @@
+package org.generictech.accounts.dto;
+
+import java.util.List;
+
+import org.generictech.accounts.model.MinorUnits;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * DTO class to hold the totals of a user's accounts by type along with the number of accounts and net 
+ * balance over all types. Balances are in minor units. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+
+public class AccountSummaryDTO {
+
+	List<AccountTypeSummaryDTO> types;
+	long accounts;
+	@JsonSerialize(using = MinorUnits.Serializer.class)
+	@JsonDeserialize(using = MinorUnits.Deserializer.class)
+	long balance;
+	
+	public AccountSummaryDTO() {
+		super();
+	}
+
+	public AccountSummaryDTO(List<AccountTypeSummaryDTO> types, long accounts, long balance) {
+		super();
+		this.types = types;
+		this.accounts = accounts;
+		this.balance = balance;
+	}
+
+	public List<AccountTypeSummaryDTO> getTypes() {
+		return types;
+	}
+
+	public void setTypes(List<AccountTypeSummaryDTO> types) {
+		this.types = types;
+	}
+
+	public long getAccounts() {
+		return accounts;
+	}
+
+	public void setAccounts(long accounts) {
+		this.accounts = accounts;
+	}
+
+	public long getBalance() {
+		return balance;
+	}
+
+	public void setBalance(long balance) {
+		this.balance = balance;
+	}
+
+	@Override
+	public String toString() {
+		return "AccountSummaryDTO [types=" + types + ", accounts=" + accounts + ", balance=" + balance + "]";
+	}
+	
+}
@@ -0,0 +1,64 @@
+package org.generictech.accounts.dto;
+
+import org.generictech.accounts.model.AccountType;
+import org.generictech.accounts.model.MinorUnits;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * DTO class to hold the number of accounts a user has of one type and their total balance in minor 
+ * units. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+
+public class AccountTypeSummaryDTO {
+
+	AccountType type;
+	long accounts;
+	@JsonSerialize(using = MinorUnits.Serializer.class)
+	@JsonDeserialize(using = MinorUnits.Deserializer.class)
+	long balance;
+	
+	public AccountTypeSummaryDTO() {
+		super();
+	}
+
+	public AccountTypeSummaryDTO(AccountType type, long accounts, long balance) {
+		super();
+		this.type = type;
+		this.accounts = accounts;
+		this.balance = balance;
+	}
+
+	public AccountType getType() {
+		return type;
+	}
+
+	public void setType(AccountType type) {
+		this.type = type;
+	}
+
+	public long getAccounts() {
+		return accounts;
+	}
+
+	public void setAccounts(long accounts) {
+		this.accounts = accounts;
+	}
+
+	public long getBalance() {
+		return balance;
+	}
+
+	public void setBalance(long balance) {
+		this.balance = balance;
+	}
+
+	@Override
+	public String toString() {
+		return "AccountTypeSummaryDTO [type=" + type + ", accounts=" + accounts + ", balance=" + balance + "]";
+	}
+	
+}
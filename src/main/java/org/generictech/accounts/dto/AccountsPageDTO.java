@@ -0,0 +1,52 @@
+package org.generictech.accounts.dto;
+
+import java.util.List;
+
+import org.generictech.accounts.model.Accounts;
+
+/**
+ * DTO class to hold one page of a user's accounts along with the cursor for the next page. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+
+public class AccountsPageDTO {
+
+	List<Accounts> accounts;
+	String next;
+	
+	public AccountsPageDTO() {
+		super();
+	}
+
+	public AccountsPageDTO(List<Accounts> accounts, String next) {
+		super();
+		this.accounts = accounts;
+		this.next = next;
+	}
+
+	public List<Accounts> getAccounts() {
+		return accounts;
+	}
+
+	public void setAccounts(List<Accounts> accounts) {
+		this.accounts = accounts;
+	}
+
+	/**
+	 * @return String cursor to pass as after to get the next page, or null if this is the last page
+	 */
+	public String getNext() {
+		return next;
+	}
+
+	public void setNext(String next) {
+		this.next = next;
+	}
+
+	@Override
+	public String toString() {
+		return "AccountsPageDTO [accounts=" + accounts + ", next=" + next + "]";
+	}
+	
+}
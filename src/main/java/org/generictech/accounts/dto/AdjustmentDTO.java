@@ -0,0 +1,42 @@
+package org.generictech.accounts.dto;
+
+import org.generictech.accounts.model.MinorUnits;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * DTO class to hold a signed amount to add to an account balance, in minor units. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+
+public class AdjustmentDTO {
+
+	@JsonSerialize(using = MinorUnits.Serializer.class)
+	@JsonDeserialize(using = MinorUnits.Deserializer.class)
+	long delta;
+	
+	public AdjustmentDTO() {
+		super();
+	}
+
+	public AdjustmentDTO(long delta) {
+		super();
+		this.delta = delta;
+	}
+
+	public long getDelta() {
+		return delta;
+	}
+
+	public void setDelta(long delta) {
+		this.delta = delta;
+	}
+
+	@Override
+	public String toString() {
+		return "AdjustmentDTO [delta=" + delta + "]";
+	}
+	
+}
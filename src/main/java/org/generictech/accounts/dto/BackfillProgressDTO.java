@@ -0,0 +1,107 @@
+package org.generictech.accounts.dto;
+
+/**
+ * DTO class to hold the progress of a backfill on one shard. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+
+public class BackfillProgressDTO {
+
+	String name;
+	String shard;
+	int lastId;
+	int maxId;
+	long rowsUpdated;
+	long rowsPerSecond;
+	long lag;
+	boolean complete;
+	
+	public BackfillProgressDTO() {
+		super();
+	}
+
+	public BackfillProgressDTO(String name, String shard, int lastId, int maxId, long rowsUpdated, long rowsPerSecond
+			, long lag, boolean complete) {
+		super();
+		this.name = name;
+		this.shard = shard;
+		this.lastId = lastId;
+		this.maxId = maxId;
+		this.rowsUpdated = rowsUpdated;
+		this.rowsPerSecond = rowsPerSecond;
+		this.lag = lag;
+		this.complete = complete;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getShard() {
+		return shard;
+	}
+
+	public void setShard(String shard) {
+		this.shard = shard;
+	}
+
+	public int getLastId() {
+		return lastId;
+	}
+
+	public void setLastId(int lastId) {
+		this.lastId = lastId;
+	}
+
+	public int getMaxId() {
+		return maxId;
+	}
+
+	public void setMaxId(int maxId) {
+		this.maxId = maxId;
+	}
+
+	public long getRowsUpdated() {
+		return rowsUpdated;
+	}
+
+	public void setRowsUpdated(long rowsUpdated) {
+		this.rowsUpdated = rowsUpdated;
+	}
+
+	public long getRowsPerSecond() {
+		return rowsPerSecond;
+	}
+
+	public void setRowsPerSecond(long rowsPerSecond) {
+		this.rowsPerSecond = rowsPerSecond;
+	}
+
+	public long getLag() {
+		return lag;
+	}
+
+	public void setLag(long lag) {
+		this.lag = lag;
+	}
+
+	public boolean isComplete() {
+		return complete;
+	}
+
+	public void setComplete(boolean complete) {
+		this.complete = complete;
+	}
+
+	@Override
+	public String toString() {
+		return "BackfillProgressDTO [name=" + name + ", shard=" + shard + ", lastId=" + lastId + ", maxId=" + maxId + ", rowsUpdated=" 
+				+ rowsUpdated + ", rowsPerSecond=" + rowsPerSecond + ", lag=" + lag + ", complete=" + complete + "]";
+	}
+	
+}
@@ -0,0 +1,52 @@
+package org.generictech.accounts.dto;
+
+import org.generictech.accounts.model.MinorUnits;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * DTO class to hold the balance of an account after an adjustment, in minor units. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+
+public class BalanceDTO {
+
+	int id;
+	@JsonSerialize(using = MinorUnits.Serializer.class)
+	@JsonDeserialize(using = MinorUnits.Deserializer.class)
+	long balance;
+	
+	public BalanceDTO() {
+		super();
+	}
+
+	public BalanceDTO(int id, long balance) {
+		super();
+		this.id = id;
+		this.balance = balance;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public long getBalance() {
+		return balance;
+	}
+
+	public void setBalance(long balance) {
+		this.balance = balance;
+	}
+
+	@Override
+	public String toString() {
+		return "BalanceDTO [id=" + id + ", balance=" + balance + "]";
+	}
+	
+}
@@ -0,0 +1,68 @@
+package org.generictech.accounts.dto;
+
+import org.generictech.accounts.model.Accounts;
+
+/**
+ * DTO class to hold the outcome of one item in a batch request. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+
+public class BatchResultDTO {
+
+	int index;
+	int status;
+	Accounts account;
+	String message;
+	
+	public BatchResultDTO() {
+		super();
+	}
+
+	public BatchResultDTO(int index, int status, Accounts account, String message) {
+		super();
+		this.index = index;
+		this.status = status;
+		this.account = account;
+		this.message = message;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public void setIndex(int index) {
+		this.index = index;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public void setStatus(int status) {
+		this.status = status;
+	}
+
+	public Accounts getAccount() {
+		return account;
+	}
+
+	public void setAccount(Accounts account) {
+		this.account = account;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchResultDTO [index=" + index + ", status=" + status + ", account=" + account + ", message="
+				+ message + "]";
+	}
+	
+}
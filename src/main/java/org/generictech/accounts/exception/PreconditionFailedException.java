@@ -0,0 +1,18 @@
+package org.generictech.accounts.exception;
+/**
+ * Exception class for conditional requests whose If-Match does not match the current version
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@SuppressWarnings("serial")
+public class PreconditionFailedException extends Exception {
+
+	public PreconditionFailedException() {
+		super("Precondition failed");
+	}
+
+	public PreconditionFailedException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,18 @@
+package org.generictech.accounts.exception;
+/**
+ * Exception class for when a service this service depends on is unavailable
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@SuppressWarnings("serial")
+public class ServiceUnavailableException extends RuntimeException {
+
+	public ServiceUnavailableException() {
+		super("Service unavailable");
+	}
+
+	public ServiceUnavailableException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,107 @@
+package org.generictech.accounts.migration;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Class to create indexes and foreign keys from Java migrations without blocking writes on PostgreSQL, 
+ * where indexes are built concurrently and foreign keys are validated after they are added. Migrations
+ * using it cannot run in a transaction. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Slf4j
+final class Indexes {
+
+	private Indexes() {
+	}
+
+	/**
+	 * Method to create an index unless the table already has one on the same leading columns. A unique
+	 * index is only matched by a unique index on exactly those columns.
+	 */
+	static void create(Connection connection, String name, String table, boolean unique, String... columns)
+			throws SQLException {
+		if (exists(connection, table, unique, Arrays.asList(columns))) {
+			return;
+		}
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("create " + (unique ? "unique " : "") + "index " + (isPostgres(connection) ? "concurrently " : "")
+					+ name + " on " + table + " (" + String.join(", ", columns) + ")");
+		}
+		log.info("Created index " + name);
+	}
+
+	/**
+	 * Method to add a foreign key from a column unless the column already has one. On PostgreSQL existing
+	 * rows are checked after the key is added, which only blocks changes to the table's schema.
+	 */
+	static void createForeignKey(Connection connection, String name, String table, String column
+			, String referencedTable, String referencedColumn) throws SQLException {
+		if (hasForeignKey(connection, table, column)) {
+			return;
+		}
+		boolean postgres = isPostgres(connection);
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("alter table " + table + " add constraint " + name + " foreign key (" + column
+					+ ") references " + referencedTable + " (" + referencedColumn + ")" + (postgres ? " not valid" : ""));
+			if (postgres) {
+				statement.execute("alter table " + table + " validate constraint " + name);
+			}
+		}
+		log.info("Created foreign key " + name);
+	}
+
+	private static boolean exists(Connection connection, String table, boolean unique, List<String> columns)
+			throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		Map<String, List<String>> indexes = new LinkedHashMap<>();
+		try (ResultSet info = metaData.getIndexInfo(null, null, tableName(metaData, table), unique, false)) {
+			while (info.next()) {
+				if (info.getString("COLUMN_NAME") != null) {
+					// rows are ordered by index name and then by the column's position in the index
+					indexes.computeIfAbsent(info.getString("INDEX_NAME"), index -> new ArrayList<>())
+							.add(info.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+				}
+			}
+		}
+		for (List<String> indexColumns : indexes.values()) {
+			if (unique ? indexColumns.equals(columns)
+					: indexColumns.size() >= columns.size() && indexColumns.subList(0, columns.size()).equals(columns)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean hasForeignKey(Connection connection, String table, String column) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		try (ResultSet keys = metaData.getImportedKeys(null, null, tableName(metaData, table))) {
+			while (keys.next()) {
+				if (keys.getString("FKCOLUMN_NAME").equalsIgnoreCase(column)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static String tableName(DatabaseMetaData metaData, String table) throws SQLException {
+		return metaData.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT) : table;
+	}
+
+	private static boolean isPostgres(Connection connection) throws SQLException {
+		return connection.getMetaData().getDatabaseProductName().equals("PostgreSQL");
+	}
+}
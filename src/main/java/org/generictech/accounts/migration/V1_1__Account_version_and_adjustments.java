@@ -0,0 +1,41 @@
+package org.generictech.accounts.migration;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Migration to add what the application relied on before migrations were added but the baseline schema
+ * does not have: the version column of accounts used for optimistic locking, starting at 0 for existing
+ * rows, the account_adjustment table with its unique idempotency key and its index on created_at, and the
+ * index of accounts by user and id.
+ * <p>
+ * On PostgreSQL the accounts index is built concurrently so the accounts table stays writable, which 
+ * means this migration cannot run in a transaction.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+public class V1_1__Account_version_and_adjustments extends BaseJavaMigration {
+
+	@Override
+	public boolean canExecuteInTransaction() {
+		return false;
+	}
+
+	@Override
+	public void migrate(Context context) throws Exception {
+		Connection connection = context.getConnection();
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("alter table accounts add column if not exists version bigint default 0 not null");
+			statement.execute("create table if not exists account_adjustment (adjustment_id serial not null"
+					+ ", system_user_id integer not null, idempotency_key varchar(64) not null, account_id integer not null"
+					+ ", delta double precision not null, balance double precision not null, created_at timestamp not null"
+					+ ", constraint account_adjustment_pkey primary key (adjustment_id)"
+					+ ", constraint uk_account_adjustment_user_key unique (system_user_id, idempotency_key))");
+		}
+		Indexes.create(connection, "idx_account_adjustment_created", "account_adjustment", false, "created_at");
+		Indexes.create(connection, "idx_accounts_user_account", "accounts", false, "system_user_id", "account_id");
+	}
+}
@@ -0,0 +1,44 @@
+package org.generictech.accounts.migration;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.generictech.accounts.model.PooledSequenceGenerator;
+
+/**
+ * Migration to create the sequences used by {@link PooledSequenceGenerator} for account and account 
+ * type ids. Each sequence starts after the highest id already in its table and increments by the 
+ * id-allocation-size placeholder, which must match accounts.id.allocation-size. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+public class V2__Account_id_sequences extends BaseJavaMigration {
+
+	static final String ALLOCATION_SIZE_PLACEHOLDER = "id-allocation-size";
+	
+	@Override
+	public void migrate(Context context) throws Exception {
+		String placeholder = context.getConfiguration().getPlaceholders().get(ALLOCATION_SIZE_PLACEHOLDER);
+		int allocationSize = placeholder == null ? PooledSequenceGenerator.DEFAULT_ALLOCATION_SIZE 
+				: Integer.parseInt(placeholder);
+		Connection connection = context.getConnection();
+		createSequence(connection, "account_type_seq", "account_type", "account_type_id", allocationSize);
+		createSequence(connection, "accounts_seq", "accounts", "account_id", allocationSize);
+	}
+	
+	private static void createSequence(Connection connection, String sequence, String table, String idColumn
+			, int allocationSize) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			long start;
+			try (ResultSet max = statement.executeQuery("select coalesce(max(" + idColumn + "), 0) + 1 from " + table)) {
+				max.next();
+				start = max.getLong(1);
+			}
+			statement.execute("create sequence " + sequence + " start with " + start + " increment by " + allocationSize);
+		}
+	}
+}
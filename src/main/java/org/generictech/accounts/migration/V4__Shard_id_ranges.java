@@ -0,0 +1,47 @@
+package org.generictech.accounts.migration;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Migration to give each shard its own range of account ids so accounts can be moved between shards 
+ * without their ids clashing. The shard-index placeholder is set for each shard when sharding is 
+ * configured, and shard n generates ids from n * SHARD_ID_RANGE + 1. Without sharding, or on the first 
+ * shard, the sequence is left as it is. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+public class V4__Shard_id_ranges extends BaseJavaMigration {
+
+	public static final String SHARD_INDEX_PLACEHOLDER = "shard-index";
+	static final long SHARD_ID_RANGE = 1L << 27;
+	
+	@Override
+	public void migrate(Context context) throws Exception {
+		String placeholder = context.getConfiguration().getPlaceholders().get(SHARD_INDEX_PLACEHOLDER);
+		int index = placeholder == null ? 0 : Integer.parseInt(placeholder);
+		if (index == 0) {
+			return;
+		}
+		long start = index * SHARD_ID_RANGE + 1;
+		if (start + SHARD_ID_RANGE - 1 > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Account ids only have room for " + (Integer.MAX_VALUE / SHARD_ID_RANGE) 
+					+ " shards");
+		}
+		Connection connection = context.getConnection();
+		try (Statement statement = connection.createStatement()) {
+			try (ResultSet max = statement.executeQuery("select coalesce(max(account_id), 0) from accounts")) {
+				max.next();
+				if (max.getLong(1) >= start) {
+					// the shard already holds ids in its range, keep generating after them
+					return;
+				}
+			}
+			statement.execute("alter sequence accounts_seq restart with " + start);
+		}
+	}
+}
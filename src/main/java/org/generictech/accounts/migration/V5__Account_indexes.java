@@ -0,0 +1,33 @@
+package org.generictech.accounts.migration;
+
+import java.sql.Connection;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Migration to add the indexes the account queries rely on besides the index of accounts by user and id
+ * added by {@link V1_1__Account_version_and_adjustments}: accounts by type for the foreign key, and a
+ * unique index on the type name. Databases created by Hibernate before migrations were added already have
+ * the unique constraint on the type name under another name, so an index is only created when no index on
+ * the same leading columns exists.
+ * <p>
+ * On PostgreSQL the indexes are built concurrently so the accounts table stays writable while they are
+ * built, which means this migration cannot run in a transaction.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+public class V5__Account_indexes extends BaseJavaMigration {
+
+	@Override
+	public boolean canExecuteInTransaction() {
+		return false;
+	}
+
+	@Override
+	public void migrate(Context context) throws Exception {
+		Connection connection = context.getConnection();
+		Indexes.create(connection, "idx_accounts_account_type", "accounts", false, "acount_type_id");
+		Indexes.create(connection, "uk_account_type_type", "account_type", true, "type");
+	}
+}
@@ -0,0 +1,32 @@
+package org.generictech.accounts.migration;
+
+import java.sql.Connection;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Migration to index account_type_id and make it reference account_type, as acount_type_id does, before
+ * accounts.migration.type-column.read-new joins the account type on it. Rows whose account_type_id has 
+ * not been backfilled yet are null and pass the foreign key.
+ * <p>
+ * On PostgreSQL the index is built concurrently and the foreign key is validated after it is added, so 
+ * the accounts table stays writable, which means this migration cannot run in a transaction.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+public class V9__Account_type_id_index extends BaseJavaMigration {
+
+	@Override
+	public boolean canExecuteInTransaction() {
+		return false;
+	}
+
+	@Override
+	public void migrate(Context context) throws Exception {
+		Connection connection = context.getConnection();
+		Indexes.create(connection, "idx_accounts_account_type_id", "accounts", false, "account_type_id");
+		Indexes.createForeignKey(connection, "fk_accounts_account_type_id", "accounts", "account_type_id"
+				, "account_type", "account_type_id");
+	}
+}
@@ -0,0 +1,144 @@
+package org.generictech.accounts.model;
+
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PrePersist;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.NotNull;
+
+import org.hibernate.annotations.ColumnTransformer;
+
+/**
+ * This class is to model the account_adjustment table in the database. A row is kept for each balance 
+ * adjustment made with an idempotency key so that a retried request returns the original result. 
+ * Amounts are held in minor units, and are copied to the decimal delta and balance columns while those
+ * are replaced by delta_minor and balance_minor. They are read from the decimal columns until 
+ * accounts.migration.minor-units.read-new switches reads to the minor unit columns.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Entity
+@Table(name = "account_adjustment"
+	, uniqueConstraints = @UniqueConstraint(name = "uk_account_adjustment_user_key", columnNames = {"system_user_id", "idempotency_key"})
+	, indexes = @Index(name = "idx_account_adjustment_created", columnList = "created_at"))
+public class AccountAdjustment {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "adjustment_id")
+	int id;
+	@Column(name = "system_user_id")
+	@NotNull
+	int userId;
+	@Column(name = "idempotency_key", length = 64)
+	@NotNull
+	String idempotencyKey;
+	@Column(name = "account_id")
+	@NotNull
+	int accountId;
+	@Column(name = "delta_minor")
+	@ColumnTransformer(read = "round(delta * 100)")
+	@NotNull
+	long delta;
+	@Column(name = "balance_minor")
+	@ColumnTransformer(read = "round(balance * 100)")
+	@NotNull
+	long balance;
+	@Column(name = "delta")
+	Double deltaCopy;
+	@Column(name = "balance")
+	Double balanceCopy;
+	@Column(name = "created_at")
+	@NotNull
+	Instant createdAt;
+	
+	public AccountAdjustment() {
+		super();
+	}
+
+	public AccountAdjustment(int userId, String idempotencyKey, int accountId, long delta, long balance, Instant createdAt) {
+		super();
+		this.userId = userId;
+		this.idempotencyKey = idempotencyKey;
+		this.accountId = accountId;
+		this.delta = delta;
+		this.balance = balance;
+		this.createdAt = createdAt;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public int getUserId() {
+		return userId;
+	}
+
+	public void setUserId(int userId) {
+		this.userId = userId;
+	}
+
+	public String getIdempotencyKey() {
+		return idempotencyKey;
+	}
+
+	public void setIdempotencyKey(String idempotencyKey) {
+		this.idempotencyKey = idempotencyKey;
+	}
+
+	public int getAccountId() {
+		return accountId;
+	}
+
+	public void setAccountId(int accountId) {
+		this.accountId = accountId;
+	}
+
+	public long getDelta() {
+		return delta;
+	}
+
+	public void setDelta(long delta) {
+		this.delta = delta;
+	}
+
+	public long getBalance() {
+		return balance;
+	}
+
+	public void setBalance(long balance) {
+		this.balance = balance;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Instant createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	@PrePersist
+	void copyColumns() {
+		deltaCopy = MinorUnits.toDouble(delta);
+		balanceCopy = MinorUnits.toDouble(balance);
+	}
+
+	@Override
+	public String toString() {
+		return "AccountAdjustment [id=" + id + ", userId=" + userId + ", idempotencyKey=" + idempotencyKey
+				+ ", accountId=" + accountId + ", delta=" + delta + ", balance=" + balance + ", createdAt=" + createdAt + "]";
+	}
+	
+}
@@ -1,13 +1,22 @@
 package org.generictech.accounts.model;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.NotNull;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
 /**
  * This class is to model the Account_types table of the database.
  * @author Jaden Wilson
@@ -15,14 +24,18 @@ import javax.validation.constraints.NotNull;
  *
  */
 @Entity
-@Table(name="account_type")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "account-type")
+@Table(name="account_type", uniqueConstraints = @UniqueConstraint(name = "uk_account_type_type", columnNames = "type"))
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class AccountType {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(generator = "account_type_seq")
+	@GenericGenerator(name = "account_type_seq", strategy = "org.generictech.accounts.model.PooledSequenceGenerator"
+		, parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "account_type_seq"))
 	@Column(name="account_type_id")
 	int id;
-	@Column(unique = true)
 	@NotNull
 	String type;
 	
@@ -1,43 +1,112 @@
 package org.generictech.accounts.model;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnTransformer;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
 
 /**
- * This class is to model the Accounts table in the database. 
+ * This class is to model the Accounts table in the database. When accounts.jpa.cache.enabled is set
+ * accounts are kept in a second-level cache local to the instance, which only stays current while a
+ * single instance writes to the database.
  * @author Jaden Wilson
  * @since 1.0
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "accounts")
+@Table(indexes = {@Index(name = "idx_accounts_user_account", columnList = "system_user_id, account_id")
+	, @Index(name = "idx_accounts_account_type", columnList = "acount_type_id")
+	, @Index(name = "idx_accounts_account_type_id", columnList = Accounts.TYPE_ID_COPY)})
 public class Accounts {
 
+	/**
+	 * Attribute holding the copy of the type id while acount_type_id is renamed to account_type_id. 
+	 */
+	public static final String TYPE_ID_COPY = "accountTypeId";
+	/**
+	 * Attribute holding the copy of the balance while balance is replaced by balance_minor. 
+	 */
+	public static final String BALANCE_COPY = "balanceCopy";
+	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(generator = "accounts_seq")
+	@GenericGenerator(name = "accounts_seq", strategy = "org.generictech.accounts.model.PooledSequenceGenerator"
+		, parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "accounts_seq"))
 	@Column(name = "account_id")
 	int id;
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name="acount_type_id")
 	@NotNull
 	AccountType type;
 	String description;
+	/**
+	 * Balance in minor units, written to and read from JSON as a decimal amount. Until instances that only
+	 * write the decimal balance column are gone and balance_minor is backfilled, it is read from that column,
+	 * and from balance_minor once accounts.migration.minor-units.read-new is set.
+	 */
+	@Column(name = "balance_minor")
+	@ColumnTransformer(read = "round(balance * 100)")
 	@NotNull
-	double balance;
+	@JsonSerialize(using = MinorUnits.Serializer.class)
+	@JsonDeserialize(using = MinorUnits.Deserializer.class)
+	long balance;
 	@Column(name="system_user_id")
 	@NotNull
 	int userId;
+	@Version
+	@Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+	@JsonIgnore
+	long version;
+	/**
+	 * Copy of the type id. The column name is left to the naming strategy, which maps it to 
+	 * account_type_id, or to acount_type_id once reads are switched to account_type_id.
+	 */
+	@JsonIgnore
+	Integer accountTypeId;
+	/**
+	 * Copy of the balance as a decimal amount, written to the balance column for instances that still 
+	 * read it.
+	 */
+	@Column(name = "balance")
+	@JsonIgnore
+	Double balanceCopy;
+	/**
+	 * Whether a balance was set after the account was created, so an update can tell a balance of 0 
+	 * from no balance. 
+	 */
+	@Transient
+	@JsonIgnore
+	boolean balanceSet;
 	
 	public Accounts() {
 		super();
 	}
 
-	public Accounts(int id, @NotNull AccountType type, String description, @NotNull double balance, @NotNull int userId) {
+	public Accounts(int id, @NotNull AccountType type, String description, @NotNull long balance, @NotNull int userId) {
 		super();
 		this.id = id;
 		this.type = type;
@@ -70,14 +139,19 @@ public class Accounts {
 		this.description = description;
 	}
 	
-	public void setBalance(double balance) {
+	public void setBalance(long balance) {
 		this.balance = balance;
+		this.balanceSet = true;
 	}
 	
-	public double getBalance() {
+	public long getBalance() {
 		return this.balance;
 	}
 
+	public boolean isBalanceSet() {
+		return balanceSet;
+	}
+
 	public int getUserId() {
 		return userId;
 	}
@@ -86,6 +160,21 @@ public class Accounts {
 		this.userId = userId;
 	}
 
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
+	@PrePersist
+	@PreUpdate
+	void copyColumns() {
+		accountTypeId = type == null ? null : type.getId();
+		balanceCopy = MinorUnits.toDouble(balance);
+	}
+
 	@Override
 	public String toString() {
 		return "Accounts [id=" + id + ", type=" + type + ", description=" + description + ", userId=" + userId + "]";
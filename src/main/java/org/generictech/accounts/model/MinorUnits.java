@@ -0,0 +1,98 @@
+package org.generictech.accounts.model;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Class to convert amounts of money between the decimal numbers used in requests and responses and the
+ * whole number of minor units, such as cents, that amounts are stored and computed in. Amounts with more
+ * than SCALE decimal places are refused rather than rounded. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+public final class MinorUnits {
+
+	public static final int SCALE = 2;
+	
+	private MinorUnits() {
+	}
+	
+	/**
+	 * Method to convert a decimal amount to minor units.
+	 * @param amount
+	 * @return long
+	 * @throws ArithmeticException if the amount has more than SCALE decimal places or does not fit in a long
+	 */
+	public static long fromDecimal(BigDecimal amount) {
+		return amount.movePointRight(SCALE).longValueExact();
+	}
+	
+	/**
+	 * Method to convert minor units to a decimal amount with SCALE decimal places.
+	 * @param minorUnits
+	 * @return BigDecimal
+	 */
+	public static BigDecimal toDecimal(long minorUnits) {
+		return BigDecimal.valueOf(minorUnits, SCALE);
+	}
+	
+	/**
+	 * Method to convert minor units to the double amount still written to the decimal columns they are 
+	 * replacing.
+	 * @param minorUnits
+	 * @return double
+	 */
+	public static double toDouble(long minorUnits) {
+		return toDecimal(minorUnits).doubleValue();
+	}
+	
+	/**
+	 * Serializer to write an amount held in minor units as a decimal number.
+	 */
+	public static final class Serializer extends StdSerializer<Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		public Serializer() {
+			super(Long.class);
+		}
+
+		@Override
+		public void serialize(Long value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+			gen.writeNumber(toDecimal(value));
+		}
+	}
+	
+	/**
+	 * Deserializer to read a decimal number into an amount held in minor units.
+	 */
+	public static final class Deserializer extends StdDeserializer<Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		public Deserializer() {
+			super(Long.class);
+		}
+
+		@Override
+		public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+			if (!p.currentToken().isNumeric()) {
+				return (Long) ctxt.handleUnexpectedToken(Long.class, p);
+			}
+			try {
+				return fromDecimal(p.getDecimalValue());
+			} catch (ArithmeticException e) {
+				throw InvalidFormatException.from(p, "Amount must have at most " + SCALE + " decimal places"
+						, p.getText(), Long.class);
+			}
+		}
+	}
+}
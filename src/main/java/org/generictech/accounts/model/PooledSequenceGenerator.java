@@ -0,0 +1,34 @@
+package org.generictech.accounts.model;
+
+import java.util.Map;
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * Sequence id generator using the pooled-lo optimizer. Each call to the sequence reserves a block of 
+ * accounts.id.allocation_size ids that are handed out in memory, so bulk inserts need one database call 
+ * per block and can be sent as JDBC batches. The sequence must be created with the same increment. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+	public static final String ALLOCATION_SIZE = "accounts.id.allocation_size";
+	public static final int DEFAULT_ALLOCATION_SIZE = 50;
+	
+	@Override
+	public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+		Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+		params.setProperty(INCREMENT_PARAM, Integer.toString(
+				ConfigurationHelper.getInt(ALLOCATION_SIZE, settings, DEFAULT_ALLOCATION_SIZE)));
+		params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+		super.configure(type, params, serviceRegistry);
+	}
+}
@@ -0,0 +1,33 @@
+package org.generictech.accounts.repo;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.generictech.accounts.model.AccountAdjustment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * This interface is for database interactions with the account_adjustment table.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Repository
+public interface AccountAdjustmentRepo extends JpaRepository<AccountAdjustment, Integer> {
+
+	public Optional<AccountAdjustment> findByUserIdAndIdempotencyKey(int userId, String idempotencyKey);
+	
+	/**
+	 * Method to remove adjustments recorded before the given time in a single statement.
+	 * @param before
+	 * @return int number of rows removed
+	 */
+	@Modifying
+	@Transactional
+	@Query("delete from AccountAdjustment a where a.createdAt < :before")
+	public int deleteCreatedBefore(@Param("before") Instant before);
+}
@@ -1,21 +1,119 @@
 package org.generictech.accounts.repo;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 
 import org.generictech.accounts.model.Accounts;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
  * This interface is for database interactions with the accounts table. 
- * It extends the JpaRepository interface to allow these database interactions 
+ * It extends the JpaRepository interface to allow these database interactions. Queries that return 
+ * accounts to clients fetch the account type in the same statement. 
  * @author Jaden Wilson
  * @since 1.0
  *
  */
 @Repository
-public interface AccountsRepo extends JpaRepository<Accounts, Integer>{
+public interface AccountsRepo extends JpaRepository<Accounts, Integer>, AccountsRepoCustom {
+
+	public static final String STREAM_FETCH_SIZE = "500";
+	
 
+	@Override
+	@EntityGraph(attributePaths = "type")
+	public List<Accounts> findAll();
+	
+	@Override
+	@EntityGraph(attributePaths = "type")
+	public Optional<Accounts> findById(Integer id);
+	
+	/**
+	 * Method to find all accounts of a user. The result is held in the query cache when it is enabled, and 
+	 * is dropped whenever the accounts table changes. 
+	 * @param id
+	 * @return Optional<List<Accounts>>
+	 */
+	@EntityGraph(attributePaths = "type")
+	@QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
 	public Optional<List<Accounts>> findByUserId(int id);
+	
+	/**
+	 * Method to find the next page of a user's accounts ordered by id. Seeking past the last id seen 
+	 * keeps deep pages as cheap as the first one. 
+	 * @param userId
+	 * @param after id of the last account on the previous page
+	 * @param pageable size of the page
+	 * @return List<Accounts>
+	 */
+	@EntityGraph(attributePaths = "type")
+	public List<Accounts> findByUserIdAndIdGreaterThanOrderByIdAsc(int userId, int after, Pageable pageable);
+	
+	/**
+	 * Method to stream the accounts of a user ordered by id. Rows are fetched from the database 
+	 * STREAM_FETCH_SIZE at a time, the stream must be consumed and closed inside a transaction. 
+	 * @param userId
+	 * @return Stream<Accounts>
+	 */
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+	@Query("select a from Accounts a join fetch a.type where a.userId = :userId order by a.id")
+	public Stream<Accounts> streamByUserId(@Param("userId") int userId);
+	
+	/**
+	 * Method to read what an adjustment left on an account in one statement. 
+	 * @param id
+	 * @return AdjustedAccount with the balance, type id and version of the account
+	 */
+	@Query("select a.balance as balance, a.type.id as typeId, a.version as version from Accounts a where a.id = :id")
+	public AdjustedAccount findAdjustedById(@Param("id") int id);
+	
+	@Query("select a.version from Accounts a where a.id = :id")
+	public long findVersionById(@Param("id") int id);
+	
+	/**
+	 * Method to find an account of a user and lock it until the end of the transaction, so its type and 
+	 * balance cannot change before the transaction's own update. Must be called inside a transaction. 
+	 * @param id
+	 * @param userId
+	 * @return Optional<Accounts> empty if the account does not exist or belongs to another user
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select a from Accounts a where a.id = :id and a.userId = :userId")
+	public Optional<Accounts> findOwnedForUpdate(@Param("id") int id, @Param("userId") int userId);
+	
+	/**
+	 * Method to count and total the accounts of each user in a range by type.
+	 * @param from first user id
+	 * @param to last user id
+	 * @return List<Object[]> of user id, type id, number of accounts and total balance
+	 */
+	@Query("select a.userId, a.type.id, count(a), sum(a.balance) from Accounts a where a.userId between :from and :to"
+			+ " group by a.userId, a.type.id")
+	public List<Object[]> summarizeByUserIds(@Param("from") int from, @Param("to") int to);
+	
+	/**
+	 * Projection of the columns an adjustment reads back from the row it updated.
+	 */
+	public interface AdjustedAccount {
+		
+		long getBalance();
+		
+		int getTypeId();
+		
+		long getVersion();
+	}
 }
@@ -0,0 +1,35 @@
+package org.generictech.accounts.repo;
+
+import java.util.Map;
+
+/**
+ * This interface is for hand written database interactions with the accounts table that cannot be 
+ * expressed as derived queries. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+public interface AccountsRepoCustom {
+
+	/**
+	 * Method to update the given attributes of an account in a single statement, provided the account 
+	 * belongs to the user. 
+	 * @param id account id
+	 * @param userId id of the user that must own the account
+	 * @param changes map of Accounts attribute name to new value
+	 * @return int number of rows updated, 0 if the account does not exist or belongs to another user
+	 */
+	public int updateOwned(int id, int userId, Map<String, Object> changes);
+	
+	/**
+	 * Method to add a signed amount in minor units to the balance of an account in the database, provided 
+	 * the account belongs to the user. Must be called inside a transaction. The new balance is computed
+	 * in minor units from balance_minor once accounts.migration.minor-units.read-new is set, falling back
+	 * to the decimal balance for rows not backfilled yet, and from the decimal balance before, and is 
+	 * written to both balance columns.
+	 * @param id
+	 * @param userId
+	 * @param delta
+	 * @return int number of rows updated, 0 if the account does not exist or belongs to another user
+	 */
+	public int adjustBalance(int id, int userId, long delta);
+}
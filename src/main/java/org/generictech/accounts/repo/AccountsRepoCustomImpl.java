@@ -0,0 +1,62 @@
+package org.generictech.accounts.repo;
+
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Implementation of {@link AccountsRepoCustom}. Attribute names are written into the query so callers 
+ * must only pass names of Accounts attributes, never values taken from a request. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+public class AccountsRepoCustomImpl implements AccountsRepoCustom {
+
+	@PersistenceContext
+	private EntityManager em;
+	@Value("${accounts.migration.minor-units.read-new:false}")
+	private boolean readMinorUnits;
+	
+	@Override
+	@Transactional
+	public int updateOwned(int id, int userId, Map<String, Object> changes) {
+		if (changes.isEmpty()) {
+			throw new IllegalArgumentException("No attributes to update");
+		}
+		StringBuilder jpql = new StringBuilder("update Accounts a set ");
+		String separator = "";
+		for (String attribute : changes.keySet()) {
+			jpql.append(separator).append("a.").append(attribute).append(" = :").append(attribute);
+			separator = ", ";
+		}
+		// bulk updates bypass the entity so the version has to be bumped here
+		jpql.append(", a.version = a.version + 1 where a.id = :id and a.userId = :userId");
+		
+		Query query = em.createQuery(jpql.toString());
+		for (Map.Entry<String, Object> change : changes.entrySet()) {
+			query.setParameter(change.getKey(), change.getValue());
+		}
+		return query.setParameter("id", id)
+				.setParameter("userId", userId)
+				.executeUpdate();
+	}
+	
+	@Override
+	public int adjustBalance(int id, int userId, long delta) {
+		// bulk updates do not apply the balance's read expression, so the column to compute from is chosen here
+		String balance = readMinorUnits ? "coalesce(a.balance, cast(round(a.balanceCopy * 100) as long))" 
+				: "cast(round(a.balanceCopy * 100) as long)";
+		return em.createQuery("update Accounts a set a.balance = " + balance + " + cast(:delta as long)"
+				+ ", a.balanceCopy = (" + balance + " + cast(:delta as long)) / 100.0"
+				+ ", a.version = a.version + 1 where a.id = :id and a.userId = :userId")
+				.setParameter("delta", delta)
+				.setParameter("id", id)
+				.setParameter("userId", userId)
+				.executeUpdate();
+	}
+}
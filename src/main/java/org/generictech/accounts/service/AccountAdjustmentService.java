@@ -0,0 +1,144 @@
+package org.generictech.accounts.service;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.generictech.accounts.config.Shards;
+import org.generictech.accounts.dto.AccountEventDTO;
+import org.generictech.accounts.dto.BalanceDTO;
+import org.generictech.accounts.dto.SystemUserDTO;
+import org.generictech.accounts.exception.AccountNotFoundException;
+import org.generictech.accounts.exception.BadValueException;
+import org.generictech.accounts.exception.UnauthorizedAccessException;
+import org.generictech.accounts.model.AccountAdjustment;
+import org.generictech.accounts.repo.AccountAdjustmentRepo;
+import org.generictech.accounts.repo.AccountsRepo;
+import org.generictech.accounts.repo.AccountsRepo.AdjustedAccount;
+import org.generictech.accounts.service.AccountSummaryService.Changes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class to adjust account balances. The new balance is computed by the database so concurrent 
+ * adjustments to the same account are never lost. Adjustments made with an idempotency key are recorded, 
+ * and repeating the key returns the recorded balance instead of applying the adjustment again. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Service
+@Slf4j
+public class AccountAdjustmentService {
+
+	static final int MAX_KEY_LENGTH = 64;
+	
+	@Autowired
+	private AccountsRepo accountsRepo;
+	@Autowired
+	private AccountAdjustmentRepo accountAdjustmentRepo;
+	@Autowired
+	private Shards shards;
+	@Autowired
+	private AccountSummaryService accountSummaryService;
+	@Autowired
+	private AccountEventService accountEventService;
+	@Value("${accounts.adjust.idempotency-ttl-ms:86400000}")
+	private long idempotencyTtlMs;
+	
+	private final TransactionTemplate transactionTemplate;
+	
+	@Autowired
+	public AccountAdjustmentService(PlatformTransactionManager transactionManager) {
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+	
+	/**
+	 * Method to add a signed amount to the balance of an account. 
+	 * @param id
+	 * @param delta amount in minor units
+	 * @param idempotencyKey optional key identifying the request, or null
+	 * @param user
+	 * @return BalanceDTO with the balance after the adjustment
+	 * @throws BadValueException if the key is too long or was already used for a different adjustment
+	 * @throws AccountNotFoundException
+	 * @throws UnauthorizedAccessException
+	 */
+	public BalanceDTO adjust(int id, long delta, String idempotencyKey, SystemUserDTO user) throws BadValueException
+		, AccountNotFoundException, UnauthorizedAccessException {
+		if (idempotencyKey != null && (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH)) {
+			throw new BadValueException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+		}
+		if (idempotencyKey != null) {
+			Optional<AccountAdjustment> previous = accountAdjustmentRepo.findByUserIdAndIdempotencyKey(user.getId(), idempotencyKey);
+			if (previous.isPresent()) {
+				return replay(previous.get(), id, delta);
+			}
+		}
+		BalanceDTO balance;
+		try {
+			balance = transactionTemplate.execute(status -> apply(id, delta, idempotencyKey, user));
+		} catch (DataIntegrityViolationException e) {
+			if (idempotencyKey == null) {
+				throw e;
+			}
+			// a concurrent request with the same key committed first and this adjustment was rolled back
+			Optional<AccountAdjustment> previous = accountAdjustmentRepo.findByUserIdAndIdempotencyKey(user.getId(), idempotencyKey);
+			if (!previous.isPresent()) {
+				throw e;
+			}
+			return replay(previous.get(), id, delta);
+		}
+		if (balance == null) {
+			// nothing matched, find out whether the account is missing or owned by someone else
+			if (accountsRepo.existsById(id)) {
+				throw new UnauthorizedAccessException();
+			}
+			throw new AccountNotFoundException();
+		}
+		return balance;
+	}
+	
+	/**
+	 * Method to remove idempotency records older than accounts.adjust.idempotency-ttl-ms from every shard.
+	 */
+	@Scheduled(fixedDelayString = "${accounts.adjust.purge-ms:3600000}"
+			, initialDelayString = "${accounts.adjust.purge-ms:3600000}")
+	public void purge() {
+		Instant cutoff = Instant.now().minusMillis(idempotencyTtlMs);
+		shards.forEach(() -> {
+			int removed = accountAdjustmentRepo.deleteCreatedBefore(cutoff);
+			if (removed > 0) {
+				log.info("Removed " + removed + " expired account adjustments");
+			}
+		});
+	}
+	
+	private BalanceDTO apply(int id, long delta, String idempotencyKey, SystemUserDTO user) {
+		if (accountsRepo.adjustBalance(id, user.getId(), delta) == 0) {
+			return null;
+		}
+		// the updated row stays locked until commit so this reads the balance this adjustment produced
+		AdjustedAccount adjusted = accountsRepo.findAdjustedById(id);
+		long balance = adjusted.getBalance();
+		accountSummaryService.apply(user.getId(), new Changes().add(adjusted.getTypeId(), 0, delta));
+		accountEventService.publish(user.getId(), new AccountEventDTO(AccountEventDTO.UPDATED, id
+				, adjusted.getVersion()));
+		if (idempotencyKey != null) {
+			accountAdjustmentRepo.saveAndFlush(new AccountAdjustment(user.getId(), idempotencyKey, id, delta, balance, Instant.now()));
+		}
+		return new BalanceDTO(id, balance);
+	}
+	
+	private static BalanceDTO replay(AccountAdjustment previous, int id, long delta) throws BadValueException {
+		if (previous.getAccountId() != id || previous.getDelta() != delta) {
+			throw new BadValueException("Idempotency-Key was already used for a different adjustment");
+		}
+		return new BalanceDTO(id, previous.getBalance());
+	}
+}
@@ -0,0 +1,389 @@
+package org.generictech.accounts.service;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.generictech.accounts.config.AsyncConfig;
+import org.generictech.accounts.dto.AccountEventDTO;
+import org.generictech.accounts.model.Accounts;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class to push changes to a user's accounts to the clients subscribed with GET /account/stream,
+ * so clients do not have to poll for them. Changes are sent once the transaction that made them commits,
+ * to the subscribers connected to this instance.
+ * <p>
+ * Publishing never waits on a client. Each subscriber has a buffer of accounts.events.buffer-size events
+ * that the account events executor writes to the client, and a subscriber whose buffer fills because the
+ * client is not reading is disconnected, so it can reconnect and reload its accounts. A heartbeat comment
+ * is queued for every subscriber each accounts.events.heartbeat-ms, which keeps idle connections open
+ * through proxies and finds the clients that have gone away.
+ * <p>
+ * Servlet writes block, so a client that stops reading holds the thread writing to it until the 
+ * container's write timeout (server.tomcat.connection-timeout) fails the write. A write still running 
+ * after accounts.events.write-timeout-ms disconnects its subscriber, and the executor gets an extra 
+ * thread until the stuck write returns, up to accounts.events.max-blocked-writers, so the other 
+ * subscribers keep receiving events.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Service
+@Slf4j
+public class AccountEventService {
+
+	private static final int OPEN = 0;
+	private static final int WRITING = 1;
+	private static final int CLOSING = 2;
+	private static final int CLOSED = 3;
+
+	private final int bufferSize;
+	private final long timeoutMs;
+	private final long writeTimeoutNanos;
+	private final int maxBlockedWriters;
+	private final Executor executor;
+	private final ThreadPoolExecutor pool;
+	private final AtomicInteger blockedWriters = new AtomicInteger();
+	private final ConcurrentMap<Integer, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+	@Autowired
+	public AccountEventService(@Value("${accounts.events.buffer-size:32}") int bufferSize
+			, @Value("${accounts.events.timeout-ms:1800000}") long timeoutMs
+			, @Value("${accounts.events.write-timeout-ms:5000}") long writeTimeoutMs
+			, @Value("${accounts.events.max-blocked-writers:64}") int maxBlockedWriters
+			, @Qualifier(AsyncConfig.ACCOUNT_EVENTS_EXECUTOR) ObjectProvider<Executor> executor) {
+		this(bufferSize, timeoutMs, writeTimeoutMs, maxBlockedWriters, executor.getIfAvailable(ForkJoinPool::commonPool));
+	}
+
+	AccountEventService(int bufferSize, long timeoutMs, long writeTimeoutMs, int maxBlockedWriters, Executor executor) {
+		this.bufferSize = bufferSize;
+		this.timeoutMs = timeoutMs;
+		this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMs);
+		this.maxBlockedWriters = maxBlockedWriters;
+		this.executor = executor;
+		if (executor instanceof ThreadPoolTaskExecutor) {
+			this.pool = ((ThreadPoolTaskExecutor) executor).getThreadPoolExecutor();
+		} else if (executor instanceof ThreadPoolExecutor) {
+			this.pool = (ThreadPoolExecutor) executor;
+		} else {
+			this.pool = null;
+		}
+	}
+
+	/**
+	 * Method to subscribe to changes to a user's accounts. The connection is closed after
+	 * accounts.events.timeout-ms and the client is expected to reconnect.
+	 * @param userId
+	 * @return SseEmitter
+	 */
+	public SseEmitter subscribe(int userId) {
+		SseEmitter emitter = new SseEmitter(timeoutMs);
+		Subscriber subscriber = new Subscriber(userId, emitter, new ArrayBlockingQueue<>(bufferSize));
+		emitter.onTimeout(emitter::complete);
+		emitter.onCompletion(() -> discard(subscriber));
+		emitter.onError(e -> discard(subscriber));
+		subscribers.compute(userId, (id, userSubscribers) -> {
+			Set<Subscriber> added = userSubscribers == null ? ConcurrentHashMap.newKeySet() : userSubscribers;
+			added.add(subscriber);
+			return added;
+		});
+		return emitter;
+	}
+
+	/**
+	 * Method to publish a change to an account once the current transaction commits. The event is read
+	 * from the account after the commit, so it carries the version the commit wrote.
+	 * @param userId
+	 * @param event one of the AccountEventDTO event names
+	 * @param account
+	 */
+	public void publish(int userId, String event, Accounts account) {
+		afterCommit(() -> send(userId, new AccountEventDTO(event, account.getId(), account.getVersion())));
+	}
+
+	/**
+	 * Method to publish a change to an account once the current transaction commits.
+	 * @param userId
+	 * @param event
+	 */
+	public void publish(int userId, AccountEventDTO event) {
+		afterCommit(() -> send(userId, event));
+	}
+
+	/**
+	 * Method to queue a heartbeat for every subscriber.
+	 */
+	@Scheduled(fixedDelayString = "${accounts.events.heartbeat-ms:15000}"
+			, initialDelayString = "${accounts.events.heartbeat-ms:15000}")
+	public void heartbeat() {
+		Set<DataWithMediaType> frame = SseEmitter.event().comment("heartbeat").build();
+		for (Set<Subscriber> userSubscribers : subscribers.values()) {
+			for (Subscriber subscriber : userSubscribers) {
+				offer(subscriber, frame);
+			}
+		}
+	}
+
+	/**
+	 * Method to disconnect the subscribers whose write has been running for longer than 
+	 * accounts.events.write-timeout-ms, adding a thread to the executor for each writer left stuck.
+	 */
+	@Scheduled(fixedDelayString = "${accounts.events.write-timeout-ms:5000}"
+			, initialDelayString = "${accounts.events.write-timeout-ms:5000}")
+	public void evictStalled() {
+		long now = System.nanoTime();
+		for (Set<Subscriber> userSubscribers : subscribers.values()) {
+			for (Subscriber subscriber : userSubscribers) {
+				if (subscriber.state.get() == WRITING && now - subscriber.writeStarted > writeTimeoutNanos
+						&& close(subscriber, "has not accepted a write for " 
+								+ TimeUnit.NANOSECONDS.toMillis(now - subscriber.writeStarted) + " ms")) {
+					compensate(subscriber);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method to check whether a user has any open subscribers, so callers can skip work only needed to 
+	 * build an event.
+	 * @param userId
+	 * @return boolean true if at least one subscriber is connected for the user
+	 */
+	public boolean hasSubscribers(int userId) {
+		Set<Subscriber> userSubscribers = subscribers.get(userId);
+		return userSubscribers != null && !userSubscribers.isEmpty();
+	}
+
+	/**
+	 * Method to count the subscribers connected to this instance.
+	 * @return int
+	 */
+	public int getSubscriberCount() {
+		int count = 0;
+		for (Set<Subscriber> userSubscribers : subscribers.values()) {
+			count += userSubscribers.size();
+		}
+		return count;
+	}
+
+	/**
+	 * Method to queue an event for each of a user's subscribers.
+	 * @param userId
+	 * @param event
+	 */
+	void send(int userId, AccountEventDTO event) {
+		Set<Subscriber> userSubscribers = subscribers.get(userId);
+		if (userSubscribers == null) {
+			return;
+		}
+		// the frame is built once and shared, it is not changed by writing it
+		Set<DataWithMediaType> frame = SseEmitter.event().name(event.getEvent()).data(event, MediaType.APPLICATION_JSON)
+				.build();
+		for (Subscriber subscriber : userSubscribers) {
+			offer(subscriber, frame);
+		}
+	}
+
+	private void offer(Subscriber subscriber, Set<DataWithMediaType> frame) {
+		if (subscriber.state.get() >= CLOSING) {
+			return;
+		}
+		if (!subscriber.buffer.offer(frame)) {
+			close(subscriber, "is not reading events");
+			return;
+		}
+		dispatch(subscriber);
+	}
+
+	/**
+	 * Method to start writing a subscriber's buffer unless it is already being written. Only one thread
+	 * writes to a subscriber at a time, and it keeps going until the buffer is empty.
+	 */
+	private void dispatch(Subscriber subscriber) {
+		if (!subscriber.dispatching.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			executor.execute(() -> drain(subscriber));
+		} catch (RejectedExecutionException e) {
+			subscriber.dispatching.set(false);
+			close(subscriber, "could not be queued, " + e.getMessage());
+		}
+	}
+
+	private void drain(Subscriber subscriber) {
+		do {
+			try {
+				write(subscriber);
+			} finally {
+				subscriber.dispatching.set(false);
+			}
+			// work queued while the flag was still set was left for this thread
+		} while (subscriber.state.get() == OPEN && !subscriber.buffer.isEmpty()
+				&& subscriber.dispatching.compareAndSet(false, true));
+	}
+
+	private void write(Subscriber subscriber) {
+		Set<DataWithMediaType> frame;
+		while ((frame = subscriber.buffer.poll()) != null) {
+			// the start is set first so a stalled write is never timed from an earlier one
+			subscriber.writeStarted = System.nanoTime();
+			if (!subscriber.state.compareAndSet(OPEN, WRITING)) {
+				return;
+			}
+			boolean failed = false;
+			try {
+				for (DataWithMediaType part : frame) {
+					subscriber.emitter.send(part.getData(), part.getMediaType());
+				}
+			} catch (IOException | IllegalStateException e) {
+				// the client has gone away or the emitter has completed, the container reports the error itself
+				failed = true;
+			}
+			if (subscriber.state.compareAndSet(WRITING, OPEN)) {
+				if (failed) {
+					discard(subscriber);
+					return;
+				}
+				continue;
+			}
+			// the subscriber was disconnected while this write was running
+			if (!subscriber.compensation.compareAndSet(0, -1)) {
+				release();
+			}
+			if (subscriber.state.compareAndSet(CLOSING, CLOSED) && !failed) {
+				subscriber.emitter.completeWithError(new AsyncRequestTimeoutException());
+			}
+			return;
+		}
+	}
+
+	/**
+	 * Method to disconnect a subscriber. The emitter is completed here unless a write to it is running, 
+	 * in which case the writer completes it when the write returns, so this never waits on a client.
+	 * @return boolean true if a write was running and was left to complete the emitter
+	 */
+	private boolean close(Subscriber subscriber, String reason) {
+		remove(subscriber);
+		subscriber.buffer.clear();
+		while (true) {
+			int state = subscriber.state.get();
+			if (state == OPEN && subscriber.state.compareAndSet(OPEN, CLOSED)) {
+				log.warn("Disconnecting account event subscriber of user " + subscriber.userId + " that " + reason);
+				subscriber.emitter.completeWithError(new AsyncRequestTimeoutException());
+				return false;
+			}
+			if (state == WRITING && subscriber.state.compareAndSet(WRITING, CLOSING)) {
+				log.warn("Disconnecting account event subscriber of user " + subscriber.userId + " that " + reason);
+				return true;
+			}
+			if (state >= CLOSING) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Method to add a thread to the executor for a writer stuck on a subscriber, until the write returns.
+	 */
+	private void compensate(Subscriber subscriber) {
+		if (pool == null || blockedWriters.incrementAndGet() > maxBlockedWriters) {
+			blockedWriters.decrementAndGet();
+			log.warn("Writer for account event subscriber of user " + subscriber.userId + " is stuck and"
+					+ " accounts.events.max-blocked-writers has been reached");
+			return;
+		}
+		resize(1);
+		// the write may have returned before the thread was added
+		if (!subscriber.compensation.compareAndSet(0, 1)) {
+			release();
+		}
+	}
+
+	private void release() {
+		blockedWriters.decrementAndGet();
+		resize(-1);
+	}
+
+	private void resize(int delta) {
+		synchronized (pool) {
+			// the maximum is raised first and lowered last so it is never below the core size
+			if (delta > 0) {
+				pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+				pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+			} else {
+				pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+				pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+			}
+		}
+	}
+
+	private void discard(Subscriber subscriber) {
+		remove(subscriber);
+		subscriber.state.set(CLOSED);
+		subscriber.buffer.clear();
+	}
+
+	private void remove(Subscriber subscriber) {
+		subscribers.computeIfPresent(subscriber.userId, (id, userSubscribers) -> {
+			userSubscribers.remove(subscriber);
+			return userSubscribers.isEmpty() ? null : userSubscribers;
+		});
+	}
+
+	private static void afterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+
+	private static final class Subscriber {
+
+		final int userId;
+		final SseEmitter emitter;
+		final BlockingQueue<Set<DataWithMediaType>> buffer;
+		final AtomicBoolean dispatching = new AtomicBoolean();
+		/** OPEN, WRITING, CLOSING while a disconnected subscriber's write finishes, or CLOSED */
+		final AtomicInteger state = new AtomicInteger(OPEN);
+		/** 1 once a thread has been added for this subscriber's stuck writer, -1 once the write returned */
+		final AtomicInteger compensation = new AtomicInteger();
+		volatile long writeStarted;
+
+		Subscriber(int userId, SseEmitter emitter, BlockingQueue<Set<DataWithMediaType>> buffer) {
+			this.userId = userId;
+			this.emitter = emitter;
+			this.buffer = buffer;
+		}
+	}
+}
@@ -0,0 +1,291 @@
+package org.generictech.accounts.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import org.generictech.accounts.config.AsyncConfig;
+import org.generictech.accounts.config.MinorUnitsReadIntegrator;
+import org.generictech.accounts.config.ShardContext;
+import org.generictech.accounts.config.Shards;
+import org.generictech.accounts.dto.AccountSummaryDTO;
+import org.generictech.accounts.dto.AccountTypeSummaryDTO;
+import org.generictech.accounts.model.AccountType;
+import org.generictech.accounts.model.Accounts;
+import org.generictech.accounts.model.MinorUnits;
+import org.generictech.accounts.repo.AccountsRepo;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class to keep the account_summary table, which holds the number and total balance of each
+ * user's accounts by type, so a user's totals are read from one row per type instead of from every
+ * account. Every change to accounts applies its difference to the summary in the same transaction.
+ * <p>
+ * The summaries are checked against the accounts table every accounts.summary.reconcile-ms, in chunks
+ * of accounts.summary.reconcile-chunk-users users checked in parallel. Summaries that have drifted are
+ * corrected and reported.
+ * <p>
+ * Totals are written to both balance_minor and the decimal balance column it replaces, and read from 
+ * balance_minor once accounts.migration.minor-units.read-new is set, falling back to the decimal column 
+ * for rows not backfilled yet.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Service
+@Slf4j
+public class AccountSummaryService {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private AccountsRepo accountsRepo;
+	@Autowired
+	private Shards shards;
+	@Value("${accounts.summary.reconcile-chunk-users:1000}")
+	private int chunkUsers;
+	@Value("${accounts.summary.reconcile-parallelism:4}")
+	private int parallelism;
+	@Value("${accounts.migration.minor-units.read-new:false}")
+	private boolean readMinorUnits;
+
+	private final TransactionTemplate transactionTemplate;
+	private final Executor executor;
+
+	@Autowired
+	public AccountSummaryService(PlatformTransactionManager transactionManager
+			, @Qualifier(AsyncConfig.ACCOUNTS_EXECUTOR) ObjectProvider<Executor> executor) {
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.executor = executor.getIfAvailable(ForkJoinPool::commonPool);
+	}
+
+	/**
+	 * Method to find the totals of a user's accounts by type.
+	 * @param userId
+	 * @return AccountSummaryDTO
+	 */
+	@Transactional(readOnly = true)
+	public AccountSummaryDTO findByUserId(int userId) {
+		List<AccountTypeSummaryDTO> types = jdbcTemplate.query("select s.account_type_id, t.type, s.accounts"
+				+ ", " + balance("s.")
+				+ " from account_summary s join account_type t on t.account_type_id = s.account_type_id"
+				+ " where s.system_user_id = ? order by s.account_type_id"
+				, (row, i) -> new AccountTypeSummaryDTO(new AccountType(row.getInt(1), row.getString(2)), row.getLong(3)
+						, row.getLong(4)), userId);
+		long accounts = 0;
+		long balance = 0;
+		for (AccountTypeSummaryDTO type : types) {
+			accounts += type.getAccounts();
+			balance += type.getBalance();
+		}
+		return new AccountSummaryDTO(types, accounts, balance);
+	}
+
+	/**
+	 * Method to apply changes to a user's accounts to their summary. Must be called in the transaction
+	 * that makes the changes, so the summary is never seen out of step with the accounts.
+	 * @param userId
+	 * @param changes
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void apply(int userId, Changes changes) {
+		// types are updated in id order so transactions changing several types cannot deadlock
+		for (Map.Entry<Integer, Total> change : changes.totals.entrySet()) {
+			Total total = change.getValue();
+			if (total.accounts == 0 && total.balance == 0) {
+				continue;
+			}
+			if (jdbcTemplate.update("update account_summary set accounts = accounts + ?"
+					+ ", balance_minor = " + balance("") + " + ?, balance = (" + balance("") + " + ?) / 100.0"
+					+ " where system_user_id = ? and account_type_id = ?", total.accounts, total.balance, total.balance
+					, userId, change.getKey()) == 0) {
+				insert(userId, change.getKey(), total);
+			} else if (total.accounts < 0) {
+				jdbcTemplate.update("delete from account_summary where system_user_id = ? and account_type_id = ?"
+						+ " and accounts = 0", userId, change.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Method to check every summary on every shard against the accounts table and correct the ones that
+	 * have drifted.
+	 * @return int number of summaries corrected
+	 */
+	@Scheduled(fixedDelayString = "${accounts.summary.reconcile-ms:3600000}"
+			, initialDelayString = "${accounts.summary.reconcile-ms:3600000}")
+	public int reconcile() {
+		long start = System.currentTimeMillis();
+		int[] corrected = new int[1];
+		shards.forEach(() -> corrected[0] += reconcileShard());
+		if (corrected[0] > 0) {
+			log.warn("Corrected " + corrected[0] + " drifted account summaries in "
+					+ (System.currentTimeMillis() - start) + " ms");
+		} else {
+			log.info("Account summaries match accounts, checked in " + (System.currentTimeMillis() - start) + " ms");
+		}
+		return corrected[0];
+	}
+
+	private int reconcileShard() {
+		String shard = ShardContext.current();
+		Integer first = jdbcTemplate.queryForObject("select min(id) from (select min(system_user_id) id from accounts"
+				+ " union all select min(system_user_id) id from account_summary) ids", Integer.class);
+		Integer last = jdbcTemplate.queryForObject("select max(id) from (select max(system_user_id) id from accounts"
+				+ " union all select max(system_user_id) id from account_summary) ids", Integer.class);
+		if (first == null) {
+			return 0;
+		}
+		int corrected = 0;
+		Deque<CompletableFuture<Integer>> running = new ArrayDeque<>();
+		for (long from = first; from <= last; from += chunkUsers) {
+			int chunkFrom = (int) from;
+			int chunkTo = (int) Math.min(last, from + chunkUsers - 1);
+			if (running.size() >= parallelism) {
+				corrected += join(running.poll());
+			}
+			running.add(CompletableFuture.supplyAsync(() -> ShardContext.callOn(shard
+					, () -> reconcileChunk(chunkFrom, chunkTo)), executor));
+		}
+		while (!running.isEmpty()) {
+			corrected += join(running.poll());
+		}
+		return corrected;
+	}
+
+	/**
+	 * Method to rebuild the summaries of a range of users. The summaries are locked before the accounts
+	 * are totalled, so a change that has not committed yet is either waited for or not counted, and is
+	 * applied on top of the corrected summary when it commits.
+	 * @param from first user id
+	 * @param to last user id
+	 * @return int number of summaries corrected
+	 */
+	int reconcileChunk(int from, int to) {
+		return transactionTemplate.execute(status -> {
+			Map<List<Integer>, Total> stored = new HashMap<>();
+			jdbcTemplate.query("select system_user_id, account_type_id, accounts, " + balance("") + " from account_summary"
+					+ " where system_user_id between ? and ? order by system_user_id, account_type_id for update"
+					, row -> {
+						stored.put(Arrays.asList(row.getInt(1), row.getInt(2)), new Total(row.getLong(3), row.getLong(4)));
+					}, from, to);
+			List<Integer> drifted = new ArrayList<>();
+			for (Object[] totals : accountsRepo.summarizeByUserIds(from, to)) {
+				int userId = ((Number) totals[0]).intValue();
+				int typeId = ((Number) totals[1]).intValue();
+				Total actual = new Total(((Number) totals[2]).longValue(), ((Number) totals[3]).longValue());
+				Total summary = stored.remove(Arrays.asList(userId, typeId));
+				if (summary == null) {
+					insert(userId, typeId, actual);
+					drifted.add(userId);
+				} else if (summary.accounts != actual.accounts || summary.balance != actual.balance) {
+					jdbcTemplate.update("update account_summary set accounts = ?, balance_minor = ?, balance = ?"
+							+ " where system_user_id = ? and account_type_id = ?", actual.accounts, actual.balance
+							, MinorUnits.toDouble(actual.balance), userId, typeId);
+					drifted.add(userId);
+				}
+			}
+			for (List<Integer> key : stored.keySet()) {
+				jdbcTemplate.update("delete from account_summary where system_user_id = ? and account_type_id = ?"
+						, key.get(0), key.get(1));
+				drifted.add(key.get(0));
+			}
+			if (!drifted.isEmpty()) {
+				log.warn("Account summaries of users " + drifted + " had drifted from their accounts");
+			}
+			return drifted.size();
+		});
+	}
+
+	private String balance(String alias) {
+		String decimal = "cast(round(" + alias + "balance * 100) as bigint)";
+		return readMinorUnits ? MinorUnitsReadIntegrator.read(alias + "balance_minor", decimal) : decimal;
+	}
+
+	private void insert(int userId, int typeId, Total total) {
+		jdbcTemplate.update("insert into account_summary (system_user_id, account_type_id, accounts, balance_minor, balance)"
+				+ " values (?, ?, ?, ?, ?)", userId, typeId, total.accounts, total.balance, MinorUnits.toDouble(total.balance));
+	}
+
+	private static int join(CompletableFuture<Integer> result) {
+		try {
+			return result.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Class to collect the changes to a user's accounts by type, to be applied to their summary at once.
+	 */
+	public static final class Changes {
+
+		private final Map<Integer, Total> totals = new TreeMap<>();
+
+		/**
+		 * Method to count a new account.
+		 * @param account
+		 * @return Changes
+		 */
+		public Changes add(Accounts account) {
+			return add(account.getType().getId(), 1, account.getBalance());
+		}
+
+		/**
+		 * Method to count a removed account.
+		 * @param account
+		 * @return Changes
+		 */
+		public Changes remove(Accounts account) {
+			return add(account.getType().getId(), -1, -account.getBalance());
+		}
+
+		/**
+		 * Method to count a change to the number of accounts of a type or their balance.
+		 * @param typeId
+		 * @param accounts
+		 * @param balance in minor units
+		 * @return Changes
+		 */
+		public Changes add(int typeId, long accounts, long balance) {
+			Total total = totals.computeIfAbsent(typeId, id -> new Total(0, 0));
+			total.accounts += accounts;
+			total.balance += balance;
+			return this;
+		}
+	}
+
+	private static final class Total {
+
+		long accounts;
+		long balance;
+
+		Total(long accounts, long balance) {
+			this.accounts = accounts;
+			this.balance = balance;
+		}
+	}
+}
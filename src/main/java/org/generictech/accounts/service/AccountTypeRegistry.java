@@ -0,0 +1,151 @@
+package org.generictech.accounts.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.annotation.PostConstruct;
+
+import org.generictech.accounts.model.AccountType;
+import org.generictech.accounts.repo.AccountTypeRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Class to hold an in memory snapshot of the account_type table. The snapshot is loaded on startup, 
+ * replaced whenever this instance changes a type, and reloaded every accounts.types.refresh-ms to pick 
+ * up changes made by other instances. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Component
+@Slf4j
+public class AccountTypeRegistry {
+
+	@Autowired
+	private AccountTypeRepo accountTypeRepo;
+	
+	private volatile Snapshot snapshot = new Snapshot(Collections.emptyList());
+	
+	/**
+	 * Method to load the snapshot on startup.
+	 */
+	@PostConstruct
+	public void init() {
+		refresh();
+	}
+	
+	/**
+	 * Method to reload the snapshot from the repo.
+	 */
+	@Scheduled(fixedDelayString = "${accounts.types.refresh-ms:60000}"
+			, initialDelayString = "${accounts.types.refresh-ms:60000}")
+	public void refresh() {
+		snapshot = new Snapshot(accountTypeRepo.findAll());
+		log.debug("Loaded " + snapshot.getTypes().size() + " account types");
+	}
+	
+	/**
+	 * Method to reload the snapshot once the current transaction commits, or straight away if there is 
+	 * no transaction. 
+	 */
+	public void refreshAfterCommit() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					refresh();
+				}
+			});
+		} else {
+			refresh();
+		}
+	}
+	
+	public Snapshot getSnapshot() {
+		return snapshot;
+	}
+	
+	/**
+	 * Method to look up a type in the current snapshot.
+	 * @param id
+	 * @return Optional<AccountType>
+	 */
+	public Optional<AccountType> findById(int id) {
+		return snapshot.findById(id);
+	}
+	
+	/**
+	 * Method to look up a type by name in the current snapshot.
+	 * @param type
+	 * @return Optional<AccountType>
+	 */
+	public Optional<AccountType> findByType(String type) {
+		return snapshot.findByType(type);
+	}
+	
+	/**
+	 * Immutable copy of the account types along with an ETag computed from their content, so every 
+	 * instance holding the same types returns the same ETag. 
+	 */
+	public static final class Snapshot {
+		private final List<AccountType> types;
+		private final Map<Integer, AccountType> byId = new HashMap<>();
+		private final Map<String, AccountType> byType = new HashMap<>();
+		private final String eTag;
+		
+		public Snapshot(List<AccountType> types) {
+			List<AccountType> copies = new ArrayList<>(types.size());
+			for (AccountType type : types) {
+				AccountType copy = new AccountType(type.getId(), type.getType());
+				copies.add(copy);
+				byId.put(copy.getId(), copy);
+				byType.put(copy.getType(), copy);
+			}
+			copies.sort(Comparator.comparingInt(AccountType::getId));
+			this.types = Collections.unmodifiableList(copies);
+			this.eTag = hash(this.types);
+		}
+		
+		public List<AccountType> getTypes() {
+			return types;
+		}
+		
+		public String getETag() {
+			return eTag;
+		}
+		
+		public Optional<AccountType> findById(int id) {
+			return Optional.ofNullable(byId.get(id));
+		}
+		
+		public Optional<AccountType> findByType(String type) {
+			return Optional.ofNullable(byType.get(type));
+		}
+		
+		private static String hash(List<AccountType> types) {
+			try {
+				MessageDigest digest = MessageDigest.getInstance("SHA-256");
+				for (AccountType type : types) {
+					digest.update((type.getId() + ":" + type.getType() + "\n").getBytes(StandardCharsets.UTF_8));
+				}
+				return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest()) + "\"";
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException("SHA-256 not available", e);
+			}
+		}
+	}
+}
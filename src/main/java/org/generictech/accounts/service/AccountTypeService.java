@@ -1,35 +1,64 @@
 package org.generictech.accounts.service;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
+import javax.annotation.PostConstruct;
+
+import org.generictech.accounts.config.ShardContext;
+import org.generictech.accounts.config.Shards;
 import org.generictech.accounts.exception.BadValueException;
 import org.generictech.accounts.exception.ProcessingException;
 import org.generictech.accounts.exception.TypeNotFoundException;
 import org.generictech.accounts.model.AccountType;
 import org.generictech.accounts.repo.AccountTypeRepo;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import lombok.extern.slf4j.Slf4j;
+
 /**
- * Class to handle business logic pertaining the the account_type table
+ * Class to handle business logic pertaining the the account_type table. When accounts are sharded, types 
+ * are written to the directory shard and each change is then copied to the other shards. The other 
+ * shards are also brought in line with the directory shard on startup and every accounts.types.refresh-ms,
+ * so a copy that failed is repaired. 
  * @author Jaden Wilson
  * @since 1.0
  *
  */
 @Service
+@Slf4j
 public class AccountTypeService {
 
 	@Autowired
 	private AccountTypeRepo accountTypeRepo;
+	@Autowired
+	private AccountTypeRegistry accountTypeRegistry;
+	@Autowired
+	private Shards shards;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
 	
 	/**
-	 * Method to handle retrieving all type records from the repo.
+	 * Method to handle retrieving all type records.
 	 * @return List<AccountType>
 	 */
 	public List<AccountType> findAll() {
-		return accountTypeRepo.findAll();
+		return accountTypeRegistry.getSnapshot().getTypes();
+	}
+	
+	/**
+	 * Method to get all type records along with their ETag.
+	 * @return AccountTypeRegistry.Snapshot
+	 */
+	public AccountTypeRegistry.Snapshot snapshot() {
+		return accountTypeRegistry.getSnapshot();
 	}
 	
 	/**
@@ -39,7 +68,11 @@ public class AccountTypeService {
 	 * @throws TypeNotFoundException
 	 */
 	public AccountType findById(int id) throws TypeNotFoundException {
-		Optional<AccountType> type = accountTypeRepo.findById(id);
+		Optional<AccountType> type = accountTypeRegistry.findById(id);
+		if (!type.isPresent()) {
+			// the type may have been added by another instance since the registry was last loaded
+			type = accountTypeRepo.findById(id);
+		}
 		if (type.isPresent()) {
 			return type.get();
 		} else {
@@ -59,7 +92,13 @@ public class AccountTypeService {
 		if (type.getType() == null || type.getType().isEmpty()) {
 			throw new BadValueException("Non-empty type value required");
 		}
-		return accountTypeRepo.save(type);
+		if (accountTypeRegistry.findByType(type.getType()).isPresent()) {
+			throw new BadValueException("Type already exists");
+		}
+		AccountType saved = accountTypeRepo.save(type);
+		copyToShards(saved);
+		accountTypeRegistry.refreshAfterCommit();
+		return saved;
 	}
 	
 	/**
@@ -74,7 +113,10 @@ public class AccountTypeService {
 			if (typeData.getType() != null) {
 				type.get().setType(typeData.getType());
 			}
-			return accountTypeRepo.save(type.get());
+			AccountType saved = accountTypeRepo.save(type.get());
+			copyToShards(saved);
+			accountTypeRegistry.refreshAfterCommit();
+			return saved;
 		} else {
 			throw new TypeNotFoundException();
 		}
@@ -91,9 +133,69 @@ public class AccountTypeService {
 		Optional<AccountType> type = accountTypeRepo.findById(id); 
 		if (type.isPresent()) {
 			accountTypeRepo.delete(type.get());
+			shards.replicate(() -> jdbcTemplate.update("delete from account_type where account_type_id = ?", id));
+			accountTypeRegistry.refreshAfterCommit();
 			return true;			
 		} else {
 			throw new TypeNotFoundException();
 		}
 	}
+	
+	/**
+	 * Method to make the types on every shard other than the directory shard match the directory shard,
+	 * adding, renaming and removing types as needed. A shard that cannot be reached, or a type that is
+	 * still used by accounts on a shard, is logged and retried on the next run.
+	 */
+	@PostConstruct
+	@Scheduled(fixedDelayString = "${accounts.types.refresh-ms:60000}"
+			, initialDelayString = "${accounts.types.refresh-ms:60000}")
+	public void syncShards() {
+		if (!shards.isSharded()) {
+			return;
+		}
+		List<AccountType> types = accountTypeRepo.findAll();
+		shards.replicate(() -> {
+			try {
+				sync(types);
+			} catch (DataAccessException e) {
+				log.error("Unable to sync account types to shard " + ShardContext.current() + ": " + e.getMessage());
+			}
+		});
+	}
+	
+	private void sync(List<AccountType> types) {
+		Map<Integer, String> existing = new HashMap<>();
+		for (AccountType type : jdbcTemplate.query("select account_type_id, type from account_type"
+				, (row, i) -> new AccountType(row.getInt(1), row.getString(2)))) {
+			existing.put(type.getId(), type.getType());
+		}
+		for (AccountType type : types) {
+			String current = existing.remove(type.getId());
+			if (current == null) {
+				jdbcTemplate.update("insert into account_type (account_type_id, type) values (?, ?)", type.getId(), type.getType());
+			} else if (!current.equals(type.getType())) {
+				jdbcTemplate.update("update account_type set type = ? where account_type_id = ?", type.getType(), type.getId());
+			}
+		}
+		for (Integer id : existing.keySet()) {
+			try {
+				jdbcTemplate.update("delete from account_type where account_type_id = ?", id);
+			} catch (DataAccessException e) {
+				log.warn("Unable to remove account type " + id + " from shard " + ShardContext.current() + ": "
+						+ e.getMessage());
+			}
+		}
+	}
+	
+	/**
+	 * Method to copy a saved type to the shards other than the directory shard, keeping its id.
+	 * @param type
+	 */
+	private void copyToShards(AccountType type) {
+		shards.replicate(() -> {
+			if (jdbcTemplate.update("update account_type set type = ? where account_type_id = ?", type.getType(), type.getId()) == 0) {
+				jdbcTemplate.update("insert into account_type (account_type_id, type) values (?, ?)", type.getId(), type.getType());
+			}
+		});
+	}
 }
@@ -0,0 +1,240 @@
+package org.generictech.accounts.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.generictech.accounts.dto.AccountEventDTO;
+import org.generictech.accounts.dto.BatchResultDTO;
+import org.generictech.accounts.dto.SystemUserDTO;
+import org.generictech.accounts.exception.AccountNotFoundException;
+import org.generictech.accounts.exception.BadValueException;
+import org.generictech.accounts.exception.TypeNotFoundException;
+import org.generictech.accounts.exception.UnauthorizedAccessException;
+import org.generictech.accounts.model.AccountType;
+import org.generictech.accounts.model.Accounts;
+import org.generictech.accounts.repo.AccountsRepo;
+import org.generictech.accounts.service.AccountSummaryService.Changes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Service class to create, change and delete many accounts in one request. Every item is validated
+ * first and the valid ones are written in a single transaction, so Hibernate can send them to the
+ * database as JDBC batches. Each item gets its own result, and an invalid item does not stop the others.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Service
+public class AccountsBatchService {
+
+	static final int MAX_BATCH_SIZE = 500;
+
+	@Autowired
+	private AccountsRepo accountsRepo;
+	@Autowired
+	private AccountsService accountsService;
+	@Autowired
+	private AccountSummaryService accountSummaryService;
+	@Autowired
+	private AccountEventService accountEventService;
+
+	/**
+	 * Method to save new accounts for the user.
+	 * @param accounts
+	 * @param user
+	 * @return List<BatchResultDTO> in request order, 201 with the saved account for each created item
+	 * @throws BadValueException if the batch is empty or larger than MAX_BATCH_SIZE
+	 */
+	@Transactional
+	public List<BatchResultDTO> saveAll(List<Accounts> accounts, SystemUserDTO user) throws BadValueException {
+		checkSize(accounts);
+		List<BatchResultDTO> results = new ArrayList<>(accounts.size());
+		List<Accounts> valid = new ArrayList<>(accounts.size());
+		Map<Integer, Optional<AccountType>> types = new HashMap<>();
+		for (int i = 0; i < accounts.size(); i++) {
+			Accounts account = accounts.get(i);
+			if (account == null || account.getType() == null) {
+				results.add(failed(i, HttpStatus.BAD_REQUEST, "type is required"));
+				continue;
+			}
+			Optional<AccountType> type = types.computeIfAbsent(account.getType().getId(), accountsService::findType);
+			if (!type.isPresent()) {
+				results.add(failed(i, HttpStatus.NOT_FOUND, new TypeNotFoundException().getMessage()));
+				continue;
+			}
+			account.setId(0);
+			account.setUserId(user.getId());
+			account.setType(type.get());
+			valid.add(account);
+			results.add(new BatchResultDTO(i, HttpStatus.CREATED.value(), account, null));
+		}
+		accountsRepo.saveAll(valid);
+		Changes changes = new Changes();
+		for (Accounts account : valid) {
+			changes.add(account);
+			accountEventService.publish(user.getId(), AccountEventDTO.CREATED, account);
+		}
+		accountSummaryService.apply(user.getId(), changes);
+		return results;
+	}
+
+	/**
+	 * Method to apply a JSON Merge Patch to each of the user's accounts. Every item is a patch object
+	 * with the id of the account it applies to.
+	 * @param patches
+	 * @param user
+	 * @return List<BatchResultDTO> in request order, 200 with the changed account for each updated item
+	 * @throws BadValueException if the batch is empty or larger than MAX_BATCH_SIZE
+	 */
+	@Transactional
+	public List<BatchResultDTO> patchAll(List<JsonNode> patches, SystemUserDTO user) throws BadValueException {
+		checkSize(patches);
+		Set<Integer> ids = new LinkedHashSet<>();
+		for (JsonNode patch : patches) {
+			if (patch != null && patch.path("id").isInt()) {
+				ids.add(patch.get("id").asInt());
+			}
+		}
+		Map<Integer, Accounts> accounts = findAll(ids);
+		List<BatchResultDTO> results = new ArrayList<>(patches.size());
+		Changes changes = new Changes();
+		for (int i = 0; i < patches.size(); i++) {
+			JsonNode patch = patches.get(i);
+			if (patch == null || !patch.isObject() || !patch.path("id").isInt()) {
+				results.add(failed(i, HttpStatus.BAD_REQUEST, "Item must be a JSON object with an id"));
+				continue;
+			}
+			Accounts account = accounts.get(patch.get("id").asInt());
+			BatchResultDTO ownerCheck = checkOwner(i, account, user);
+			if (ownerCheck != null) {
+				results.add(ownerCheck);
+				continue;
+			}
+			ObjectNode members = ((ObjectNode) patch).deepCopy();
+			members.remove("id");
+			Map<String, Object> accountChanges;
+			try {
+				accountChanges = accountsService.toChanges(members);
+			} catch (BadValueException e) {
+				results.add(failed(i, HttpStatus.BAD_REQUEST, e.getMessage()));
+				continue;
+			} catch (TypeNotFoundException e) {
+				results.add(failed(i, HttpStatus.NOT_FOUND, e.getMessage()));
+				continue;
+			}
+			changes.remove(account);
+			apply(account, accountChanges);
+			changes.add(account);
+			if (!accountChanges.isEmpty()) {
+				accountEventService.publish(user.getId(), AccountEventDTO.UPDATED, account);
+			}
+			results.add(new BatchResultDTO(i, HttpStatus.OK.value(), account, null));
+		}
+		// changed accounts are written by the flush on commit
+		accountSummaryService.apply(user.getId(), changes);
+		return results;
+	}
+
+	/**
+	 * Method to delete the user's accounts with the provided ids.
+	 * @param ids
+	 * @param user
+	 * @return List<BatchResultDTO> in request order, 204 for each deleted item
+	 * @throws BadValueException if the batch is empty or larger than MAX_BATCH_SIZE
+	 */
+	@Transactional
+	public List<BatchResultDTO> deleteAll(List<Integer> ids, SystemUserDTO user) throws BadValueException {
+		checkSize(ids);
+		Set<Integer> unique = new LinkedHashSet<>();
+		for (Integer id : ids) {
+			if (id != null) {
+				unique.add(id);
+			}
+		}
+		Map<Integer, Accounts> accounts = findAll(unique);
+		List<BatchResultDTO> results = new ArrayList<>(ids.size());
+		List<Accounts> owned = new ArrayList<>(ids.size());
+		for (int i = 0; i < ids.size(); i++) {
+			if (ids.get(i) == null) {
+				results.add(failed(i, HttpStatus.BAD_REQUEST, "id is required"));
+				continue;
+			}
+			// a repeated id is only deleted once, later copies find it already gone
+			Accounts account = accounts.remove(ids.get(i));
+			BatchResultDTO ownerCheck = checkOwner(i, account, user);
+			if (ownerCheck != null) {
+				results.add(ownerCheck);
+				continue;
+			}
+			owned.add(account);
+			results.add(new BatchResultDTO(i, HttpStatus.NO_CONTENT.value(), null, null));
+		}
+		accountsRepo.deleteAll(owned);
+		Changes changes = new Changes();
+		for (Accounts account : owned) {
+			changes.remove(account);
+			accountEventService.publish(user.getId(), AccountEventDTO.DELETED, account);
+		}
+		accountSummaryService.apply(user.getId(), changes);
+		return results;
+	}
+
+	private Map<Integer, Accounts> findAll(Set<Integer> ids) {
+		Map<Integer, Accounts> accounts = new HashMap<>();
+		for (Accounts account : accountsRepo.findAllById(ids)) {
+			accounts.put(account.getId(), account);
+		}
+		return accounts;
+	}
+
+	private static BatchResultDTO checkOwner(int index, Accounts account, SystemUserDTO user) {
+		if (account == null) {
+			return failed(index, HttpStatus.NOT_FOUND, new AccountNotFoundException().getMessage());
+		}
+		if (account.getUserId() != user.getId()) {
+			return failed(index, HttpStatus.UNAUTHORIZED, new UnauthorizedAccessException().getMessage());
+		}
+		return null;
+	}
+
+	private static void apply(Accounts account, Map<String, Object> changes) {
+		for (Map.Entry<String, Object> change : changes.entrySet()) {
+			switch (change.getKey()) {
+			case "description":
+				account.setDescription((String) change.getValue());
+				break;
+			case "balance":
+				account.setBalance((Long) change.getValue());
+				break;
+			case "type":
+				account.setType((AccountType) change.getValue());
+				break;
+			default:
+				throw new IllegalArgumentException(change.getKey());
+			}
+		}
+	}
+
+	private static void checkSize(List<?> items) throws BadValueException {
+		if (items == null || items.isEmpty()) {
+			throw new BadValueException("Batch must contain at least one item");
+		}
+		if (items.size() > MAX_BATCH_SIZE) {
+			throw new BadValueException("Batch cannot contain more than " + MAX_BATCH_SIZE + " items");
+		}
+	}
+
+	private static BatchResultDTO failed(int index, HttpStatus status, String message) {
+		return new BatchResultDTO(index, status.value(), null, message);
+	}
+}
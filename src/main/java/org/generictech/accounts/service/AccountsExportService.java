@@ -0,0 +1,62 @@
+package org.generictech.accounts.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import org.generictech.accounts.model.Accounts;
+import org.generictech.accounts.repo.AccountsRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Service class to write large collections of accounts as a JSON array without holding them in memory. 
+ * Accounts are read from a database cursor, written as they arrive, and detached from the persistence 
+ * context once written, so memory use does not grow with the number of accounts. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Service
+public class AccountsExportService {
+
+	@Autowired
+	private AccountsRepo accountsRepo;
+	@Autowired
+	private EntityManager em;
+	@Autowired
+	private ObjectMapper om;
+	
+	/**
+	 * Method to write all accounts that have the same UserID.
+	 * @param userId int id value to search by
+	 * @param out stream to write to, left open
+	 * @throws IOException
+	 */
+	@Transactional(readOnly = true)
+	public void writeByUserId(int userId, OutputStream out) throws IOException {
+		try (Stream<Accounts> accounts = accountsRepo.streamByUserId(userId)) {
+			write(accounts, out);
+		}
+	}
+	
+	private void write(Stream<Accounts> accounts, OutputStream out) throws IOException {
+		try (JsonGenerator generator = om.getFactory().createGenerator(out)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			generator.writeStartArray();
+			Iterator<Accounts> iterator = accounts.iterator();
+			while (iterator.hasNext()) {
+				Accounts account = iterator.next();
+				generator.writeObject(account);
+				em.detach(account);
+			}
+			generator.writeEndArray();
+		}
+	}
+}
@@ -1,29 +1,56 @@
 package org.generictech.accounts.service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
+import org.generictech.accounts.config.AsyncConfig;
+import org.generictech.accounts.config.Shards;
+import org.generictech.accounts.dto.AccountEventDTO;
+import org.generictech.accounts.dto.AccountsPageDTO;
 import org.generictech.accounts.dto.SystemUserDTO;
 import org.generictech.accounts.exception.AccountNotFoundException;
+import org.generictech.accounts.exception.BadValueException;
+import org.generictech.accounts.exception.PreconditionFailedException;
 import org.generictech.accounts.exception.ProcessingException;
 import org.generictech.accounts.exception.ProcessingRuntimeException;
+import org.generictech.accounts.exception.ServiceUnavailableException;
 import org.generictech.accounts.exception.TypeNotFoundException;
 import org.generictech.accounts.exception.UnauthorizedAccessException;
 import org.generictech.accounts.exception.UserNotFoundException;
 import org.generictech.accounts.model.AccountType;
 import org.generictech.accounts.model.Accounts;
+import org.generictech.accounts.model.MinorUnits;
 import org.generictech.accounts.repo.AccountTypeRepo;
 import org.generictech.accounts.repo.AccountsRepo;
+import org.generictech.accounts.service.AccountSummaryService.Changes;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import lombok.extern.slf4j.Slf4j;
@@ -43,18 +70,40 @@ public class AccountsService {
 	@Autowired
 	private AccountTypeRepo accountTypeRepo;
 	@Autowired
+	private AccountTypeRegistry accountTypeRegistry;
+	@Autowired
 	private RestTemplate restTemplate;
 	@Autowired
 	private ObjectMapper om;
 	@Autowired
-	private DiscoveryClient discoveryClient;
+	private AuthServiceResolver authServiceResolver;
+	@Autowired
+	private AuthCircuitBreaker authCircuitBreaker;
+	@Autowired
+	private TokenVerifier tokenVerifier;
+	@Autowired
+	@Qualifier(AsyncConfig.ACCOUNTS_EXECUTOR)
+	private Executor accountsExecutor;
+	@Autowired
+	private TokenCache tokenCache;
+	@Autowired
+	private Shards shards;
+	@Autowired
+	private AccountSummaryService accountSummaryService;
+	@Autowired
+	private AccountEventService accountEventService;
+	
+	static final int MAX_PAGE_SIZE = 500;
+	
+	private final ConcurrentMap<String, CompletableFuture<SystemUserDTO>> pendingValidations = new ConcurrentHashMap<>();
 
 	/**
-	 * Method to find all accounts from the repo.
+	 * Method to find all accounts from the repo. When accounts are sharded every shard is queried in 
+	 * parallel. 
 	 * @return List<Accounts>
 	 */
 	public List<Accounts> findAll() {
-		return accountsRepo.findAll();
+		return shards.gather(accountsRepo::findAll);
 	}
 	
 	/**
@@ -63,6 +112,7 @@ public class AccountsService {
 	 * @return List<Accounts>
 	 * @throws AccountNotFoundException
 	 */
+	@Transactional(readOnly = true)
 	public List<Accounts> findByUserId(int userId) throws AccountNotFoundException {
 		Optional<List<Accounts>> accounts = accountsRepo.findByUserId(userId);
 		if (accounts.isPresent()) {
@@ -72,6 +122,30 @@ public class AccountsService {
 		}
 	}
 	
+	/**
+	 * Method to find one page of the accounts that have the same UserID, ordered by account id. 
+	 * @param userId int id value to search by
+	 * @param limit maximum number of accounts to return, between 1 and MAX_PAGE_SIZE
+	 * @param after cursor returned with the previous page, or null for the first page
+	 * @return AccountsPageDTO
+	 * @throws BadValueException if the limit is out of range or the cursor is not valid
+	 */
+	@Transactional(readOnly = true)
+	public AccountsPageDTO findPageByUserId(int userId, int limit, String after) throws BadValueException {
+		if (limit < 1 || limit > MAX_PAGE_SIZE) {
+			throw new BadValueException("limit must be between 1 and " + MAX_PAGE_SIZE);
+		}
+		// one extra row tells us whether there is a next page without a count query
+		List<Accounts> accounts = accountsRepo.findByUserIdAndIdGreaterThanOrderByIdAsc(userId, decodeCursor(after)
+				, PageRequest.of(0, limit + 1));
+		String next = null;
+		if (accounts.size() > limit) {
+			accounts = new ArrayList<>(accounts.subList(0, limit));
+			next = encodeCursor(accounts.get(limit - 1).getId());
+		}
+		return new AccountsPageDTO(accounts, next);
+	}
+	
 	/**
 	 * Method to find an account by id value. 
 	 * @param id 
@@ -80,8 +154,49 @@ public class AccountsService {
 	 * @throws AccountNotFoundException
 	 * @throws UnauthorizedAccessException
 	 */
+	@Transactional(readOnly = true)
 	public Accounts findById(int id, SystemUserDTO user) throws AccountNotFoundException, UnauthorizedAccessException {
-		Optional<Accounts> account = accountsRepo.findById(id);
+		return checkOwner(accountsRepo.findById(id), user);
+	}
+	
+	/**
+	 * Method to find all accounts for the user with the provided token without blocking the caller.
+	 * @param token
+	 * @return CompletableFuture<List<Accounts>>
+	 */
+	public CompletableFuture<List<Accounts>> findByUserIdAsync(String token) {
+		return supplyAsync(() -> getUser(token))
+				.thenApplyAsync(user -> shards.callForUser(user.getId(), () -> call(() -> findByUserId(user.getId())))
+						, accountsExecutor);
+	}
+	
+	/**
+	 * Method to find an account by id value without blocking the caller. The token validation and the 
+	 * account lookup run at the same time and the ownership check is applied once both finish. When 
+	 * accounts are sharded the user's shard is only known after validation, so the lookup follows it. 
+	 * @param id
+	 * @param token
+	 * @return CompletableFuture<Accounts>
+	 */
+	public CompletableFuture<Accounts> findByIdAsync(int id, String token) {
+		CompletableFuture<SystemUserDTO> user = supplyAsync(() -> getUser(token));
+		if (shards.isSharded()) {
+			return user.thenApplyAsync(u -> shards.callForUser(u.getId(), () -> call(() -> checkOwner(accountsRepo.findById(id), u)))
+					, accountsExecutor);
+		}
+		CompletableFuture<Optional<Accounts>> account = supplyAsync(() -> accountsRepo.findById(id));
+		return user.thenCombine(account, (u, a) -> call(() -> checkOwner(a, u)));
+	}
+	
+	/**
+	 * Method to check that an account exists and belongs to the user.
+	 * @param account
+	 * @param user
+	 * @return Accounts
+	 * @throws AccountNotFoundException
+	 * @throws UnauthorizedAccessException
+	 */
+	private Accounts checkOwner(Optional<Accounts> account, SystemUserDTO user) throws AccountNotFoundException, UnauthorizedAccessException {
 		if (account.isPresent()) {
 			if (account.get().getUserId() != user.getId()) {
 				throw new UnauthorizedAccessException();
@@ -92,17 +207,72 @@ public class AccountsService {
 		}
 	}
 	
+	/**
+	 * Method to check the version of an account the user owns. The account is read through the same 
+	 * persistence context as the update that follows, and the version column catches any change made 
+	 * between this check and the write. 
+	 */
+	private void checkVersion(int id, SystemUserDTO user, Long expectedVersion) throws PreconditionFailedException {
+		if (expectedVersion == null) {
+			return;
+		}
+		Optional<Accounts> account = accountsRepo.findById(id);
+		if (account.isPresent() && account.get().getUserId() == user.getId() 
+				&& account.get().getVersion() != expectedVersion) {
+			throw new PreconditionFailedException("Account has been modified");
+		}
+	}
+	
+	Optional<AccountType> findType(int id) {
+		Optional<AccountType> type = accountTypeRegistry.findById(id);
+		// the type may have been added by another instance since the registry was last loaded
+		return type.isPresent() ? type : accountTypeRepo.findById(id);
+	}
+	
+	private static String encodeCursor(int id) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(Integer.toString(id).getBytes(StandardCharsets.UTF_8));
+	}
+	
+	private static int decodeCursor(String cursor) throws BadValueException {
+		if (cursor == null || cursor.isEmpty()) {
+			return 0;
+		}
+		try {
+			return Integer.parseInt(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+		} catch (IllegalArgumentException e) {
+			throw new BadValueException("Invalid cursor");
+		}
+	}
+	
+	private <T> CompletableFuture<T> supplyAsync(Callable<T> task) {
+		return CompletableFuture.supplyAsync(() -> call(task), accountsExecutor);
+	}
+	
+	private static <T> T call(Callable<T> task) {
+		try {
+			return task.call();
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new CompletionException(e);
+		}
+	}
+	
 	/**
 	 * Method to save a new account to the repo. 
 	 * @param account
 	 * @return Accounts
 	 * @throws TypeNotFoundException
 	 */
+	@Transactional
 	public Accounts save(Accounts account) throws TypeNotFoundException {
-		Optional<AccountType> type = accountTypeRepo.findById(account.getType().getId());
+		Optional<AccountType> type = findType(account.getType().getId());
 		if (type.isPresent()) {
 			account.setType(type.get());
-			return accountsRepo.save(account);			
+			Accounts saved = accountsRepo.save(account);
+			accountSummaryService.apply(saved.getUserId(), new Changes().add(saved));
+			accountEventService.publish(saved.getUserId(), AccountEventDTO.CREATED, saved);
+			return saved;
 		} else {
 			throw new TypeNotFoundException("Type Does Not Exist");
 		}
@@ -118,14 +288,16 @@ public class AccountsService {
 	 * @throws TypeNotFoundException
 	 * @throws UnauthorizedAccessException
 	 */
+	@Transactional
 	public Accounts update(Accounts accountData, SystemUserDTO user) throws NoSuchElementException, AccountNotFoundException, TypeNotFoundException, UnauthorizedAccessException {
 		Optional<Accounts> account = accountsRepo.findById(accountData.getId());
 		if (account.isPresent()) {
 			if (account.get().getUserId() != user.getId()) {
 				throw new UnauthorizedAccessException();
 			}
+			Changes changes = new Changes().remove(account.get());
 			if (accountData.getType() != null) {
-				Optional<AccountType> type = accountTypeRepo.findById(accountData.getType().getId());
+				Optional<AccountType> type = findType(accountData.getType().getId());
 				
 				if (type.isPresent()) {
 					account.get().setType(type.get());
@@ -136,16 +308,143 @@ public class AccountsService {
 			if (accountData.getDescription() != null) {
 				account.get().setDescription(accountData.getDescription());
 			}
-			if (accountData.getBalance() != 0.0) {
+			if (accountData.isBalanceSet()) {
 				account.get().setBalance(accountData.getBalance());
 			}
 			
-			return accountsRepo.save(account.get());			
+			Accounts saved = accountsRepo.save(account.get());
+			accountSummaryService.apply(user.getId(), changes.add(saved));
+			accountEventService.publish(user.getId(), AccountEventDTO.UPDATED, saved);
+			return saved;
 		} else {
 			throw new AccountNotFoundException();
 		}
 	}
 	
+	/**
+	 * Method to handle updating an account only if it is still at the expected version.
+	 * @param accountData
+	 * @param user
+	 * @param expectedVersion version from the If-Match header, or null to update unconditionally
+	 * @return Accounts
+	 * @throws PreconditionFailedException if the account has changed since the expected version
+	 * @throws NoSuchElementException
+	 * @throws AccountNotFoundException
+	 * @throws TypeNotFoundException
+	 * @throws UnauthorizedAccessException
+	 */
+	@Transactional
+	public Accounts update(Accounts accountData, SystemUserDTO user, Long expectedVersion) throws PreconditionFailedException
+		, NoSuchElementException, AccountNotFoundException, TypeNotFoundException, UnauthorizedAccessException {
+		checkVersion(accountData.getId(), user, expectedVersion);
+		return update(accountData, user);
+	}
+	
+	/**
+	 * Method to apply a JSON Merge Patch (RFC 7396) to an account with a single update statement. Only 
+	 * the members present in the patch are changed, so a balance of 0 is applied like any other value. 
+	 * @param id
+	 * @param patch JSON object with any of description, balance and type
+	 * @param user
+	 * @throws BadValueException if the patch is not an object, changes a read only member or sets a 
+	 * required member to null
+	 * @throws TypeNotFoundException
+	 * @throws AccountNotFoundException
+	 * @throws UnauthorizedAccessException
+	 */
+	@Transactional
+	public void patch(int id, JsonNode patch, SystemUserDTO user) throws BadValueException, TypeNotFoundException
+		, AccountNotFoundException, UnauthorizedAccessException {
+		Map<String, Object> changes = toChanges(patch);
+		// the bulk update bypasses the entity, so the copies of the type id and balance are written here
+		if (changes.get("type") != null) {
+			changes.put(Accounts.TYPE_ID_COPY, ((AccountType) changes.get("type")).getId());
+		}
+		if (changes.get("balance") != null) {
+			changes.put(Accounts.BALANCE_COPY, MinorUnits.toDouble((Long) changes.get("balance")));
+		}
+		Optional<Accounts> previous = Optional.empty();
+		if (changes.containsKey("balance") || changes.containsKey("type")) {
+			// the account stays locked so the summary is changed by exactly what this update changes
+			previous = accountsRepo.findOwnedForUpdate(id, user.getId());
+		}
+		if (changes.isEmpty()) {
+			findById(id, user);
+		} else if (accountsRepo.updateOwned(id, user.getId(), changes) == 0) {
+			// nothing matched, find out whether the account is missing or owned by someone else
+			if (accountsRepo.existsById(id)) {
+				throw new UnauthorizedAccessException();
+			}
+			throw new AccountNotFoundException();
+		} else if (previous.isPresent()) {
+			Accounts account = previous.get();
+			AccountType type = changes.containsKey("type") ? (AccountType) changes.get("type") : account.getType();
+			long balance = changes.containsKey("balance") ? (Long) changes.get("balance") : account.getBalance();
+			accountSummaryService.apply(user.getId(), new Changes().remove(account).add(type.getId(), 1, balance));
+		}
+		if (changes.isEmpty()) {
+			return;
+		}
+		if (previous.isPresent()) {
+			// the locked row was read before the update, which bumped its version by one
+			accountEventService.publish(user.getId(), new AccountEventDTO(AccountEventDTO.UPDATED, id
+					, previous.get().getVersion() + 1));
+		} else if (accountEventService.hasSubscribers(user.getId())) {
+			accountEventService.publish(user.getId(), new AccountEventDTO(AccountEventDTO.UPDATED, id
+					, accountsRepo.findVersionById(id)));
+		}
+	}
+	
+	/**
+	 * Method to read the members of a JSON Merge Patch into the changes to apply to an account. 
+	 * @param patch JSON object with any of description, balance and type
+	 * @return Map of property name to new value, in patch order
+	 * @throws BadValueException
+	 * @throws TypeNotFoundException
+	 */
+	Map<String, Object> toChanges(JsonNode patch) throws BadValueException, TypeNotFoundException {
+		if (patch == null || !patch.isObject()) {
+			throw new BadValueException("Merge patch must be a JSON object");
+		}
+		Map<String, Object> changes = new LinkedHashMap<>();
+		Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+		while (fields.hasNext()) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			JsonNode value = field.getValue();
+			switch (field.getKey()) {
+			case "description":
+				if (!value.isNull() && !value.isTextual()) {
+					throw new BadValueException("description must be a string");
+				}
+				changes.put("description", value.isNull() ? null : value.asText());
+				break;
+			case "balance":
+				if (!value.isNumber()) {
+					throw new BadValueException("balance must be a number");
+				}
+				try {
+					changes.put("balance", MinorUnits.fromDecimal(value.decimalValue()));
+				} catch (ArithmeticException e) {
+					throw new BadValueException("balance must have at most " + MinorUnits.SCALE + " decimal places");
+				}
+				break;
+			case "type":
+				if (!value.path("id").isInt()) {
+					throw new BadValueException("type must be an object with an id");
+				}
+				Optional<AccountType> type = findType(value.get("id").asInt());
+				if (!type.isPresent()) {
+					throw new TypeNotFoundException();
+				}
+				changes.put("type", type.get());
+				break;
+			default:
+				throw new BadValueException(field.getKey() + " cannot be changed");
+			}
+		}
+		return changes;
+	}
+	
 	/**
 	 * Method to handle deleting an account from the repo.
 	 * @param id
@@ -154,6 +453,7 @@ public class AccountsService {
 	 * @throws AccountNotFoundException
 	 * @throws UnauthorizedAccessException
 	 */
+	@Transactional
 	public boolean delete(int id, SystemUserDTO user) throws AccountNotFoundException, UnauthorizedAccessException {
 		Optional<Accounts> account = accountsRepo.findById(id);
 		if (account.isPresent()) {
@@ -161,6 +461,8 @@ public class AccountsService {
 				throw new UnauthorizedAccessException();
 			}
 			accountsRepo.delete(account.get());
+			accountSummaryService.apply(user.getId(), new Changes().remove(account.get()));
+			accountEventService.publish(user.getId(), AccountEventDTO.DELETED, account.get());
 			return true;			
 		} else {
 			throw new AccountNotFoundException();
@@ -169,7 +471,27 @@ public class AccountsService {
 	}
 	
 	/**
-	 * Method to get a user from the User-Auth-Service.
+	 * Method to handle deleting an account only if it is still at the expected version.
+	 * @param id
+	 * @param user
+	 * @param expectedVersion version from the If-Match header, or null to delete unconditionally
+	 * @return boolean
+	 * @throws PreconditionFailedException if the account has changed since the expected version
+	 * @throws AccountNotFoundException
+	 * @throws UnauthorizedAccessException
+	 */
+	@Transactional
+	public boolean delete(int id, SystemUserDTO user, Long expectedVersion) throws PreconditionFailedException
+		, AccountNotFoundException, UnauthorizedAccessException {
+		checkVersion(id, user, expectedVersion);
+		return delete(id, user);
+	}
+	
+	/**
+	 * Method to get a user from the User-Auth-Service. Signed tokens are verified locally by 
+	 * {@link TokenVerifier} when possible. Validation results are cached by {@link TokenCache}
+	 * so repeated requests with the same token do not each need a call to the User-Auth-Service, and 
+	 * concurrent requests with the same token share a single validate request.
 	 * @param token
 	 * @return SystemUserDTO
 	 * @throws ProcessingException
@@ -177,18 +499,143 @@ public class AccountsService {
 	 * @throws UserNotFoundException
 	 */
 	public SystemUserDTO getUser(String token) throws ProcessingException, ProcessingRuntimeException, UserNotFoundException {
+		SystemUserDTO user = tokenVerifier.verify(token);
+		if (user != null) {
+			return user;
+		}
+		String key = TokenCache.hash(token);
+		user = tokenCache.get(key);
+		if (user != null) {
+			return user;
+		}
+		CompletableFuture<SystemUserDTO> pending = new CompletableFuture<>();
+		CompletableFuture<SystemUserDTO> existing = pendingValidations.putIfAbsent(key, pending);
+		if (existing != null) {
+			return awaitValidation(existing);
+		}
+		try {
+			// another caller may have finished validating between the cache check and the putIfAbsent
+			user = tokenCache.get(key);
+			if (user == null) {
+				user = validateOrFallback(token, key);
+			}
+			pending.complete(user);
+			return user;
+		} catch (UserNotFoundException e) {
+			tokenCache.putNotFound(key, e.getMessage());
+			pending.completeExceptionally(e);
+			throw e;
+		} catch (ProcessingException | RuntimeException e) {
+			pending.completeExceptionally(e);
+			throw e;
+		} finally {
+			pendingValidations.remove(key, pending);
+		}
+	}
+	
+	/**
+	 * Method to wait on a validate request started by another caller with the same token.
+	 * @param pending
+	 * @return SystemUserDTO
+	 * @throws ProcessingException
+	 */
+	private SystemUserDTO awaitValidation(CompletableFuture<SystemUserDTO> pending) throws ProcessingException {
+		try {
+			return pending.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ProcessingException("Interrupted while validating token");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof ProcessingException) {
+				throw (ProcessingException) e.getCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new ProcessingException("Unable to validate token");
+		}
+	}
+	
+	/**
+	 * Method to validate a token and cache the result. If the circuit breaker for the User-Auth-Service
+	 * is open, the last user validated with the token is used when {@link TokenCache} still holds one.
+	 * @param token
+	 * @param key hashed token
+	 * @return SystemUserDTO
+	 * @throws ProcessingException
+	 * @throws ProcessingRuntimeException
+	 * @throws UserNotFoundException
+	 * @throws ServiceUnavailableException
+	 */
+	private SystemUserDTO validateOrFallback(String token, String key) throws ProcessingException, ProcessingRuntimeException
+		, UserNotFoundException, ServiceUnavailableException {
+		SystemUserDTO user;
+		try {
+			user = validate(token);
+		} catch (ServiceUnavailableException e) {
+			user = tokenCache.getFallback(key);
+			if (user == null) {
+				throw e;
+			}
+			log.warn("user-auth-service unavailable, using last validated user " + user.getId());
+			return user;
+		}
+		if (user != null) {
+			tokenCache.put(key, user);
+		}
+		return user;
+	}
+	
+	/**
+	 * Method to send a token validate request to the User-Auth-Service.
+	 * @param token
+	 * @return SystemUserDTO
+	 * @throws ProcessingException
+	 * @throws ProcessingRuntimeException
+	 * @throws UserNotFoundException
+	 */
+	private SystemUserDTO validate(String token) throws ProcessingException, ProcessingRuntimeException, UserNotFoundException {
 		HttpEntity<String> request;
 		SystemUserDTO user = null;
 		try {
 			HttpHeaders headers = new HttpHeaders();
 			headers.setContentType(MediaType.APPLICATION_JSON);
 			request = new HttpEntity<>(om.writeValueAsString(token), headers);
-			String url = discoveryClient.getInstances("user-auth-service").get(0).getUri().toString();
-			user = restTemplate.postForObject(url + "/validate", request, SystemUserDTO.class);
 		} catch (JsonProcessingException e) {
 			log.error(e.getMessage());
 			throw new ProcessingException("Unable to send token validate request");
 		}
+		ServiceInstance instance = authServiceResolver.choose();
+		long permit = authCircuitBreaker.tryAcquire();
+		if (permit == AuthCircuitBreaker.REJECTED) {
+			throw new ServiceUnavailableException("user-auth-service unavailable");
+		}
+		try {
+			user = restTemplate.postForObject(instance.getUri() + "/validate", request, SystemUserDTO.class);
+		} catch (ProcessingRuntimeException e) {
+			recordFailure(instance, permit);
+			throw e;
+		} catch (ResourceAccessException e) {
+			recordFailure(instance, permit);
+			log.error(e.getMessage());
+			throw new ProcessingRuntimeException("Unable to reach user-auth-service");
+		} catch (UserNotFoundException e) {
+			recordSuccess(instance, permit);
+			throw e;
+		} catch (RuntimeException e) {
+			recordFailure(instance, permit);
+			throw e;
+		}
+		recordSuccess(instance, permit);
 		return user;
 	}
+	
+	private void recordSuccess(ServiceInstance instance, long permit) {
+		authServiceResolver.recordSuccess(instance);
+		authCircuitBreaker.onSuccess(permit);
+	}
+	
+	private void recordFailure(ServiceInstance instance, long permit) {
+		authServiceResolver.recordFailure(instance);
+		authCircuitBreaker.onFailure(permit);
+	}
 }
@@ -0,0 +1,195 @@
+package org.generictech.accounts.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Circuit breaker for requests to the User-Auth-Service. The outcome of the last windowSize requests
+ * is kept, and once the failure rate over at least minimumCalls requests reaches the threshold the
+ * breaker opens and requests are rejected without being sent. After openMs a limited number of probe
+ * requests are let through, and the breaker closes again once they all succeed.
+ * <p>
+ * Each permit carries the generation of the state it was given in, which changes on every transition, 
+ * so the outcome of a request that was sent before the breaker last changed state is ignored rather
+ * than counted as a probe or in the new window.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Component
+@Slf4j
+public class AuthCircuitBreaker implements MeterBinder {
+
+	public enum State { CLOSED, OPEN, HALF_OPEN }
+
+	/**
+	 * Permit returned by {@link #tryAcquire()} when the breaker is open.
+	 */
+	public static final long REJECTED = -1;
+
+	private final boolean[] window;
+	private final int minimumCalls;
+	private final int failureRateThreshold;
+	private final long openMs;
+	private final int halfOpenProbes;
+	private final LongSupplier clock;
+
+	private State state = State.CLOSED;
+	private long generation;
+	private int windowIndex;
+	private int recorded;
+	private int failures;
+	private long openedAt;
+	private int probesInFlight;
+	private int probeSuccesses;
+
+	private final AtomicLong rejected = new AtomicLong();
+	private final Map<State, AtomicLong> transitions = new EnumMap<>(State.class);
+
+	@Autowired
+	public AuthCircuitBreaker(@Value("${accounts.auth.breaker.window-size:20}") int windowSize
+			, @Value("${accounts.auth.breaker.minimum-calls:10}") int minimumCalls
+			, @Value("${accounts.auth.breaker.failure-rate-threshold:50}") int failureRateThreshold
+			, @Value("${accounts.auth.breaker.open-ms:10000}") long openMs
+			, @Value("${accounts.auth.breaker.half-open-probes:3}") int halfOpenProbes) {
+		this(windowSize, minimumCalls, failureRateThreshold, openMs, halfOpenProbes, System::currentTimeMillis);
+	}
+
+	AuthCircuitBreaker(int windowSize, int minimumCalls, int failureRateThreshold, long openMs, int halfOpenProbes
+			, LongSupplier clock) {
+		this.window = new boolean[windowSize];
+		this.minimumCalls = Math.min(minimumCalls, windowSize);
+		this.failureRateThreshold = failureRateThreshold;
+		this.openMs = openMs;
+		this.halfOpenProbes = halfOpenProbes;
+		this.clock = clock;
+		for (State s : State.values()) {
+			transitions.put(s, new AtomicLong());
+		}
+	}
+
+	/**
+	 * Method to check whether a request may be sent. Every permitted request must be followed by a call
+	 * to {@link #onSuccess(long)} or {@link #onFailure(long)} with the permit returned.
+	 * @return long permit, or REJECTED if the breaker is open
+	 */
+	public synchronized long tryAcquire() {
+		if (state == State.OPEN) {
+			if (clock.getAsLong() - openedAt < openMs) {
+				rejected.incrementAndGet();
+				return REJECTED;
+			}
+			transition(State.HALF_OPEN);
+			probesInFlight = 0;
+			probeSuccesses = 0;
+		}
+		if (state == State.HALF_OPEN) {
+			if (probesInFlight >= halfOpenProbes) {
+				rejected.incrementAndGet();
+				return REJECTED;
+			}
+			probesInFlight++;
+		}
+		return generation;
+	}
+
+	/**
+	 * Method to record a successful request.
+	 * @param permit returned by {@link #tryAcquire()} for the request
+	 */
+	public synchronized void onSuccess(long permit) {
+		if (permit != generation) {
+			return;
+		}
+		if (state == State.HALF_OPEN) {
+			probesInFlight--;
+			if (++probeSuccesses >= halfOpenProbes) {
+				resetWindow();
+				transition(State.CLOSED);
+			}
+		} else if (state == State.CLOSED) {
+			record(false);
+		}
+	}
+
+	/**
+	 * Method to record a failed request.
+	 * @param permit returned by {@link #tryAcquire()} for the request
+	 */
+	public synchronized void onFailure(long permit) {
+		if (permit != generation) {
+			return;
+		}
+		if (state == State.HALF_OPEN) {
+			open();
+		} else if (state == State.CLOSED) {
+			record(true);
+			if (recorded >= minimumCalls && failures * 100 >= failureRateThreshold * recorded) {
+				open();
+			}
+		}
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("auth.breaker.state", this, breaker -> breaker.getState().ordinal())
+			.description("0 closed, 1 open, 2 half open")
+			.register(registry);
+		FunctionCounter.builder("auth.breaker.rejected", rejected, AtomicLong::get)
+			.register(registry);
+		for (Map.Entry<State, AtomicLong> entry : transitions.entrySet()) {
+			FunctionCounter.builder("auth.breaker.transitions", entry.getValue(), AtomicLong::get)
+				.tag("state", entry.getKey().name().toLowerCase())
+				.register(registry);
+		}
+	}
+
+	private void open() {
+		openedAt = clock.getAsLong();
+		transition(State.OPEN);
+	}
+
+	private void record(boolean failure) {
+		if (recorded == window.length) {
+			if (window[windowIndex]) {
+				failures--;
+			}
+		} else {
+			recorded++;
+		}
+		window[windowIndex] = failure;
+		if (failure) {
+			failures++;
+		}
+		windowIndex = (windowIndex + 1) % window.length;
+	}
+
+	private void resetWindow() {
+		windowIndex = 0;
+		recorded = 0;
+		failures = 0;
+	}
+
+	private void transition(State next) {
+		log.warn("user-auth-service circuit breaker " + state + " -> " + next);
+		state = next;
+		generation++;
+		transitions.get(next).incrementAndGet();
+	}
+}
@@ -0,0 +1,154 @@
+package org.generictech.accounts.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import org.generictech.accounts.exception.ProcessingRuntimeException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Class to select which User-Auth-Service instance a request is sent to. The instance list is cached
+ * and refreshed whenever the discovery client reports a registry change, requests are spread across
+ * instances round-robin, and an instance that fails repeatedly is skipped for a cool down period.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Component
+@Slf4j
+public class AuthServiceResolver {
+
+	static final String SERVICE_ID = "user-auth-service";
+
+	private final DiscoveryClient discoveryClient;
+	private final int failureThreshold;
+	private final long ejectMs;
+	private final LongSupplier clock;
+
+	private volatile List<ServiceInstance> instances = Collections.emptyList();
+	private final AtomicInteger next = new AtomicInteger();
+	private final ConcurrentMap<String, InstanceHealth> health = new ConcurrentHashMap<>();
+
+	@Autowired
+	public AuthServiceResolver(DiscoveryClient discoveryClient
+			, @Value("${accounts.auth.instances.failure-threshold:3}") int failureThreshold
+			, @Value("${accounts.auth.instances.eject-ms:30000}") long ejectMs) {
+		this(discoveryClient, failureThreshold, ejectMs, System::currentTimeMillis);
+	}
+
+	AuthServiceResolver(DiscoveryClient discoveryClient, int failureThreshold, long ejectMs, LongSupplier clock) {
+		this.discoveryClient = discoveryClient;
+		this.failureThreshold = failureThreshold;
+		this.ejectMs = ejectMs;
+		this.clock = clock;
+	}
+
+	/**
+	 * Method to refresh the cached instance list when the discovery client fetches the registry.
+	 * @param event HeartbeatEvent
+	 */
+	@EventListener(HeartbeatEvent.class)
+	public void onHeartbeat(HeartbeatEvent event) {
+		refresh();
+	}
+
+	/**
+	 * Method to reload the instance list from the discovery client.
+	 */
+	public void refresh() {
+		List<ServiceInstance> current = new ArrayList<>(discoveryClient.getInstances(SERVICE_ID));
+		Set<String> keys = new HashSet<>();
+		for (ServiceInstance instance : current) {
+			keys.add(key(instance));
+		}
+		health.keySet().retainAll(keys);
+		instances = Collections.unmodifiableList(current);
+	}
+
+	/**
+	 * Method to choose the next instance to send a request to.
+	 * @return ServiceInstance
+	 * @throws ProcessingRuntimeException if no instance is registered
+	 */
+	public ServiceInstance choose() throws ProcessingRuntimeException {
+		List<ServiceInstance> candidates = instances;
+		if (candidates.isEmpty()) {
+			refresh();
+			candidates = instances;
+		}
+		if (candidates.isEmpty()) {
+			throw new ProcessingRuntimeException("No " + SERVICE_ID + " instances available");
+		}
+		long now = clock.getAsLong();
+		List<ServiceInstance> available = candidates;
+		for (ServiceInstance instance : candidates) {
+			if (isEjected(instance, now)) {
+				available = new ArrayList<>(candidates.size());
+				for (ServiceInstance candidate : candidates) {
+					if (!isEjected(candidate, now)) {
+						available.add(candidate);
+					}
+				}
+				break;
+			}
+		}
+		if (available.isEmpty()) {
+			// every instance is ejected, keep sending requests rather than failing all of them
+			available = candidates;
+		}
+		return available.get(Math.floorMod(next.getAndIncrement(), available.size()));
+	}
+
+	/**
+	 * Method to record a successful request to an instance.
+	 * @param instance
+	 */
+	public void recordSuccess(ServiceInstance instance) {
+		InstanceHealth instanceHealth = health.get(key(instance));
+		if (instanceHealth != null) {
+			instanceHealth.failures.set(0);
+		}
+	}
+
+	/**
+	 * Method to record a failed request to an instance. After failureThreshold consecutive failures
+	 * the instance is skipped for ejectMs milliseconds.
+	 * @param instance
+	 */
+	public void recordFailure(ServiceInstance instance) {
+		InstanceHealth instanceHealth = health.computeIfAbsent(key(instance), k -> new InstanceHealth());
+		if (instanceHealth.failures.incrementAndGet() >= failureThreshold) {
+			instanceHealth.failures.set(0);
+			instanceHealth.ejectedUntil = clock.getAsLong() + ejectMs;
+			log.warn("Ejecting " + SERVICE_ID + " instance " + instance.getUri() + " for " + ejectMs + "ms");
+		}
+	}
+
+	private boolean isEjected(ServiceInstance instance, long now) {
+		InstanceHealth instanceHealth = health.get(key(instance));
+		return instanceHealth != null && instanceHealth.ejectedUntil > now;
+	}
+
+	private static String key(ServiceInstance instance) {
+		return instance.getUri().toString();
+	}
+
+	private static final class InstanceHealth {
+		private final AtomicInteger failures = new AtomicInteger();
+		private volatile long ejectedUntil;
+	}
+}
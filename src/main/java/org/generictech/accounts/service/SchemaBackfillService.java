@@ -0,0 +1,226 @@
+package org.generictech.accounts.service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.generictech.accounts.config.ShardContext;
+import org.generictech.accounts.config.Shards;
+import org.generictech.accounts.dto.BackfillProgressDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class to fill in the columns added by schema changes that are rolled out in steps, for rows
+ * written before the application wrote them. Rows are updated in chunks of
+ * accounts.migration.backfill.chunk-size ordered by id, one chunk per backfill and shard every
+ * accounts.migration.backfill.pause-ms, so a table is never locked for long. The last id updated is kept
+ * in schema_backfill in the same transaction as the chunk, so a backfill resumes where it stopped after a
+ * restart and instances running it at the same time do not repeat each other's work.
+ * <p>
+ * Once the last row has been updated the columns are compared, and if instances that do not write both
+ * columns changed any rows in the meantime another pass is started.
+ * <ul>
+ * <li>accounts.migration.type-column.backfill-enabled copies acount_type_id into account_type_id.</li>
+ * <li>accounts.migration.minor-units.backfill-enabled converts the decimal amounts of accounts,
+ * adjustments and summaries into their minor unit columns.</li>
+ * </ul>
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Service
+@Slf4j
+public class SchemaBackfillService {
+
+	static final Backfill ACCOUNT_TYPE_ID = new Backfill("accounts.account_type_id", "accounts", "account_id"
+			, "account_type_id = acount_type_id", "account_type_id is null or account_type_id <> acount_type_id");
+	static final Backfill ACCOUNT_BALANCE = new Backfill("accounts.balance_minor", "accounts", "account_id"
+			, "balance_minor = round(balance * 100)", "balance_minor is null or balance_minor <> round(balance * 100)");
+	static final Backfill ADJUSTMENT_AMOUNTS = new Backfill("account_adjustment.minor_units", "account_adjustment"
+			, "adjustment_id", "delta_minor = round(delta * 100), balance_minor = round(balance * 100)"
+			, "delta_minor is null or delta_minor <> round(delta * 100)"
+					+ " or balance_minor is null or balance_minor <> round(balance * 100)");
+	static final Backfill SUMMARY_BALANCE = new Backfill("account_summary.balance_minor", "account_summary"
+			, "system_user_id", "balance_minor = round(balance * 100)"
+			, "balance_minor is null or balance_minor <> round(balance * 100)");
+	private static final String UNSHARDED = "default";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private Shards shards;
+	@Value("${accounts.migration.type-column.backfill-enabled:true}")
+	private boolean typeColumnEnabled;
+	@Value("${accounts.migration.minor-units.backfill-enabled:true}")
+	private boolean minorUnitsEnabled;
+	@Value("${accounts.migration.backfill.chunk-size:1000}")
+	private int chunkSize;
+	@Value("${accounts.migration.backfill.report-ms:10000}")
+	private long reportMs;
+
+	private final TransactionTemplate transactionTemplate;
+	private final Map<List<String>, BackfillProgressDTO> progress = new ConcurrentHashMap<>();
+	private final Map<List<String>, long[]> runs = new ConcurrentHashMap<>();
+	private volatile long lastReport;
+
+	@Autowired
+	public SchemaBackfillService(PlatformTransactionManager transactionManager) {
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	/**
+	 * Method to update the next chunk of every enabled backfill on every shard that has not finished.
+	 */
+	@Scheduled(fixedDelayString = "${accounts.migration.backfill.pause-ms:100}"
+			, initialDelayString = "${accounts.migration.backfill.pause-ms:100}")
+	public void backfill() {
+		List<Backfill> enabled = new ArrayList<>();
+		if (typeColumnEnabled) {
+			enabled.add(ACCOUNT_TYPE_ID);
+		}
+		if (minorUnitsEnabled) {
+			enabled.add(ACCOUNT_BALANCE);
+			enabled.add(ADJUSTMENT_AMOUNTS);
+			enabled.add(SUMMARY_BALANCE);
+		}
+		if (enabled.isEmpty()) {
+			return;
+		}
+		shards.forEach(() -> {
+			for (Backfill backfill : enabled) {
+				BackfillProgressDTO current = progress.get(key(backfill));
+				if (current == null || !current.isComplete()) {
+					copyChunk(backfill);
+				}
+			}
+		});
+		long now = System.currentTimeMillis();
+		if (now - lastReport >= reportMs) {
+			lastReport = now;
+			for (BackfillProgressDTO current : progress.values()) {
+				if (!current.isComplete()) {
+					log.info("Backfilling " + current.getName() + ": " + current);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method to update the next chunk of a backfill on the current shard.
+	 * @param backfill
+	 * @return BackfillProgressDTO progress after the chunk
+	 */
+	public BackfillProgressDTO copyChunk(Backfill backfill) {
+		List<String> key = key(backfill);
+		String shard = key.get(1);
+		long[] run = runs.computeIfAbsent(key, name -> new long[] {System.nanoTime(), 0});
+		BackfillProgressDTO current = transactionTemplate.execute(status -> {
+			List<long[]> saved = jdbcTemplate.query("select last_id, rows_updated from schema_backfill where name = ?"
+					, (row, i) -> new long[] {row.getInt(1), row.getLong(2)}, backfill.name);
+			if (saved.isEmpty()) {
+				jdbcTemplate.update("insert into schema_backfill (name, last_id, rows_updated, updated_at) values (?, 0, 0, ?)"
+						, backfill.name, Timestamp.from(Instant.now()));
+				saved = new ArrayList<>();
+				saved.add(new long[] {0, 0});
+			}
+			int lastId = (int) saved.get(0)[0];
+			long rowsUpdated = saved.get(0)[1];
+			Integer maxId = jdbcTemplate.queryForObject("select max(" + backfill.id + ") from " + backfill.table
+					, Integer.class);
+			Integer upper = jdbcTemplate.queryForObject("select max(" + backfill.id + ") from (select " + backfill.id
+					+ " from " + backfill.table + " where " + backfill.id + " > ? order by " + backfill.id + " limit ?) chunk"
+					, Integer.class, lastId, chunkSize);
+			if (upper == null) {
+				long lag = jdbcTemplate.queryForObject("select count(*) from " + backfill.table + " where "
+						+ backfill.pending, Long.class);
+				if (lag > 0) {
+					// rows were written without the copy after the pass went by them
+					save(backfill, lastId, 0, rowsUpdated);
+				}
+				return new BackfillProgressDTO(backfill.name, shard, lastId, maxId == null ? 0 : maxId, rowsUpdated
+						, rate(run), lag, lag == 0);
+			}
+			int updated = jdbcTemplate.update("update " + backfill.table + " set " + backfill.copy + " where "
+					+ backfill.id + " > ? and " + backfill.id + " <= ? and (" + backfill.pending + ")", lastId, upper);
+			if (!save(backfill, lastId, upper, rowsUpdated + updated)) {
+				// another instance copied this chunk first
+				status.setRollbackOnly();
+				return null;
+			}
+			run[1] += updated;
+			return new BackfillProgressDTO(backfill.name, shard, upper, maxId, rowsUpdated + updated, rate(run)
+					, maxId - upper, false);
+		});
+		if (current == null) {
+			return progress.get(key);
+		}
+		BackfillProgressDTO previous = progress.put(key, current);
+		if (current.isComplete() && (previous == null || !previous.isComplete())) {
+			log.info("Backfill of " + backfill.name + " complete: " + current);
+		}
+		return current;
+	}
+
+	/**
+	 * Method to get the latest progress of each backfill on each shard.
+	 * @return List<BackfillProgressDTO>
+	 */
+	public List<BackfillProgressDTO> getProgress() {
+		return new ArrayList<>(progress.values());
+	}
+
+	private boolean save(Backfill backfill, int lastId, int nextId, long rowsUpdated) {
+		return jdbcTemplate.update("update schema_backfill set last_id = ?, rows_updated = ?, updated_at = ?"
+				+ " where name = ? and last_id = ?", nextId, rowsUpdated, Timestamp.from(Instant.now()), backfill.name
+				, lastId) == 1;
+	}
+
+	private static long rate(long[] run) {
+		long elapsed = System.nanoTime() - run[0];
+		return elapsed <= 0 ? 0 : run[1] * TimeUnit.SECONDS.toNanos(1) / elapsed;
+	}
+
+	private static List<String> key(Backfill backfill) {
+		String shard = ShardContext.current();
+		List<String> key = new ArrayList<>(2);
+		key.add(backfill.name);
+		key.add(shard == null ? UNSHARDED : shard);
+		return key;
+	}
+
+	/**
+	 * Class to describe one backfill: the rows of a table still to update, ordered by an integer id, and
+	 * the assignments that update them.
+	 */
+	public static final class Backfill {
+
+		private final String name;
+		private final String table;
+		private final String id;
+		private final String copy;
+		private final String pending;
+
+		Backfill(String name, String table, String id, String copy, String pending) {
+			this.name = name;
+			this.table = table;
+			this.id = id;
+			this.copy = copy;
+			this.pending = pending;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+}
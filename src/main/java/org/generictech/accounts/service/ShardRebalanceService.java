@@ -0,0 +1,218 @@
+package org.generictech.accounts.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.generictech.accounts.config.ShardDirectory;
+import org.generictech.accounts.config.ShardRing;
+import org.generictech.accounts.config.ShardRoutingDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class to move users' accounts between shards while the application is running. A user being
+ * moved is marked in the {@link ShardDirectory} so their changes are refused, and after a grace period
+ * long enough for every instance to reload the directory and finish writes already in progress their
+ * accounts, adjustments and account summaries are copied to the new shard. The directory is then pointed
+ * at the new shard and, after another grace period for instances still reading from the old shard, the
+ * old rows are removed. Reads keep working for the whole move. Rows a move left behind on a shard the
+ * directory no longer places the user on, such as when the instance stopped before removing them, are
+ * removed at the start of the next rebalance, after the same grace period and only if the user's entry
+ * read again from the directory shard still places them elsewhere.
+ * <p>
+ * To add a shard, list it in accounts.shards.urls but not in accounts.shards.ring, rebalance onto a ring
+ * over all shards, then add it to accounts.shards.ring so new users are placed on it too.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty("accounts.shards.urls")
+public class ShardRebalanceService {
+
+	private final Map<String, DataSource> shards;
+	private final ShardDirectory directory;
+	private final long graceMs;
+
+	@Autowired
+	public ShardRebalanceService(ShardRoutingDataSource shardRoutingDataSource
+			, @Value("${accounts.shards.move-grace-ms:10000}") long graceMs) {
+		this.shards = shardRoutingDataSource.getShards();
+		this.directory = shardRoutingDataSource.getDirectory();
+		this.graceMs = graceMs;
+	}
+
+	/**
+	 * Method to find the users that are not on the shard a ring places them on, after reloading the
+	 * directory.
+	 * @param ring
+	 * @return Map of user id to the shard they should move to
+	 */
+	public Map<Integer, String> plan(ShardRing ring) {
+		directory.refresh();
+		Map<Integer, String> moves = new LinkedHashMap<>();
+		for (DataSource shard : shards.values()) {
+			for (Integer userId : new JdbcTemplate(shard).queryForList(
+					"select distinct system_user_id from accounts order by system_user_id", Integer.class)) {
+				String target = ring.shardFor(userId);
+				if (!target.equals(directory.shardFor(userId))) {
+					moves.put(userId, target);
+				}
+			}
+		}
+		return moves;
+	}
+
+	/**
+	 * Method to find the users with rows on a shard the directory does not place them on, leaving out
+	 * users being moved, after reloading the directory.
+	 * @return Map of shard name to the users with rows left on it
+	 */
+	public Map<String, List<Integer>> leftovers() {
+		directory.refresh();
+		Map<String, List<Integer>> leftovers = new LinkedHashMap<>();
+		for (Map.Entry<String, DataSource> shard : shards.entrySet()) {
+			List<Integer> users = new ArrayList<>();
+			for (Integer userId : new JdbcTemplate(shard.getValue()).queryForList("select system_user_id from accounts"
+					+ " union select system_user_id from account_adjustment union select system_user_id from account_summary"
+					, Integer.class)) {
+				if (!directory.isMoving(userId) && !shard.getKey().equals(directory.shardFor(userId))) {
+					users.add(userId);
+				}
+			}
+			if (!users.isEmpty()) {
+				leftovers.put(shard.getKey(), users);
+			}
+		}
+		return leftovers;
+	}
+
+	/**
+	 * Method to remove the rows users have on shards the directory does not place them on. Rows are only
+	 * removed after the grace period, so instances that have not reloaded the directory since a recent
+	 * move have stopped reading them, and only if the user's entry read again just before still places
+	 * them on another shard and not in a move.
+	 * @return int number of users whose rows were removed from a shard
+	 * @throws InterruptedException
+	 */
+	public int removeLeftovers() throws InterruptedException {
+		Map<String, List<Integer>> leftovers = leftovers();
+		if (leftovers.isEmpty()) {
+			return 0;
+		}
+		Thread.sleep(graceMs);
+		int removed = 0;
+		for (Map.Entry<String, List<Integer>> leftover : leftovers.entrySet()) {
+			for (Integer userId : leftover.getValue()) {
+				directory.refresh(userId);
+				if (directory.isMoving(userId) || leftover.getKey().equals(directory.shardFor(userId))) {
+					continue;
+				}
+				inTransaction(shards.get(leftover.getKey()), jdbcTemplate -> deleteUser(jdbcTemplate, userId));
+				log.warn("Removed rows of user " + userId + " left on " + leftover.getKey());
+				removed++;
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Method to remove rows left behind by earlier moves, then move every user that is not on the shard a
+	 * ring places them on, one user at a time.
+	 * @param ring
+	 * @return Map of user id to the shard they were moved to
+	 * @throws InterruptedException
+	 */
+	public Map<Integer, String> rebalance(ShardRing ring) throws InterruptedException {
+		removeLeftovers();
+		Map<Integer, String> moves = plan(ring);
+		for (Map.Entry<Integer, String> move : moves.entrySet()) {
+			move(move.getKey(), move.getValue());
+		}
+		return moves;
+	}
+
+	/**
+	 * Method to move a user's accounts, adjustments and account summaries to another shard. If the copy
+	 * fails the user stays on their current shard and can be moved again. The current shard is read from
+	 * the directory shard, so a move another instance finished since the last reload is not undone.
+	 * @param userId
+	 * @param target name of the shard to move to
+	 * @throws InterruptedException
+	 */
+	public void move(int userId, String target) throws InterruptedException {
+		if (!shards.containsKey(target)) {
+			throw new IllegalArgumentException("Unknown shard " + target);
+		}
+		directory.refresh(userId);
+		String source = directory.shardFor(userId);
+		if (source.equals(target)) {
+			return;
+		}
+		directory.startMove(userId);
+		try {
+			Thread.sleep(graceMs);
+			copy(userId, shards.get(source), shards.get(target));
+		} catch (InterruptedException | RuntimeException e) {
+			directory.finishMove(userId, source);
+			throw e;
+		}
+		directory.finishMove(userId, target);
+		Thread.sleep(graceMs);
+		inTransaction(shards.get(source), jdbcTemplate -> deleteUser(jdbcTemplate, userId));
+	}
+
+	/**
+	 * Method to replace the user's rows on the target shard with the rows on the source shard in a single
+	 * transaction. Account ids and versions are kept, adjustment ids are generated by the target.
+	 */
+	private static void copy(int userId, DataSource source, DataSource target) {
+		JdbcTemplate from = new JdbcTemplate(source);
+		List<Object[]> accounts = from.query("select account_id, acount_type_id, account_type_id, description"
+				+ ", balance, balance_minor, system_user_id, version from accounts where system_user_id = ?"
+				, (row, i) -> new Object[] {row.getInt(1), row.getInt(2), row.getObject(3), row.getString(4)
+						, row.getDouble(5), row.getObject(6), row.getInt(7), row.getLong(8)}, userId);
+		List<Object[]> adjustments = from.query("select system_user_id, idempotency_key, account_id, delta, balance"
+				+ ", delta_minor, balance_minor, created_at from account_adjustment where system_user_id = ?"
+				, (row, i) -> new Object[] {row.getInt(1), row.getString(2), row.getInt(3), row.getDouble(4)
+						, row.getDouble(5), row.getObject(6), row.getObject(7), row.getTimestamp(8)}, userId);
+		List<Object[]> summaries = from.query("select system_user_id, account_type_id, accounts, balance, balance_minor"
+				+ " from account_summary where system_user_id = ?", (row, i) -> new Object[] {row.getInt(1), row.getInt(2)
+						, row.getLong(3), row.getDouble(4), row.getObject(5)}, userId);
+		inTransaction(target, to -> {
+			deleteUser(to, userId);
+			to.batchUpdate("insert into accounts (account_id, acount_type_id, account_type_id, description"
+					+ ", balance, balance_minor, system_user_id, version) values (?, ?, ?, ?, ?, ?, ?, ?)", accounts);
+			to.batchUpdate("insert into account_adjustment (system_user_id, idempotency_key, account_id, delta, balance"
+					+ ", delta_minor, balance_minor, created_at) values (?, ?, ?, ?, ?, ?, ?, ?)", adjustments);
+			to.batchUpdate("insert into account_summary (system_user_id, account_type_id, accounts, balance, balance_minor)"
+					+ " values (?, ?, ?, ?, ?)", summaries);
+		});
+		log.info("Copied " + accounts.size() + " accounts and " + adjustments.size() + " adjustments of user "
+				+ userId);
+	}
+
+	private static void deleteUser(JdbcTemplate jdbcTemplate, int userId) {
+		jdbcTemplate.update("delete from account_summary where system_user_id = ?", userId);
+		jdbcTemplate.update("delete from account_adjustment where system_user_id = ?", userId);
+		jdbcTemplate.update("delete from accounts where system_user_id = ?", userId);
+	}
+
+	private static void inTransaction(DataSource dataSource, Consumer<JdbcTemplate> work) {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		new TransactionTemplate(new DataSourceTransactionManager(dataSource)).executeWithoutResult(
+				status -> work.accept(jdbcTemplate));
+	}
+}
@@ -0,0 +1,182 @@
+package org.generictech.accounts.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.generictech.accounts.dto.SystemUserDTO;
+import org.generictech.accounts.exception.UserNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Class to cache the results of token validation requests to the User-Auth-Service. Entries are keyed
+ * by a hash of the token so raw tokens are never held in memory, and tokens that failed validation are
+ * cached for a shorter period than valid ones. When fallbackTtlMs is set, validated users are also kept
+ * for that long after they expire so they can be used while the User-Auth-Service is unavailable.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Component
+public class TokenCache implements MeterBinder {
+
+	private final Cache<String, CachedUser> cache;
+	private final Cache<String, SystemUserDTO> fallback;
+
+	@Autowired
+	public TokenCache(@Value("${accounts.auth.cache.max-size:10000}") long maxSize
+			, @Value("${accounts.auth.cache.ttl-ms:60000}") long ttlMs
+			, @Value("${accounts.auth.cache.negative-ttl-ms:5000}") long negativeTtlMs
+			, @Value("${accounts.auth.cache.fallback-ttl-ms:0}") long fallbackTtlMs) {
+		this(maxSize, ttlMs, negativeTtlMs, fallbackTtlMs, Ticker.systemTicker(), ForkJoinPool.commonPool());
+	}
+
+	TokenCache(long maxSize, long ttlMs, long negativeTtlMs, long fallbackTtlMs, Ticker ticker, Executor executor) {
+		long ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+		long negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMs);
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfter(new Expiry<String, CachedUser>() {
+					@Override
+					public long expireAfterCreate(String key, CachedUser value, long currentTime) {
+						return value.user != null ? ttlNanos : negativeTtlNanos;
+					}
+
+					@Override
+					public long expireAfterUpdate(String key, CachedUser value, long currentTime
+							, long currentDuration) {
+						return expireAfterCreate(key, value, currentTime);
+					}
+
+					@Override
+					public long expireAfterRead(String key, CachedUser value, long currentTime
+							, long currentDuration) {
+						return currentDuration;
+					}
+				})
+				.ticker(ticker)
+				.executor(executor)
+				.recordStats()
+				.build();
+		this.fallback = fallbackTtlMs <= 0 ? null : Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(fallbackTtlMs, TimeUnit.MILLISECONDS)
+				.ticker(ticker)
+				.executor(executor)
+				.build();
+	}
+
+	/**
+	 * Method to look up a cached validation result.
+	 * @param key hashed token, see {@link #hash(String)}
+	 * @return SystemUserDTO or null if nothing is cached for the key
+	 * @throws UserNotFoundException if the token recently failed validation
+	 */
+	public SystemUserDTO get(String key) throws UserNotFoundException {
+		CachedUser cached = cache.getIfPresent(key);
+		if (cached == null) {
+			return null;
+		}
+		if (cached.user == null) {
+			throw new UserNotFoundException(cached.message);
+		}
+		return cached.user;
+	}
+
+	/**
+	 * Method to cache a successfully validated user.
+	 * @param key hashed token
+	 * @param user SystemUserDTO
+	 */
+	public void put(String key, SystemUserDTO user) {
+		cache.put(key, new CachedUser(user, null));
+		if (fallback != null) {
+			fallback.put(key, user);
+		}
+	}
+	
+	/**
+	 * Method to look up the last user validated with a token, even if the cached result has expired.
+	 * @param key hashed token
+	 * @return SystemUserDTO or null if fallback is disabled or nothing is held for the key
+	 */
+	public SystemUserDTO getFallback(String key) {
+		return fallback == null ? null : fallback.getIfPresent(key);
+	}
+
+	/**
+	 * Method to cache a failed validation.
+	 * @param key hashed token
+	 * @param message message of the original UserNotFoundException
+	 */
+	public void putNotFound(String key, String message) {
+		cache.put(key, new CachedUser(null, message));
+		if (fallback != null) {
+			fallback.invalidate(key);
+		}
+	}
+
+	/**
+	 * Method to remove a token from the cache.
+	 * @param key hashed token
+	 */
+	public void invalidate(String key) {
+		cache.invalidate(key);
+		if (fallback != null) {
+			fallback.invalidate(key);
+		}
+	}
+
+	/**
+	 * Method to get the hit, miss and eviction counters of the cache.
+	 * @return CacheStats
+	 */
+	public CacheStats stats() {
+		return cache.stats();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, cache, "auth.token");
+	}
+
+	/**
+	 * Method to hash a token into a cache key.
+	 * @param token
+	 * @return String url safe base64 SHA-256 digest of the token
+	 */
+	public static String hash(String token) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] hashed = digest.digest((token == null ? "" : token).getBytes(StandardCharsets.UTF_8));
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(hashed);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+
+	private static final class CachedUser {
+		private final SystemUserDTO user;
+		private final String message;
+
+		private CachedUser(SystemUserDTO user, String message) {
+			this.user = user;
+			this.message = message;
+		}
+	}
+}
@@ -0,0 +1,231 @@
+package org.generictech.accounts.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.generictech.accounts.dto.SystemUserDTO;
+import org.generictech.accounts.exception.UserNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Class to verify signed (JWT) tokens locally so that a validate request to the User-Auth-Service is
+ * not needed. Verification keys are read from a JWK set at accounts.auth.jwt.key-set-location on startup
+ * and reloaded every accounts.auth.jwt.refresh-ms. HS256 and RS256 signatures are supported. Tokens must
+ * have an expiry, and must name accounts.auth.jwt.issuer and accounts.auth.jwt.audience when those are set.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@Component
+@Slf4j
+public class TokenVerifier {
+
+	private static final String INVALID = "Unable to validate user";
+
+	private final ObjectMapper om;
+	private final ResourceLoader resourceLoader;
+	private final boolean enabled;
+	private final String keySetLocation;
+	private final String issuer;
+	private final String audience;
+	private final LongSupplier epochSeconds;
+
+	private volatile Map<String, Key> keys = Collections.emptyMap();
+
+	@Autowired
+	public TokenVerifier(ObjectMapper om, ResourceLoader resourceLoader
+			, @Value("${accounts.auth.jwt.enabled:false}") boolean enabled
+			, @Value("${accounts.auth.jwt.key-set-location:}") String keySetLocation
+			, @Value("${accounts.auth.jwt.issuer:}") String issuer
+			, @Value("${accounts.auth.jwt.audience:}") String audience) {
+		this(om, resourceLoader, enabled, keySetLocation, issuer, audience, () -> System.currentTimeMillis() / 1000);
+	}
+
+	TokenVerifier(ObjectMapper om, ResourceLoader resourceLoader, boolean enabled, String keySetLocation
+			, String issuer, String audience, LongSupplier epochSeconds) {
+		this.om = om;
+		this.resourceLoader = resourceLoader;
+		this.enabled = enabled;
+		this.keySetLocation = keySetLocation;
+		this.issuer = issuer;
+		this.audience = audience;
+		this.epochSeconds = epochSeconds;
+	}
+
+	/**
+	 * Method to load the key set on startup.
+	 */
+	@PostConstruct
+	public void init() {
+		refresh();
+	}
+
+	/**
+	 * Method to reload the key set. If the key set cannot be read the previously loaded keys are kept.
+	 */
+	@Scheduled(fixedDelayString = "${accounts.auth.jwt.refresh-ms:300000}"
+			, initialDelayString = "${accounts.auth.jwt.refresh-ms:300000}")
+	public void refresh() {
+		if (!enabled || keySetLocation.isEmpty()) {
+			return;
+		}
+		try (InputStream in = resourceLoader.getResource(keySetLocation).getInputStream()) {
+			keys = parseKeySet(in);
+			log.info("Loaded " + keys.size() + " token verification keys");
+		} catch (IOException | GeneralSecurityException | IllegalArgumentException e) {
+			log.error("Unable to load token key set: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Method to verify a token locally.
+	 * @param token
+	 * @return SystemUserDTO or null if the token cannot be verified locally, either because local
+	 * verification is disabled or the token was not signed with a known key
+	 * @throws UserNotFoundException if the token signature is invalid, the token has no expiry or has 
+	 * expired, or it was not issued by the configured issuer for the configured audience
+	 */
+	public SystemUserDTO verify(String token) throws UserNotFoundException {
+		if (!enabled || token == null) {
+			return null;
+		}
+		String[] parts = token.split("\\.", -1);
+		if (parts.length != 3) {
+			return null;
+		}
+		JsonNode header;
+		try {
+			header = om.readTree(decode(parts[0]));
+		} catch (IOException | IllegalArgumentException e) {
+			return null;
+		}
+		Key key = keys.get(header.path("kid").asText());
+		if (key == null) {
+			return null;
+		}
+		JsonNode claims;
+		try {
+			byte[] signed = (parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII);
+			if (!verifySignature(header.path("alg").asText(), key, signed, decode(parts[2]))) {
+				throw new UserNotFoundException(INVALID);
+			}
+			claims = om.readTree(decode(parts[1]));
+		} catch (IOException | IllegalArgumentException | GeneralSecurityException e) {
+			throw new UserNotFoundException(INVALID);
+		}
+		long now = epochSeconds.getAsLong();
+		if (!claims.path("exp").isNumber() || claims.get("exp").asLong() <= now
+				|| (claims.has("nbf") && claims.get("nbf").asLong() > now)) {
+			throw new UserNotFoundException(INVALID);
+		}
+		if ((!issuer.isEmpty() && !issuer.equals(claims.path("iss").asText()))
+				|| (!audience.isEmpty() && !hasAudience(claims.path("aud")))) {
+			throw new UserNotFoundException(INVALID);
+		}
+		return toUser(claims);
+	}
+
+	/**
+	 * Method to read a JWK set. Symmetric keys use kty "oct" and RSA public keys kty "RSA".
+	 * @param in
+	 * @return Map of key id to key
+	 * @throws IOException
+	 * @throws GeneralSecurityException
+	 */
+	Map<String, Key> parseKeySet(InputStream in) throws IOException, GeneralSecurityException {
+		Map<String, Key> parsed = new HashMap<>();
+		for (JsonNode jwk : om.readTree(in).path("keys")) {
+			String kid = jwk.path("kid").asText();
+			String kty = jwk.path("kty").asText();
+			if ("oct".equals(kty)) {
+				parsed.put(kid, new SecretKeySpec(decode(jwk.path("k").asText()), "HmacSHA256"));
+			} else if ("RSA".equals(kty)) {
+				RSAPublicKeySpec spec = new RSAPublicKeySpec(new BigInteger(1, decode(jwk.path("n").asText()))
+						, new BigInteger(1, decode(jwk.path("e").asText())));
+				parsed.put(kid, KeyFactory.getInstance("RSA").generatePublic(spec));
+			} else {
+				log.warn("Skipping token key " + kid + " with unsupported type " + kty);
+			}
+		}
+		return Collections.unmodifiableMap(parsed);
+	}
+
+	void setKeys(Map<String, Key> keys) {
+		this.keys = keys;
+	}
+
+	private static boolean verifySignature(String alg, Key key, byte[] signed, byte[] signature) throws GeneralSecurityException {
+		if ("HS256".equals(alg) && key instanceof SecretKey) {
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(key);
+			return MessageDigest.isEqual(mac.doFinal(signed), signature);
+		} else if ("RS256".equals(alg) && key instanceof PublicKey) {
+			Signature verifier = Signature.getInstance("SHA256withRSA");
+			verifier.initVerify((PublicKey) key);
+			verifier.update(signed);
+			return verifier.verify(signature);
+		}
+		return false;
+	}
+
+	/**
+	 * Method to check whether the aud claim, a single audience or an array of them, includes the configured
+	 * audience.
+	 */
+	private boolean hasAudience(JsonNode aud) {
+		if (aud.isArray()) {
+			for (JsonNode value : aud) {
+				if (audience.equals(value.asText())) {
+					return true;
+				}
+			}
+			return false;
+		}
+		return audience.equals(aud.asText());
+	}
+
+	private static SystemUserDTO toUser(JsonNode claims) throws UserNotFoundException {
+		int id;
+		if (claims.has("id")) {
+			id = claims.get("id").asInt();
+		} else {
+			try {
+				id = Integer.parseInt(claims.path("sub").asText());
+			} catch (NumberFormatException e) {
+				throw new UserNotFoundException(INVALID);
+			}
+		}
+		return new SystemUserDTO(id, claims.path("username").asText(null), claims.path("email").asText(null));
+	}
+
+	private static byte[] decode(String value) {
+		return Base64.getUrlDecoder().decode(value);
+	}
+}
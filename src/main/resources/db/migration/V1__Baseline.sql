@@ -0,0 +1,21 @@
+-- Schema Hibernate created with ddl-auto=update before migrations were added, on PostgreSQL 10 or later.
+-- Databases created that way are baselined at this version, so this script only runs against an empty
+-- database, and both end up with the same schema. Constraint names are the ones Hibernate generated.
+
+create table account_type (
+    account_type_id int4 generated by default as identity,
+    type varchar(255) not null,
+    primary key (account_type_id)
+);
+
+create table accounts (
+    account_id int4 generated by default as identity,
+    balance float8 not null,
+    description varchar(255),
+    system_user_id int4 not null,
+    acount_type_id int4 not null,
+    primary key (account_id)
+);
+
+alter table account_type add constraint UK_6qii3htxlvo7us728yv1hs4m2 unique (type);
+alter table accounts add constraint FKi9nb7lvit3ve8lhsmj24bwmns foreign key (acount_type_id) references account_type;
@@ -0,0 +1,9 @@
+-- Users whose data has been moved off the shard the hash ring places them on. Only used on the
+-- directory shard, but created on every shard so all shards share one schema history.
+
+create table user_shard (
+    system_user_id integer not null,
+    shard varchar(64) not null,
+    moving boolean default false not null,
+    constraint user_shard_pkey primary key (system_user_id)
+);
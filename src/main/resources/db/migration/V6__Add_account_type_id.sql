@@ -0,0 +1,13 @@
+-- Expand step of renaming accounts.acount_type_id to account_type_id. The application writes both
+-- columns and SchemaBackfillService copies existing rows, tracking its progress in schema_backfill.
+-- A later migration drops acount_type_id once every instance reads account_type_id.
+
+alter table accounts add column account_type_id integer;
+
+create table schema_backfill (
+    name varchar(64) not null,
+    last_id integer not null,
+    rows_updated bigint not null,
+    updated_at timestamp not null,
+    constraint schema_backfill_pkey primary key (name)
+);
@@ -0,0 +1,15 @@
+-- Running totals of each user's accounts by type, kept up to date by the application in the same
+-- transaction as every account change and checked against the accounts table by AccountSummaryService.
+
+create table account_summary (
+    system_user_id integer not null,
+    account_type_id integer not null,
+    accounts bigint not null,
+    balance double precision not null,
+    constraint account_summary_pkey primary key (system_user_id, account_type_id)
+);
+
+insert into account_summary (system_user_id, account_type_id, accounts, balance)
+    select system_user_id, acount_type_id, count(*), sum(balance)
+    from accounts
+    group by system_user_id, acount_type_id;
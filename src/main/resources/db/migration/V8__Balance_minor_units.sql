@@ -0,0 +1,13 @@
+-- Expand step of storing amounts of money as whole numbers of minor units (cents, with MinorUnits.SCALE
+-- = 2) instead of doubles, so they add up exactly. The application writes both the decimal and the
+-- minor unit columns and reads the decimal ones, and SchemaBackfillService converts existing rows in
+-- chunks, tracking its progress in schema_backfill. Once every instance writes both columns and the
+-- backfill has finished, accounts.migration.minor-units.read-new is set to read and compute amounts from
+-- the minor unit columns, and a later migration makes them not null and drops the decimal columns.
+
+alter table accounts add column balance_minor bigint;
+
+alter table account_adjustment add column delta_minor bigint;
+alter table account_adjustment add column balance_minor bigint;
+
+alter table account_summary add column balance_minor bigint;
@@ -0,0 +1,65 @@
+package org.generictech.accounts.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.generictech.accounts.model.AccountType;
+import org.generictech.accounts.model.Accounts;
+import org.generictech.accounts.repo.AccountTypeRepo;
+import org.generictech.accounts.repo.AccountsRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test class to test that the {@link AccountTypeColumnNamingStrategy} reads account types from 
+ * account_type_id once accounts.migration.type-column.read-new is set, while still writing both columns.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@DataJpaTest(properties = "accounts.migration.type-column.read-new=true")
+@Import(SchemaMigrationConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AccountTypeColumnNamingStrategyTests {
+
+	@Autowired
+	private AccountsRepo accountsRepo;
+	@Autowired
+	private AccountTypeRepo accountTypeRepo;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	
+	@AfterEach
+	public void tearDown() {
+		accountsRepo.deleteAll();
+		accountTypeRepo.deleteAll();
+	}
+	
+	/**
+	 * Method to test that the type is read from account_type_id and that saving writes the copy to 
+	 * acount_type_id.
+	 */
+	@Test
+	void readNewColumnTest() {
+		AccountType checking = accountTypeRepo.save(new AccountType(0, "Checking"));
+		AccountType savings = accountTypeRepo.save(new AccountType(0, "Savings"));
+		Accounts account = accountsRepo.save(new Accounts(0, checking, "Account", 10, 1));
+		assertEquals(checking.getId(), legacyTypeId(account.getId()));
+		
+		jdbcTemplate.update("update accounts set acount_type_id = ? where account_id = ?", savings.getId(), account.getId());
+		Accounts found = accountsRepo.findById(account.getId()).get();
+		assertEquals("Checking", found.getType().getType());
+		
+		found.setDescription("Updated");
+		accountsRepo.save(found);
+		assertEquals(checking.getId(), legacyTypeId(account.getId()));
+	}
+	
+	private int legacyTypeId(int id) {
+		return jdbcTemplate.queryForObject("select acount_type_id from accounts where account_id = ?", Integer.class, id);
+	}
+}
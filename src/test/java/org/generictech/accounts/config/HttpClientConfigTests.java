@@ -0,0 +1,120 @@
+package org.generictech.accounts.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.generictech.accounts.exception.ProcessingRuntimeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test class to test the RestTemplate built by {@link HttpClientConfig} against a stub server on the
+ * loopback address.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+class HttpClientConfigTests {
+
+	private final HttpClientConfig config = new HttpClientConfig();
+	private final CountDownLatch release = new CountDownLatch(1);
+	private HttpServer server;
+	private CloseableHttpClient httpClient;
+	private RestTemplate restTemplate;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/ok", exchange -> respond(exchange, 200, "ok"));
+		server.createContext("/error", exchange -> respond(exchange, 500, ""));
+		server.createContext("/hang", exchange -> {
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			exchange.close();
+		});
+		server.start();
+		httpClient = config.httpClient(config.connectionManager(10, 10, 2000), 200, 200, 200, 30000);
+		restTemplate = config.getRestTemplate(config.clientHttpRequestFactory(httpClient));
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		release.countDown();
+		server.stop(0);
+		httpClient.close();
+	}
+
+	/**
+	 * Method to test that a response is read through the pooled client.
+	 */
+	@Test
+	void okTest() {
+		assertEquals("ok", restTemplate.getForObject(url("/ok"), String.class));
+	}
+
+	/**
+	 * Method to test that a server that accepts the request but never answers fails with a read timeout
+	 * instead of holding the caller.
+	 */
+	@Test
+	void readTimeoutTest() {
+		ResourceAccessException e = assertThrows(ResourceAccessException.class
+				, () -> restTemplate.getForObject(url("/hang"), String.class));
+		assertTrue(e.getCause() instanceof SocketTimeoutException, String.valueOf(e.getCause()));
+	}
+
+	/**
+	 * Method to test that a host nothing is listening on fails with a connection error.
+	 * @throws IOException
+	 */
+	@Test
+	void unreachableHostTest() throws IOException {
+		int port;
+		try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			port = socket.getLocalPort();
+		}
+		ResourceAccessException e = assertThrows(ResourceAccessException.class
+				, () -> restTemplate.getForObject("http://127.0.0.1:" + port + "/ok", String.class));
+		assertTrue(e.getCause() instanceof ConnectException, String.valueOf(e.getCause()));
+	}
+
+	/**
+	 * Method to test that a server error is turned into a ProcessingRuntimeException by the error handler.
+	 */
+	@Test
+	void serverErrorTest() {
+		assertThrows(ProcessingRuntimeException.class, () -> restTemplate.getForObject(url("/error"), String.class));
+	}
+
+	private String url(String path) {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+	}
+
+	private static void respond(HttpExchange exchange, int status, String content) throws IOException {
+		byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "text/plain");
+		exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+		exchange.getResponseBody().write(bytes);
+		exchange.close();
+	}
+}
@@ -0,0 +1,104 @@
+package org.generictech.accounts.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.generictech.accounts.model.AccountAdjustment;
+import org.generictech.accounts.model.AccountType;
+import org.generictech.accounts.model.Accounts;
+import org.generictech.accounts.repo.AccountAdjustmentRepo;
+import org.generictech.accounts.repo.AccountTypeRepo;
+import org.generictech.accounts.repo.AccountsRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Test class to test that the {@link MinorUnitsReadIntegrator} reads amounts from the minor unit columns
+ * once accounts.migration.minor-units.read-new is set, falling back to the decimal columns for rows not
+ * backfilled yet, while still writing both columns.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@DataJpaTest(properties = "accounts.migration.minor-units.read-new=true")
+@Import(SchemaMigrationConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MinorUnitsReadIntegratorTests {
+
+	@Autowired
+	private AccountsRepo accountsRepo;
+	@Autowired
+	private AccountTypeRepo accountTypeRepo;
+	@Autowired
+	private AccountAdjustmentRepo accountAdjustmentRepo;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@AfterEach
+	public void tearDown() {
+		accountAdjustmentRepo.deleteAll();
+		accountsRepo.deleteAll();
+		accountTypeRepo.deleteAll();
+	}
+
+	/**
+	 * Method to test that balances are read and totalled from balance_minor, and from the decimal column
+	 * where balance_minor is null.
+	 */
+	@Test
+	void readMinorUnitsTest() {
+		AccountType type = accountTypeRepo.save(new AccountType(0, "Checking"));
+		Accounts backfilled = accountsRepo.save(new Accounts(0, type, "Backfilled", 1010, 1));
+		Accounts pending = accountsRepo.save(new Accounts(0, type, "Pending", 205, 1));
+		jdbcTemplate.update("update accounts set balance = 99.99 where account_id = ?", backfilled.getId());
+		jdbcTemplate.update("update accounts set balance_minor = null where account_id = ?", pending.getId());
+
+		assertEquals(1010, accountsRepo.findById(backfilled.getId()).get().getBalance());
+		assertEquals(205, accountsRepo.findById(pending.getId()).get().getBalance());
+		List<Object[]> totals = accountsRepo.summarizeByUserIds(1, 1);
+		assertEquals(1215L, ((Number) totals.get(0)[3]).longValue());
+	}
+
+	/**
+	 * Method to test that an adjustment is computed from balance_minor and written to both columns.
+	 */
+	@Test
+	void adjustBalanceTest() {
+		AccountType type = accountTypeRepo.save(new AccountType(0, "Checking"));
+		Accounts account = accountsRepo.save(new Accounts(0, type, "Account", 1010, 1));
+		jdbcTemplate.update("update accounts set balance = 99.99 where account_id = ?", account.getId());
+
+		transactionTemplate.executeWithoutResult(status -> accountsRepo.adjustBalance(account.getId(), 1, 5));
+
+		assertEquals(1015L, jdbcTemplate.queryForObject("select balance_minor from accounts where account_id = ?"
+				, Long.class, account.getId()));
+		assertEquals(10.15, jdbcTemplate.queryForObject("select balance from accounts where account_id = ?"
+				, Double.class, account.getId()));
+		assertEquals(1015, accountsRepo.findAdjustedById(account.getId()).getBalance());
+	}
+
+	/**
+	 * Method to test that adjustment amounts are read from their minor unit columns.
+	 */
+	@Test
+	void adjustmentTest() {
+		AccountAdjustment adjustment = accountAdjustmentRepo.save(new AccountAdjustment(1, "key", 1, 5, 1015
+				, Instant.now()));
+		jdbcTemplate.update("update account_adjustment set delta = 0, balance = 0 where adjustment_id = ?"
+				, adjustment.getId());
+
+		AccountAdjustment found = accountAdjustmentRepo.findById(adjustment.getId()).get();
+		assertEquals(5, found.getDelta());
+		assertEquals(1015, found.getBalance());
+	}
+}
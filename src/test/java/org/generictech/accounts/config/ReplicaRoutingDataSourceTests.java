@@ -0,0 +1,134 @@
+package org.generictech.accounts.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Test class to test the {@link ReplicaRoutingDataSource} class with in memory databases standing in
+ * for the primary and the replicas. Each database holds a single row naming it, so a query shows
+ * which one a transaction was sent to.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+class ReplicaRoutingDataSourceTests {
+
+	private static final long PIN_MS = 5000;
+
+	private final AtomicReference<Integer> user = new AtomicReference<>();
+	private final AtomicLong now = new AtomicLong(1000);
+	private Map<String, DataSource> replicas;
+	private ReplicaRoutingDataSource routing;
+	private JdbcTemplate jdbcTemplate;
+	private DataSourceTransactionManager transactionManager;
+
+	@BeforeEach
+	public void setUp() {
+		replicas = new LinkedHashMap<>();
+		replicas.put("replica-0", database("replica-0"));
+		replicas.put("replica-1", database("replica-1"));
+		routing = new ReplicaRoutingDataSource(database("primary"), replicas, user::get, PIN_MS, 1, now::get);
+		routing.afterPropertiesSet();
+		DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		transactionManager = new DataSourceTransactionManager(dataSource);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		for (String name : Arrays.asList("primary", "replica-0", "replica-1")) {
+			new JdbcTemplate(new DriverManagerDataSource(url(name))).execute("drop all objects");
+		}
+	}
+
+	/**
+	 * Method to test that read only transactions go to a replica and all other work to the primary.
+	 */
+	@Test
+	void routeByReadOnlyTest() {
+		assertEquals("replica-0", node(true));
+		assertEquals("primary", node(false));
+		assertEquals("primary", jdbcTemplate.queryForObject("select name from node", String.class));
+	}
+
+	/**
+	 * Method to test that read only transactions are spread across the replicas.
+	 */
+	@Test
+	void roundRobinTest() {
+		assertEquals("replica-0", node(true));
+		assertEquals("replica-1", node(true));
+		assertEquals("replica-0", node(true));
+	}
+
+	/**
+	 * Method to test that a user who writes reads from the primary until the pin expires, while other
+	 * users keep reading from the replicas.
+	 */
+	@Test
+	void readYourWritesTest() {
+		user.set(1);
+		node(false);
+		assertEquals("primary", node(true));
+		user.set(2);
+		assertEquals("replica-0", node(true));
+		user.set(1);
+		now.addAndGet(PIN_MS);
+		assertEquals("replica-1", node(true));
+	}
+
+	/**
+	 * Method to test that a replica failing its health check is skipped, and that reads go to the primary
+	 * when no replica is healthy.
+	 */
+	@Test
+	void healthCheckTest() {
+		replicas.put("replica-1", new DriverManagerDataSource(url("missing") + ";IFEXISTS=TRUE"));
+		routing = new ReplicaRoutingDataSource(database("primary"), replicas, user::get, PIN_MS, 1, now::get);
+		routing.afterPropertiesSet();
+		routing.checkReplicas();
+		assertEquals(Arrays.asList("replica-0"), routing.getHealthyReplicas());
+
+		replicas.remove("replica-0");
+		routing = new ReplicaRoutingDataSource(database("primary"), replicas, user::get, PIN_MS, 1, now::get);
+		routing.afterPropertiesSet();
+		routing.checkReplicas();
+		jdbcTemplate = new JdbcTemplate(new LazyConnectionDataSourceProxy(routing));
+		transactionManager = new DataSourceTransactionManager(jdbcTemplate.getDataSource());
+		assertEquals("primary", node(true));
+	}
+
+	private String node(boolean readOnly) {
+		TransactionTemplate template = new TransactionTemplate(transactionManager);
+		template.setReadOnly(readOnly);
+		return template.execute(status -> jdbcTemplate.queryForObject("select name from node", String.class));
+	}
+
+	private static DataSource database(String name) {
+		DataSource dataSource = new DriverManagerDataSource(url(name));
+		JdbcTemplate template = new JdbcTemplate(dataSource);
+		template.execute("create table if not exists node (name varchar(20))");
+		template.update("delete from node");
+		template.update("insert into node (name) values (?)", name);
+		return dataSource;
+	}
+
+	private static String url(String name) {
+		return "jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1";
+	}
+}
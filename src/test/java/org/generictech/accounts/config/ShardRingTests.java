@@ -0,0 +1,76 @@
+package org.generictech.accounts.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class to test the {@link ShardRing} class.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+class ShardRingTests {
+
+	private static final int USERS = 30000;
+
+	private final ShardRing ring = new ShardRing(Arrays.asList("shard-0", "shard-1", "shard-2"), 128);
+
+	/**
+	 * Method to test that a user is always placed on the same shard, whatever order the shards are listed in.
+	 */
+	@Test
+	void stablePlacementTest() {
+		ShardRing reordered = new ShardRing(Arrays.asList("shard-2", "shard-0", "shard-1"), 128);
+		for (int userId = 1; userId <= 1000; userId++) {
+			assertEquals(ring.shardFor(userId), ring.shardFor(userId));
+			assertEquals(ring.shardFor(userId), reordered.shardFor(userId));
+		}
+	}
+
+	/**
+	 * Method to test that users are spread evenly enough across the shards.
+	 */
+	@Test
+	void distributionTest() {
+		Map<String, Integer> counts = new HashMap<>();
+		for (int userId = 1; userId <= USERS; userId++) {
+			counts.merge(ring.shardFor(userId), 1, Integer::sum);
+		}
+		assertEquals(3, counts.size());
+		for (int count : counts.values()) {
+			assertTrue(count > USERS / 4 && count < USERS * 5 / 12, counts.toString());
+		}
+	}
+
+	/**
+	 * Method to test that adding a shard only moves users onto the new shard, and about a quarter of them.
+	 */
+	@Test
+	void addShardTest() {
+		ShardRing grown = ring.withShards(Arrays.asList("shard-0", "shard-1", "shard-2", "shard-3"));
+		int moved = 0;
+		for (int userId = 1; userId <= USERS; userId++) {
+			String after = grown.shardFor(userId);
+			if (!after.equals(ring.shardFor(userId))) {
+				assertEquals("shard-3", after);
+				moved++;
+			}
+		}
+		assertTrue(moved > USERS / 5 && moved < USERS * 3 / 10, Integer.toString(moved));
+	}
+
+	/**
+	 * Method to test that a ring needs at least one shard.
+	 */
+	@Test
+	void emptyRingTest() {
+		assertThrows(IllegalArgumentException.class, () -> new ShardRing(Collections.emptyList(), 128));
+	}
+}
@@ -0,0 +1,166 @@
+package org.generictech.accounts.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Test class to test the {@link ShardRoutingDataSource}, {@link ShardDirectory} and {@link Shards} classes
+ * with in memory databases standing in for the shards. Each database holds a single row naming it, so a
+ * query shows which one it was sent to.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+class ShardRoutingDataSourceTests {
+
+	private static final List<String> NAMES = Arrays.asList("shard-0", "shard-1", "shard-2");
+
+	private final AtomicReference<Integer> user = new AtomicReference<>();
+	private ExecutorService executor;
+	private ShardRing ring;
+	private ShardDirectory directory;
+	private ShardRoutingDataSource routing;
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	public void setUp() {
+		Map<String, DataSource> shards = new LinkedHashMap<>();
+		for (String name : NAMES) {
+			shards.put(name, database(name));
+		}
+		new JdbcTemplate(shards.get("shard-0")).execute("create table user_shard (system_user_id integer primary key"
+				+ ", shard varchar(64) not null, moving boolean default false not null)");
+		ring = new ShardRing(NAMES, 128);
+		directory = new ShardDirectory(ring, shards.get("shard-0"));
+		routing = new ShardRoutingDataSource(shards, "shard-0", directory, user::get);
+		routing.afterPropertiesSet();
+		jdbcTemplate = new JdbcTemplate(new LazyConnectionDataSourceProxy(routing));
+		executor = Executors.newFixedThreadPool(NAMES.size());
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdown();
+		for (String name : NAMES) {
+			new JdbcTemplate(new DriverManagerDataSource(url(name))).execute("drop all objects");
+		}
+	}
+
+	/**
+	 * Method to test that work for a user goes to the user's shard on the ring and other work to the
+	 * directory shard.
+	 */
+	@Test
+	void routeByUserTest() {
+		assertEquals("shard-0", node());
+		for (int userId = 1; userId <= 20; userId++) {
+			user.set(userId);
+			assertEquals(ring.shardFor(userId), node());
+		}
+	}
+
+	/**
+	 * Method to test that a shard set in the {@link ShardContext} is used instead of the user's shard.
+	 */
+	@Test
+	void shardContextTest() {
+		user.set(1);
+		String other = otherShard(ring.shardFor(1));
+		assertEquals(other, ShardContext.callOn(other, this::node));
+		assertEquals(ring.shardFor(1), node());
+	}
+
+	/**
+	 * Method to test that a moved user is routed to their new shard, and that another instance sees the
+	 * move once it reloads the directory.
+	 */
+	@Test
+	void movedUserTest() {
+		String other = otherShard(ring.shardFor(1));
+		directory.startMove(1);
+		assertTrue(directory.isMoving(1));
+		directory.finishMove(1, other);
+		assertFalse(directory.isMoving(1));
+		user.set(1);
+		assertEquals(other, node());
+
+		ShardDirectory elsewhere = new ShardDirectory(ring, routing.getShards().get("shard-0"));
+		assertEquals(ring.shardFor(1), elsewhere.shardFor(1));
+		elsewhere.refresh();
+		assertEquals(other, elsewhere.shardFor(1));
+	}
+
+	/**
+	 * Method to test that {@link Shards} queries every shard, copies to every shard but the directory
+	 * shard, and runs work for a user on the user's shard.
+	 */
+	@Test
+	void shardsTest() {
+		Shards shards = new Shards(routing, executor);
+		assertTrue(shards.isSharded());
+		assertEquals(NAMES, shards.gather(() -> Collections.singletonList(node())));
+
+		List<String> visited = Collections.synchronizedList(new ArrayList<>());
+		shards.forEach(() -> visited.add(node()));
+		assertEquals(NAMES, visited);
+		visited.clear();
+		shards.replicate(() -> visited.add(node()));
+		assertEquals(Arrays.asList("shard-1", "shard-2"), visited);
+
+		assertEquals(ring.shardFor(7), shards.callForUser(7, this::node));
+	}
+
+	/**
+	 * Method to test that {@link Shards} runs work once when sharding is not configured.
+	 */
+	@Test
+	void notShardedTest() {
+		Shards shards = new Shards(null, executor);
+		assertFalse(shards.isSharded());
+		assertEquals(Collections.singletonList("shard-0"), shards.gather(() -> Collections.singletonList(node())));
+		List<String> visited = new ArrayList<>();
+		shards.forEach(() -> visited.add(node()));
+		shards.replicate(() -> visited.add(node()));
+		assertEquals(Collections.singletonList("shard-0"), visited);
+	}
+
+	private String node() {
+		return jdbcTemplate.queryForObject("select name from node", String.class);
+	}
+
+	private static String otherShard(String shard) {
+		return shard.equals("shard-1") ? "shard-2" : "shard-1";
+	}
+
+	private static DataSource database(String name) {
+		DataSource dataSource = new DriverManagerDataSource(url(name));
+		JdbcTemplate template = new JdbcTemplate(dataSource);
+		template.execute("create table if not exists node (name varchar(20))");
+		template.update("delete from node");
+		template.update("insert into node (name) values (?)", name);
+		return dataSource;
+	}
+
+	private static String url(String name) {
+		return "jdbc:h2:mem:sharding-" + name + ";DB_CLOSE_DELAY=-1";
+	}
+}
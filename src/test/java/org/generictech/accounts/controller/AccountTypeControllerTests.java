@@ -8,6 +8,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.ArrayList;
@@ -16,7 +17,9 @@ import java.util.List;
 import org.generictech.accounts.exception.BadValueException;
 import org.generictech.accounts.exception.TypeNotFoundException;
 import org.generictech.accounts.model.AccountType;
+import org.generictech.accounts.service.AccountTypeRegistry;
 import org.generictech.accounts.service.AccountTypeService;
+import org.generictech.accounts.service.AccountsService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -51,6 +54,9 @@ class AccountTypeControllerTests {
 	@MockBean
 	private AccountTypeService accountTypeService;
 	
+	@MockBean
+	private AccountsService accountsService;
+	
 	private AccountType type;
 	private List<AccountType> types = new ArrayList<>();
 	
@@ -69,12 +75,28 @@ class AccountTypeControllerTests {
 	 */
 	@Test
 	void getAllSuccessTest() throws JsonProcessingException, Exception {
-		doReturn(types).when(accountTypeService).findAll();
+		AccountTypeRegistry.Snapshot snapshot = new AccountTypeRegistry.Snapshot(types);
+		doReturn(snapshot).when(accountTypeService).snapshot();
 		mockMvc.perform(get("/account/type"))
 			.andExpect(status().isOk())
+			.andExpect(header().string("ETag", snapshot.getETag()))
+			.andExpect(header().string("Cache-Control", "max-age=60, public"))
 			.andExpect(MockMvcResultMatchers.content().string(om.writeValueAsString(types)));
 	}
 	
+	/**
+	 * Method to test a get all request with a matching If-None-Match header. 
+	 * @throws Exception
+	 */
+	@Test
+	void getAllNotModifiedTest() throws Exception {
+		AccountTypeRegistry.Snapshot snapshot = new AccountTypeRegistry.Snapshot(types);
+		doReturn(snapshot).when(accountTypeService).snapshot();
+		mockMvc.perform(get("/account/type").header("If-None-Match", snapshot.getETag()))
+			.andExpect(status().isNotModified())
+			.andExpect(MockMvcResultMatchers.content().string(""));
+	}
+	
 	/**
 	 * Method to test a successful get request to get by id.
 	 * @throws JsonProcessingException
@@ -0,0 +1,127 @@
+package org.generictech.accounts.controller;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.mockito.Mockito.doReturn;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.generictech.accounts.exception.AccountNotFoundException;
+import org.generictech.accounts.exception.UnauthorizedAccessException;
+import org.generictech.accounts.model.AccountType;
+import org.generictech.accounts.model.Accounts;
+import org.generictech.accounts.service.AccountsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Class to test the AccountsAsyncController 
+ * @author Jaden Wilson
+ * @since 1.0
+ *
+ */
+@ExtendWith(SpringExtension.class)
+@AutoConfigureMockMvc(addFilters = false)
+@WebMvcTest(controllers = AccountsAsyncController.class)
+class AccountsAsyncControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+	@Autowired
+	private ObjectMapper om;
+	@MockBean
+	private AccountsService accountsService;
+	
+	private Accounts account;
+	private List<Accounts> accounts = new ArrayList<>();
+	
+	@BeforeEach
+	public void setUp() {
+		AccountType type = new AccountType(1, "Test");
+		account = new Accounts(1, type, "Test Account", 10000, 1);
+		accounts.add(account);
+		accounts.add(new Accounts(2, type, "Test Account 2", 10000, 1));
+	}
+	
+	/**
+	 * Method to test a successful GET request to /account/async
+	 * @throws Exception
+	 */
+	@Test
+	void getAccountsSuccessTest() throws Exception {
+		doReturn(CompletableFuture.completedFuture(accounts)).when(accountsService).findByUserIdAsync("TestToken");
+		MvcResult result = mockMvc.perform(get("/account/async").header("tokenId", "TestToken"))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		mockMvc.perform(asyncDispatch(result))
+			.andExpect(status().isOk())
+			.andExpect(MockMvcResultMatchers.content().string(om.writeValueAsString(accounts)));
+	}
+	
+	/**
+	 * Method to test a successful GET request to /account/async/id/{id}
+	 * @throws Exception
+	 */
+	@Test
+	void getAccountSuccessTest() throws Exception {
+		doReturn(CompletableFuture.completedFuture(account)).when(accountsService).findByIdAsync(1, "TestToken");
+		MvcResult result = mockMvc.perform(get("/account/async/id/1").header("tokenId", "TestToken"))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		mockMvc.perform(asyncDispatch(result))
+			.andExpect(status().isOk())
+			.andExpect(MockMvcResultMatchers.content().string(om.writeValueAsString(account)));
+	}
+	
+	/**
+	 * Method to test a GET request to /account/async/id/{id} where the account does not exist
+	 * @throws Exception
+	 */
+	@Test
+	void getAccountNoAccountTest() throws Exception {
+		doReturn(failed(new AccountNotFoundException())).when(accountsService).findByIdAsync(6, "TestToken");
+		MvcResult result = mockMvc.perform(get("/account/async/id/6").header("tokenId", "TestToken"))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		mockMvc.perform(asyncDispatch(result))
+			.andExpect(status().isNotFound())
+			.andExpect(MockMvcResultMatchers.content().string(containsString("AccountNotFoundException")));
+	}
+	
+	/**
+	 * Method to test a GET request to /account/async/id/{id} when a user tried to access another users account
+	 * @throws Exception
+	 */
+	@Test
+	void getAccountBadAccessTest() throws Exception {
+		doReturn(failed(new UnauthorizedAccessException())).when(accountsService).findByIdAsync(5, "TestToken");
+		MvcResult result = mockMvc.perform(get("/account/async/id/5").header("tokenId", "TestToken"))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		mockMvc.perform(asyncDispatch(result))
+			.andExpect(status().isUnauthorized());
+	}
+	
+	private static <T> CompletableFuture<T> failed(Exception e) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		future.completeExceptionally(new CompletionException(e));
+		return future;
+	}
+}
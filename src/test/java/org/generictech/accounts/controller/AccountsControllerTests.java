@@ -3,24 +3,50 @@ package org.generictech.accounts.controller;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import org.generictech.accounts.config.ShardDirectory;
+import org.generictech.accounts.dto.AccountEventDTO;
+import org.generictech.accounts.dto.AccountSummaryDTO;
+import org.generictech.accounts.dto.AccountTypeSummaryDTO;
+import org.generictech.accounts.dto.AccountsPageDTO;
+import org.generictech.accounts.dto.AdjustmentDTO;
+import org.generictech.accounts.dto.BalanceDTO;
+import org.generictech.accounts.dto.BatchResultDTO;
 import org.generictech.accounts.dto.SystemUserDTO;
 import org.generictech.accounts.exception.AccountNotFoundException;
+import org.generictech.accounts.exception.BadValueException;
+import org.generictech.accounts.exception.PreconditionFailedException;
 import org.generictech.accounts.exception.TypeNotFoundException;
 import org.generictech.accounts.exception.UnauthorizedAccessException;
 import org.generictech.accounts.exception.UserNotFoundException;
 import org.generictech.accounts.model.AccountType;
 import org.generictech.accounts.model.Accounts;
+import org.generictech.accounts.service.AccountAdjustmentService;
+import org.generictech.accounts.service.AccountEventService;
+import org.generictech.accounts.service.AccountSummaryService;
+import org.generictech.accounts.service.AccountsBatchService;
+import org.generictech.accounts.service.AccountsExportService;
 import org.generictech.accounts.service.AccountsService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -30,9 +56,12 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -54,6 +83,18 @@ class AccountsControllerTests {
 	private ObjectMapper om;
 	@MockBean
 	private AccountsService accountsService;
+	@MockBean
+	private AccountsExportService accountsExportService;
+	@MockBean
+	private AccountAdjustmentService accountAdjustmentService;
+	@MockBean
+	private AccountsBatchService accountsBatchService;
+	@MockBean
+	private AccountSummaryService accountSummaryService;
+	@MockBean
+	private AccountEventService accountEventService;
+	@MockBean
+	private ShardDirectory shardDirectory;
 	
 	private SystemUserDTO user;
 	private Accounts account;
@@ -64,11 +105,11 @@ class AccountsControllerTests {
 	public void setUp() {
 		type = new AccountType(1, "Test");
 		user = new SystemUserDTO(1, "TTester", "test@test.com");
-		account = new Accounts(1, type, "Test Account", 100.00, 1);
+		account = new Accounts(1, type, "Test Account", 10000, 1);
 		accounts.add(account);
-		accounts.add(new Accounts(2, type, "Test Account 2", 100.00, 1));
-		accounts.add(new Accounts(3, type, "Test Account 3", 100.00, 1));
-		accounts.add(new Accounts(4, type, "Test Account 4", 100.00, 1));
+		accounts.add(new Accounts(2, type, "Test Account 2", 10000, 1));
+		accounts.add(new Accounts(3, type, "Test Account 3", 10000, 1));
+		accounts.add(new Accounts(4, type, "Test Account 4", 10000, 1));
 	}
 	
 	/**
@@ -85,6 +126,90 @@ class AccountsControllerTests {
 			.andExpect(MockMvcResultMatchers.content().string(om.writeValueAsString(accounts)));
 	}
 	
+	/**
+	 * Method to test a successful GET request to /account with a page limit
+	 * @throws Exception
+	 */
+	@Test
+	void getAccountsPageSuccessTest() throws Exception {
+		AccountsPageDTO page = new AccountsPageDTO(accounts.subList(0, 2), "Mg");
+		doReturn(user).when(accountsService).getUser(anyString());
+		doReturn(page).when(accountsService).findPageByUserId(user.getId(), 2, "MQ");
+		mockMvc.perform(get("/account").param("limit", "2").param("after", "MQ")
+				.header("tokenId", "TestToken"))
+			.andExpect(status().is(200))
+			.andExpect(MockMvcResultMatchers.content().string(om.writeValueAsString(page)));
+	}
+	
+	/**
+	 * Method to test a GET request to /account with a page limit that is out of range
+	 * @throws Exception
+	 */
+	@Test
+	void getAccountsPageBadValueTest() throws Exception {
+		doReturn(user).when(accountsService).getUser(anyString());
+		doThrow(BadValueException.class).when(accountsService).findPageByUserId(user.getId(), 0, null);
+		mockMvc.perform(get("/account").param("limit", "0")
+				.header("tokenId", "TestToken"))
+			.andExpect(status().isBadRequest());
+	}
+	
+	/**
+	 * Method to test a successful GET request to /account/summary
+	 * @throws Exception
+	 */
+	@Test
+	void getSummarySuccessTest() throws Exception {
+		AccountSummaryDTO summary = new AccountSummaryDTO(Arrays.asList(new AccountTypeSummaryDTO(type, 4, 40000)), 4, 40000);
+		doReturn(user).when(accountsService).getUser(anyString());
+		doReturn(summary).when(accountSummaryService).findByUserId(user.getId());
+		mockMvc.perform(get("/account/summary")
+				.header("tokenId", "TestToken"))
+			.andExpect(status().is(200))
+			.andExpect(MockMvcResultMatchers.content().string(om.writeValueAsString(summary)));
+	}
+	
+	/**
+	 * Method to test a successful GET request to /account/stream
+	 * @throws Exception
+	 */
+	@Test
+	void streamAccountsSuccessTest() throws Exception {
+		doReturn(user).when(accountsService).getUser(anyString());
+		doAnswer(invocation -> {
+			invocation.getArgument(1, OutputStream.class).write(om.writeValueAsBytes(accounts));
+			return null;
+		}).when(accountsExportService).writeByUserId(eq(user.getId()), any(OutputStream.class));
+		mockMvc.perform(get("/account/stream")
+				.header("tokenId", "TestToken"))
+			.andExpect(status().is(200))
+			.andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON))
+			.andExpect(MockMvcResultMatchers.content().string(om.writeValueAsString(accounts)));
+	}
+	
+	/**
+	 * Method to test a GET request to /account/stream that accepts text/event-stream, which subscribes to 
+	 * changes to the user's accounts.
+	 * @throws Exception
+	 */
+	@Test
+	void subscribeSuccessTest() throws Exception {
+		SseEmitter emitter = new SseEmitter();
+		doReturn(user).when(accountsService).getUser(anyString());
+		doReturn(emitter).when(accountEventService).subscribe(user.getId());
+		MvcResult result = mockMvc.perform(get("/account/stream")
+				.accept(MediaType.TEXT_EVENT_STREAM)
+				.header("tokenId", "TestToken"))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		emitter.send(SseEmitter.event().name(AccountEventDTO.CREATED).data(new AccountEventDTO(AccountEventDTO.CREATED, 1, 0)));
+		emitter.complete();
+		mockMvc.perform(asyncDispatch(result))
+			.andExpect(status().is(200))
+			.andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+			.andExpect(MockMvcResultMatchers.content().string(containsString("event:created")));
+	}
+	
 	/**
 	 * Method to test a GET request with a user that does not exist
 	 * @throws Exception
@@ -218,6 +343,21 @@ class AccountsControllerTests {
 			
 	}
 	
+	/**
+	 * Method to test that a POST request with an invalid token is rejected before the request body is read
+	 * @throws Exception
+	 */
+	@Test
+	void postAccountUserNotFoundBeforeBodyTest() throws Exception {
+		doThrow(UserNotFoundException.class).when(accountsService).getUser(anyString());
+		mockMvc.perform(post("/account").contentType(MediaType.APPLICATION_JSON)
+				.content("{not json")
+				.accept(MediaType.APPLICATION_JSON)
+				.header("tokenId", "testToken"))
+			.andExpect(status().isNotFound())
+			.andExpect(MockMvcResultMatchers.content().string(containsString("UserNotFoundException")));
+	}
+	
 	/**
 	 * Method to test a successful PUT request to /account/{id}
 	 * @throws JsonProcessingException
@@ -226,8 +366,8 @@ class AccountsControllerTests {
 	@Test
 	void putAccountSuccessTest() throws JsonProcessingException, Exception {
 		doReturn(user).when(accountsService).getUser(anyString());
-		Accounts altered = new Accounts(account.getId(), account.getType(), "Updated description", 102.00, account.getUserId());
-		doReturn(altered).when(accountsService).update(any(Accounts.class), any(SystemUserDTO.class));
+		Accounts altered = new Accounts(account.getId(), account.getType(), "Updated description", 10200, account.getUserId());
+		doReturn(altered).when(accountsService).update(any(Accounts.class), any(SystemUserDTO.class), isNull());
 		mockMvc.perform(put("/account/1").contentType(MediaType.APPLICATION_JSON)
 				.content(om.writeValueAsString(altered))
 				.accept(MediaType.APPLICATION_JSON)
@@ -245,8 +385,8 @@ class AccountsControllerTests {
 	@Test
 	void putAccountNotFoundExceptionTest() throws JsonProcessingException, Exception {
 		doReturn(user).when(accountsService).getUser(anyString());
-		Accounts altered = new Accounts(account.getId(), account.getType(), "Updated description", 100.00, account.getUserId());
-		doThrow(AccountNotFoundException.class).when(accountsService).update(any(Accounts.class), any(SystemUserDTO.class));
+		Accounts altered = new Accounts(account.getId(), account.getType(), "Updated description", 10000, account.getUserId());
+		doThrow(AccountNotFoundException.class).when(accountsService).update(any(Accounts.class), any(SystemUserDTO.class), isNull());
 		mockMvc.perform(put("/account/7").contentType(MediaType.APPLICATION_JSON)
 				.content(om.writeValueAsString(altered))
 				.accept(MediaType.APPLICATION_JSON)
@@ -264,8 +404,8 @@ class AccountsControllerTests {
 	@Test
 	void putAccountTypeNotFoundExceptionTest() throws JsonProcessingException, Exception {
 		doReturn(user).when(accountsService).getUser(anyString());
-		Accounts altered = new Accounts(account.getId(), new AccountType(), "Updated description", 1000.00, account.getUserId());
-		doThrow(TypeNotFoundException.class).when(accountsService).update(any(Accounts.class), any(SystemUserDTO.class));
+		Accounts altered = new Accounts(account.getId(), new AccountType(), "Updated description", 100000, account.getUserId());
+		doThrow(TypeNotFoundException.class).when(accountsService).update(any(Accounts.class), any(SystemUserDTO.class), isNull());
 		mockMvc.perform(put("/account/1").contentType(MediaType.APPLICATION_JSON)
 				.content(om.writeValueAsString(altered))
 				.accept(MediaType.APPLICATION_JSON)
@@ -283,8 +423,8 @@ class AccountsControllerTests {
 	@Test
 	void putAccountUnauthorizedExceptionTest() throws JsonProcessingException, Exception {
 		doReturn(user).when(accountsService).getUser(anyString());
-		Accounts altered = new Accounts(account.getId(), new AccountType(), "Updated description", 100.00, account.getUserId());
-		doThrow(UnauthorizedAccessException.class).when(accountsService).update(any(Accounts.class), any(SystemUserDTO.class));
+		Accounts altered = new Accounts(account.getId(), new AccountType(), "Updated description", 10000, account.getUserId());
+		doThrow(UnauthorizedAccessException.class).when(accountsService).update(any(Accounts.class), any(SystemUserDTO.class), isNull());
 		mockMvc.perform(put("/account/6").contentType(MediaType.APPLICATION_JSON)
 				.content(om.writeValueAsString(altered))
 				.accept(MediaType.APPLICATION_JSON)
@@ -300,7 +440,7 @@ class AccountsControllerTests {
 	@Test
 	void deleteAccountSuccessTest() throws Exception {
 		doReturn(user).when(accountsService).getUser(anyString());
-		doReturn(true).when(accountsService).delete(1, user);
+		doReturn(true).when(accountsService).delete(1, user, null);
 		mockMvc.perform(delete("/account/1").header("tokenId", "testToken"))
 			.andExpect(status().isNoContent());
 	}
@@ -312,12 +452,161 @@ class AccountsControllerTests {
 	@Test
 	void deleteAccountNotFoundTest() throws Exception {
 		doReturn(user).when(accountsService).getUser(anyString());
-		doThrow(AccountNotFoundException.class).when(accountsService).delete(7, user);
+		doThrow(AccountNotFoundException.class).when(accountsService).delete(7, user, null);
 		mockMvc.perform(delete("/account/7").header("tokenId", "testToken"))
 			.andExpect(status().isNotFound())
 			.andExpect(MockMvcResultMatchers.content().string(containsString("AccountNotFoundException")));
 	}
 	
+	/**
+	 * Method to test that changes are refused while the user's accounts are moved between shards, and 
+	 * reads still work.
+	 * @throws Exception
+	 */
+	@Test
+	void deleteAccountMovingTest() throws Exception {
+		doReturn(user).when(accountsService).getUser(anyString());
+		doReturn(true).when(shardDirectory).isMoving(user.getId());
+		mockMvc.perform(delete("/account/1").header("tokenId", "testToken"))
+			.andExpect(status().isServiceUnavailable());
+		verify(accountsService, times(0)).delete(1, user, null);
+		
+		doReturn(account).when(accountsService).findById(1, user);
+		mockMvc.perform(get("/account/id/1").header("tokenId", "testToken"))
+			.andExpect(status().isOk());
+	}
+	
+	/**
+	 * Method to test a successful PATCH request to /account/{id}
+	 * @throws Exception
+	 */
+	@Test
+	void patchAccountSuccessTest() throws Exception {
+		doReturn(user).when(accountsService).getUser(anyString());
+		mockMvc.perform(patch("/account/1").contentType("application/merge-patch+json")
+				.content("{\"balance\":0}")
+				.header("tokenId", "testToken"))
+			.andExpect(status().isNoContent());
+		verify(accountsService).patch(1, om.readTree("{\"balance\":0}"), user);
+	}
+	
+	/**
+	 * Method to test a PATCH request to /account/{id} for an account owned by another user
+	 * @throws Exception
+	 */
+	@Test
+	void patchAccountUnauthorizedAccessTest() throws Exception {
+		doReturn(user).when(accountsService).getUser(anyString());
+		doThrow(UnauthorizedAccessException.class).when(accountsService).patch(eq(6), any(), eq(user));
+		mockMvc.perform(patch("/account/6").contentType("application/merge-patch+json")
+				.content("{\"description\":\"Updated\"}")
+				.header("tokenId", "testToken"))
+			.andExpect(status().isUnauthorized());
+	}
+	
+	/**
+	 * Method to test a successful POST request to /account/{id}/adjust
+	 * @throws Exception
+	 */
+	@Test
+	void adjustAccountSuccessTest() throws Exception {
+		BalanceDTO balance = new BalanceDTO(1, 9000);
+		doReturn(user).when(accountsService).getUser(anyString());
+		doReturn(balance).when(accountAdjustmentService).adjust(1, -1000, "key-1", user);
+		mockMvc.perform(post("/account/1/adjust").contentType(MediaType.APPLICATION_JSON)
+				.content(om.writeValueAsString(new AdjustmentDTO(-1000)))
+				.header("Idempotency-Key", "key-1")
+				.header("tokenId", "testToken"))
+			.andExpect(status().isOk())
+			.andExpect(MockMvcResultMatchers.content().string(om.writeValueAsString(balance)));
+	}
+	
+	/**
+	 * Method to test a POST request to /account/{id}/adjust for an account that does not exist
+	 * @throws Exception
+	 */
+	@Test
+	void adjustAccountNotFoundTest() throws Exception {
+		doReturn(user).when(accountsService).getUser(anyString());
+		doThrow(AccountNotFoundException.class).when(accountAdjustmentService).adjust(6, 500, null, user);
+		mockMvc.perform(post("/account/6/adjust").contentType(MediaType.APPLICATION_JSON)
+				.content(om.writeValueAsString(new AdjustmentDTO(500)))
+				.header("tokenId", "testToken"))
+			.andExpect(status().isNotFound());
+	}
+	
+	/**
+	 * Method to test that GET /account/id/{id} returns the version as an ETag and honours If-None-Match
+	 * @throws Exception
+	 */
+	@Test
+	void getAccountNotModifiedTest() throws Exception {
+		account.setVersion(3);
+		doReturn(user).when(accountsService).getUser(anyString());
+		doReturn(account).when(accountsService).findById(1, user);
+		mockMvc.perform(get("/account/id/1").header("tokenId", "testToken"))
+			.andExpect(status().isOk())
+			.andExpect(header().string("ETag", "\"3\""));
+		mockMvc.perform(get("/account/id/1").header("tokenId", "testToken").header("If-None-Match", "\"3\""))
+			.andExpect(status().isNotModified())
+			.andExpect(MockMvcResultMatchers.content().string(""));
+	}
+	
+	/**
+	 * Method to test that GET /account honours If-None-Match
+	 * @throws Exception
+	 */
+	@Test
+	void getAccountsNotModifiedTest() throws Exception {
+		doReturn(user).when(accountsService).getUser(anyString());
+		doReturn(accounts).when(accountsService).findByUserId(user.getId());
+		String eTag = mockMvc.perform(get("/account").header("tokenId", "testToken"))
+			.andReturn().getResponse().getHeader("ETag");
+		mockMvc.perform(get("/account").header("tokenId", "testToken").header("If-None-Match", eTag))
+			.andExpect(status().isNotModified());
+	}
+	
+	/**
+	 * Method to test a PUT request with an If-Match that does not match the current version
+	 * @throws Exception
+	 */
+	@Test
+	void putAccountPreconditionFailedTest() throws Exception {
+		doReturn(user).when(accountsService).getUser(anyString());
+		doThrow(PreconditionFailedException.class).when(accountsService).update(any(Accounts.class), eq(user), eq(2L));
+		mockMvc.perform(put("/account/1").contentType(MediaType.APPLICATION_JSON)
+				.content(om.writeValueAsString(account))
+				.header("If-Match", "\"2\"")
+				.header("tokenId", "testToken"))
+			.andExpect(status().isPreconditionFailed());
+	}
+	
+	/**
+	 * Method to test a PUT request that loses a race with a concurrent update
+	 * @throws Exception
+	 */
+	@Test
+	void putAccountConflictTest() throws Exception {
+		doReturn(user).when(accountsService).getUser(anyString());
+		doThrow(new ObjectOptimisticLockingFailureException(Accounts.class, 1)).when(accountsService)
+			.update(any(Accounts.class), eq(user), isNull());
+		mockMvc.perform(put("/account/1").contentType(MediaType.APPLICATION_JSON)
+				.content(om.writeValueAsString(account))
+				.header("tokenId", "testToken"))
+			.andExpect(status().isConflict());
+	}
+	
+	/**
+	 * Method to test a DELETE request with an If-Match that is not a version
+	 * @throws Exception
+	 */
+	@Test
+	void deleteAccountBadIfMatchTest() throws Exception {
+		doReturn(user).when(accountsService).getUser(anyString());
+		mockMvc.perform(delete("/account/1").header("If-Match", "W/\"1\"").header("tokenId", "testToken"))
+			.andExpect(status().isPreconditionFailed());
+	}
+	
 	/**
 	 * Method to test the proper response to an unsuccessful DELETE request in which the user trying to 
 	 * delete an account does not have access to that account. 
@@ -326,9 +615,87 @@ class AccountsControllerTests {
 	@Test
 	void deleteAccountUnauthorizedAccessTest() throws Exception {
 		doReturn(user).when(accountsService).getUser(anyString());
-		doThrow(UnauthorizedAccessException.class).when(accountsService).delete(6, user);
+		doThrow(UnauthorizedAccessException.class).when(accountsService).delete(6, user, null);
 		mockMvc.perform(delete("/account/6").header("tokenId", "testToken"))
 			.andExpect(status().isUnauthorized())
 			.andExpect(MockMvcResultMatchers.content().string(containsString("UnauthorizedAccessException")));
 	}
+	
+	/**
+	 * Method to test that the token is validated once per request
+	 * @throws Exception
+	 */
+	@Test
+	void getAccountsValidatesOnceTest() throws Exception {
+		doReturn(user).when(accountsService).getUser("testToken");
+		doReturn(accounts).when(accountsService).findByUserId(user.getId());
+		mockMvc.perform(get("/account").header("tokenId", "testToken"))
+			.andExpect(status().isOk());
+		verify(accountsService, times(1)).getUser("testToken");
+	}
+	
+	/**
+	 * Method to test a POST request to /account/batch
+	 * @throws Exception
+	 */
+	@Test
+	void postAccountBatchTest() throws Exception {
+		List<BatchResultDTO> results = Arrays.asList(new BatchResultDTO(0, 201, account, null)
+				, new BatchResultDTO(1, 404, null, "Type not found"));
+		doReturn(user).when(accountsService).getUser(anyString());
+		doReturn(results).when(accountsBatchService).saveAll(any(), eq(user));
+		mockMvc.perform(post("/account/batch").contentType(MediaType.APPLICATION_JSON)
+				.content(om.writeValueAsString(accounts.subList(0, 2)))
+				.header("tokenId", "testToken"))
+			.andExpect(status().isOk())
+			.andExpect(MockMvcResultMatchers.content().string(om.writeValueAsString(results)));
+		verify(accountsService, times(1)).getUser("testToken");
+	}
+	
+	/**
+	 * Method to test a POST request to /account/batch with too many items
+	 * @throws Exception
+	 */
+	@Test
+	void postAccountBatchTooLargeTest() throws Exception {
+		doReturn(user).when(accountsService).getUser(anyString());
+		doThrow(BadValueException.class).when(accountsBatchService).saveAll(any(), eq(user));
+		mockMvc.perform(post("/account/batch").contentType(MediaType.APPLICATION_JSON)
+				.content(om.writeValueAsString(accounts))
+				.header("tokenId", "testToken"))
+			.andExpect(status().isBadRequest());
+	}
+	
+	/**
+	 * Method to test a PATCH request to /account/batch
+	 * @throws Exception
+	 */
+	@Test
+	void patchAccountBatchTest() throws Exception {
+		List<BatchResultDTO> results = Arrays.asList(new BatchResultDTO(0, 200, account, null));
+		doReturn(user).when(accountsService).getUser(anyString());
+		doReturn(results).when(accountsBatchService).patchAll(Arrays.asList(om.readTree("{\"id\":1,\"balance\":0}")), user);
+		mockMvc.perform(patch("/account/batch").contentType("application/merge-patch+json")
+				.content("[{\"id\":1,\"balance\":0}]")
+				.header("tokenId", "testToken"))
+			.andExpect(status().isOk())
+			.andExpect(MockMvcResultMatchers.content().string(om.writeValueAsString(results)));
+	}
+	
+	/**
+	 * Method to test a DELETE request to /account/batch
+	 * @throws Exception
+	 */
+	@Test
+	void deleteAccountBatchTest() throws Exception {
+		List<BatchResultDTO> results = Arrays.asList(new BatchResultDTO(0, 204, null, null)
+				, new BatchResultDTO(1, 401, null, "Unauthorized"));
+		doReturn(user).when(accountsService).getUser(anyString());
+		doReturn(results).when(accountsBatchService).deleteAll(Arrays.asList(1, 6), user);
+		mockMvc.perform(delete("/account/batch").contentType(MediaType.APPLICATION_JSON)
+				.content("[1,6]")
+				.header("tokenId", "testToken"))
+			.andExpect(status().isOk())
+			.andExpect(MockMvcResultMatchers.content().string(om.writeValueAsString(results)));
+	}
 }
@@ -0,0 +1,123 @@
+package org.generictech.accounts.migration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+/**
+ * Test class to run the migrations against an in memory database in PostgreSQL mode and check the 
+ * {@link V2__Account_id_sequences} migration, both on an empty database and on one created before 
+ * migrations were added, and the {@link V4__Shard_id_ranges} migration on a shard. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+class AccountIdSequencesMigrationTests {
+
+	private static final String URL = "jdbc:h2:mem:migration;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+	
+	@AfterEach
+	public void tearDown() throws SQLException {
+		execute("drop all objects");
+	}
+	
+	/**
+	 * Method to test that migrating an empty database starts the sequences at 1.
+	 * @throws SQLException
+	 */
+	@Test
+	void emptyDatabaseTest() throws SQLException {
+		configure().load().migrate();
+		assertEquals(1, nextValue("accounts_seq"));
+		assertEquals(51, nextValue("accounts_seq"));
+		assertEquals(1, nextValue("account_type_seq"));
+	}
+	
+	/**
+	 * Method to test that a database Hibernate created before migrations is baselined and migrated to the
+	 * latest version, with its sequences starting after the existing ids, incrementing by the configured
+	 * allocation size, and the columns and tables the baseline lacks added.
+	 * @throws SQLException
+	 */
+	@Test
+	void existingDatabaseTest() throws SQLException {
+		new ResourceDatabasePopulator(new ClassPathResource("db/baseline-schema.sql"))
+				.execute(new DriverManagerDataSource(URL, "sa", ""));
+		execute("insert into account_type (account_type_id, type) values (7, 'Checking')");
+		execute("insert into accounts (account_id, acount_type_id, balance, system_user_id) values (41, 7, 0, 1)");
+		execute("insert into accounts (account_id, acount_type_id, balance, system_user_id) values (42, 7, 0, 1)");
+		
+		Flyway flyway = configure()
+				.baselineOnMigrate(true)
+				.baselineVersion("1")
+				.placeholders(Collections.singletonMap(V2__Account_id_sequences.ALLOCATION_SIZE_PLACEHOLDER, "10"))
+				.load();
+		assertEquals(9, flyway.migrate().migrationsExecuted);
+		assertEquals(0, flyway.info().pending().length);
+		assertEquals(0, count("select version from accounts where account_id = 41"));
+		assertEquals(0, count("select count(*) from account_adjustment"));
+		assertEquals(43, nextValue("accounts_seq"));
+		assertEquals(53, nextValue("accounts_seq"));
+		assertEquals(8, nextValue("account_type_seq"));
+	}
+	
+	/**
+	 * Method to test that a shard other than the first generates account ids from its own range.
+	 * @throws SQLException
+	 */
+	@Test
+	void shardIdRangeTest() throws SQLException {
+		configure()
+				.placeholders(Collections.singletonMap(V4__Shard_id_ranges.SHARD_INDEX_PLACEHOLDER, "2"))
+				.load()
+				.migrate();
+		assertEquals(2 * V4__Shard_id_ranges.SHARD_ID_RANGE + 1, nextValue("accounts_seq"));
+		assertEquals(1, nextValue("account_type_seq"));
+	}
+	
+	/**
+	 * Method to configure Flyway with the same locations as the application.
+	 */
+	private static FluentConfiguration configure() {
+		return Flyway.configure()
+				.dataSource(URL, "sa", "")
+				.locations("classpath:db/migration", "classpath:org/generictech/accounts/migration");
+	}
+	
+	private static long nextValue(String sequence) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+				Statement statement = connection.createStatement();
+				ResultSet next = statement.executeQuery("select nextval('" + sequence + "')")) {
+			next.next();
+			return next.getLong(1);
+		}
+	}
+	
+	private static long count(String query) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+				Statement statement = connection.createStatement();
+				ResultSet count = statement.executeQuery(query)) {
+			count.next();
+			return count.getLong(1);
+		}
+	}
+	
+	private static void execute(String sql) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+				Statement statement = connection.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+}
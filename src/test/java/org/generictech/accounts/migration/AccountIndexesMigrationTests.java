@@ -0,0 +1,150 @@
+package org.generictech.accounts.migration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+/**
+ * Test class to run the migrations against an in memory database in PostgreSQL mode laid out the way
+ * Hibernate created it before migrations were added, and check the indexes added by the
+ * {@link V1_1__Account_version_and_adjustments} and {@link V5__Account_indexes} migrations.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+class AccountIndexesMigrationTests {
+
+	private static final String URL = "jdbc:h2:mem:indexes;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+	private static final int ROWS = 100000;
+	private static final int USERS = 10000;
+	private static final String USER_QUERY = "select a.account_id, t.type from accounts a join account_type t"
+			+ " on t.account_type_id = a.acount_type_id where a.system_user_id = ? order by a.account_id";
+
+	@BeforeEach
+	public void setUp() throws SQLException {
+		new ResourceDatabasePopulator(new ClassPathResource("db/baseline-schema.sql"))
+				.execute(new DriverManagerDataSource(URL, "sa", ""));
+		execute("insert into account_type (account_type_id, type) values (1, 'Checking')");
+		// highest id first, so the identity column's sequence is only moved past the given ids once
+		execute("insert into accounts (account_id, acount_type_id, balance, system_user_id)"
+				+ " select x, 1, 0, mod(x, " + USERS + ") from system_range(1, " + ROWS + ") order by x desc");
+	}
+
+	@AfterEach
+	public void tearDown() throws SQLException {
+		execute("drop all objects");
+	}
+
+	/**
+	 * Method to test that the missing indexes are created and the user lookup uses the composite index, 
+	 * while the unique constraint and foreign key index Hibernate created are not duplicated.
+	 * @throws SQLException
+	 */
+	@Test
+	void legacyDatabaseTest() throws SQLException {
+		assertFalse(plan(USER_QUERY).contains("IDX_ACCOUNTS_USER_ACCOUNT"));
+		migrate();
+		assertTrue(plan(USER_QUERY).contains("IDX_ACCOUNTS_USER_ACCOUNT"), plan(USER_QUERY));
+		// H2 indexes the foreign key Hibernate created, PostgreSQL does not and gets idx_accounts_account_type
+		assertFalse(plan("select account_id from accounts where acount_type_id = 1").contains("TABLESCAN"));
+		assertEquals(0, count("select count(*) from information_schema.indexes where lower(index_name) = 'uk_account_type_type'"));
+	}
+
+	/**
+	 * Method to test that running the index migrations again leaves the indexes as they are.
+	 * @throws SQLException
+	 */
+	@Test
+	void repeatTest() throws SQLException {
+		migrate();
+		long before = count("select count(*) from information_schema.indexes where table_name = 'ACCOUNTS'");
+		execute("delete from \"flyway_schema_history\" where \"version\" in ('1.1', '5')");
+		migrate();
+		assertEquals(before, count("select count(*) from information_schema.indexes where table_name = 'ACCOUNTS'"));
+	}
+
+	/**
+	 * Method to report the time to load one user's accounts from ROWS accounts before and after the migration. 
+	 * Only run with the performance profile.
+	 * @param reporter
+	 * @throws SQLException
+	 */
+	@Test
+	@Tag("performance")
+	void userLookupLatencyTest(TestReporter reporter) throws SQLException {
+		reporter.publishEntry("microseconds per user lookup without indexes", Long.toString(lookupMicros()));
+		migrate();
+		reporter.publishEntry("microseconds per user lookup with indexes", Long.toString(lookupMicros()));
+	}
+
+	private static void migrate() {
+		Flyway.configure()
+				.dataSource(URL, "sa", "")
+				.locations("classpath:db/migration", "classpath:org/generictech/accounts/migration")
+				.baselineOnMigrate(true)
+				.baselineVersion("1")
+				// lets repeatTest run the index migrations again once later migrations have run
+				.outOfOrder(true)
+				.load()
+				.migrate();
+	}
+
+	private static long lookupMicros() throws SQLException {
+		int lookups = 200;
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+				PreparedStatement statement = connection.prepareStatement(USER_QUERY)) {
+			long start = System.nanoTime();
+			for (int i = 0; i < lookups; i++) {
+				statement.setInt(1, i * 37 % USERS);
+				try (ResultSet rows = statement.executeQuery()) {
+					while (rows.next()) {
+						rows.getInt(1);
+					}
+				}
+			}
+			return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / lookups;
+		}
+	}
+
+	private static String plan(String query) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+				Statement statement = connection.createStatement();
+				ResultSet plan = statement.executeQuery("explain " + query.replace("?", "7"))) {
+			plan.next();
+			return plan.getString(1).toUpperCase();
+		}
+	}
+
+	private static long count(String query) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+				Statement statement = connection.createStatement();
+				ResultSet count = statement.executeQuery(query)) {
+			count.next();
+			return count.getLong(1);
+		}
+	}
+
+	private static void execute(String sql) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+				Statement statement = connection.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+}
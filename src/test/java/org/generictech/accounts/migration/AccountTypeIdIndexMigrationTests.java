@@ -0,0 +1,97 @@
+package org.generictech.accounts.migration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class to check the {@link V9__Account_type_id_index} migration against an in memory database in 
+ * PostgreSQL mode. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+class AccountTypeIdIndexMigrationTests {
+
+	private static final String URL = "jdbc:h2:mem:type-id-index;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+	
+	@AfterEach
+	public void tearDown() throws SQLException {
+		execute("drop all objects");
+	}
+	
+	/**
+	 * Method to test that lookups by account_type_id use the new index, and that account_type_id may be
+	 * null but must otherwise name an existing type.
+	 * @throws SQLException
+	 */
+	@Test
+	void indexAndForeignKeyTest() throws SQLException {
+		configure().load().migrate();
+		execute("insert into account_type (account_type_id, type) values (1, 'Checking')");
+		execute("insert into accounts (account_id, acount_type_id, account_type_id, balance, system_user_id)"
+				+ " values (1, 1, null, 0, 1)");
+		execute("insert into accounts (account_id, acount_type_id, account_type_id, balance, system_user_id)"
+				+ " values (2, 1, 1, 0, 1)");
+		
+		assertTrue(plan("select account_id from accounts where account_type_id = 1").contains("IDX_ACCOUNTS_ACCOUNT_TYPE_ID"));
+		assertThrows(SQLException.class, () -> execute("insert into accounts (account_id, acount_type_id"
+				+ ", account_type_id, balance, system_user_id) values (3, 1, 2, 0, 1)"));
+	}
+	
+	/**
+	 * Method to test that running the migration again leaves the index and foreign key as they are.
+	 * @throws SQLException
+	 */
+	@Test
+	void repeatTest() throws SQLException {
+		configure().load().migrate();
+		long before = count("select count(*) from information_schema.indexes where table_name = 'ACCOUNTS'");
+		execute("delete from \"flyway_schema_history\" where \"version\" = '9'");
+		configure().load().migrate();
+		assertEquals(before, count("select count(*) from information_schema.indexes where table_name = 'ACCOUNTS'"));
+		assertEquals(1, count("select count(*) from information_schema.constraints"
+				+ " where lower(constraint_name) = 'fk_accounts_account_type_id'"));
+	}
+	
+	private static FluentConfiguration configure() {
+		return Flyway.configure()
+				.dataSource(URL, "sa", "")
+				.locations("classpath:db/migration", "classpath:org/generictech/accounts/migration");
+	}
+	
+	private static String plan(String query) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+				Statement statement = connection.createStatement();
+				ResultSet plan = statement.executeQuery("explain " + query)) {
+			plan.next();
+			return plan.getString(1).toUpperCase();
+		}
+	}
+	
+	private static long count(String query) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+				Statement statement = connection.createStatement();
+				ResultSet count = statement.executeQuery(query)) {
+			count.next();
+			return count.getLong(1);
+		}
+	}
+	
+	private static void execute(String sql) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+				Statement statement = connection.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+}
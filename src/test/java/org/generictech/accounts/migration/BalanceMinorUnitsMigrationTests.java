@@ -0,0 +1,79 @@
+package org.generictech.accounts.migration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class to check that the V8__Balance_minor_units migration only adds the minor unit columns, 
+ * leaving the amounts already stored as doubles to be converted by the backfill, against an in memory 
+ * database in PostgreSQL mode. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+class BalanceMinorUnitsMigrationTests {
+
+	private static final String URL = "jdbc:h2:mem:minor-units;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+	
+	@AfterEach
+	public void tearDown() throws SQLException {
+		execute("drop all objects");
+	}
+	
+	/**
+	 * Method to test that existing balances, adjustments and summaries keep their decimal amounts and 
+	 * have no minor unit amounts until they are backfilled, and that rows can still be written without them.
+	 * @throws SQLException
+	 */
+	@Test
+	void expandTest() throws SQLException {
+		configure().target("7").load().migrate();
+		execute("insert into account_type (account_type_id, type) values (1, 'Checking')");
+		execute("insert into accounts (account_id, acount_type_id, account_type_id, balance, system_user_id)"
+				+ " values (1, 1, 1, 10.1, 1)");
+		execute("insert into account_adjustment (system_user_id, idempotency_key, account_id, delta, balance, created_at)"
+				+ " values (1, 'key', 1, 0.1, 10.1, current_timestamp)");
+		execute("insert into account_summary (system_user_id, account_type_id, accounts, balance) values (1, 1, 1, 10.1)");
+		
+		configure().load().migrate();
+		execute("insert into accounts (account_id, acount_type_id, account_type_id, balance, system_user_id)"
+				+ " values (2, 1, 1, -0.07, 1)");
+		
+		assertEquals(1010, query("select round(balance * 100) from accounts where account_id = 1"));
+		assertEquals(0, query("select count(*) from accounts where balance_minor is not null"));
+		assertEquals(0, query("select count(*) from account_adjustment where delta_minor is not null"
+				+ " or balance_minor is not null"));
+		assertEquals(0, query("select count(*) from account_summary where balance_minor is not null"));
+	}
+	
+	private static FluentConfiguration configure() {
+		return Flyway.configure()
+				.dataSource(URL, "sa", "")
+				.locations("classpath:db/migration", "classpath:org/generictech/accounts/migration");
+	}
+	
+	private static long query(String sql) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+				Statement statement = connection.createStatement();
+				ResultSet result = statement.executeQuery(sql)) {
+			result.next();
+			return result.getLong(1);
+		}
+	}
+	
+	private static void execute(String sql) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+				Statement statement = connection.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+}
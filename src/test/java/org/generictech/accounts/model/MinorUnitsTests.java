@@ -0,0 +1,159 @@
+package org.generictech.accounts.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+
+/**
+ * Test class to test the {@link MinorUnits} class and the way account balances are read and written.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+class MinorUnitsTests {
+
+	private static final int ACCOUNTS = 10000;
+	private static final int ROUNDS = 20;
+	
+	private final ObjectMapper om = new ObjectMapper()
+			.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+	
+	/**
+	 * Method to test that a balance is written as a decimal amount and read back to the same minor units.
+	 * @throws Exception
+	 */
+	@Test
+	void balanceJsonTest() throws Exception {
+		Accounts account = new Accounts(1, new AccountType(1, "Test"), "Test Account", -1005, 1);
+		String json = om.writeValueAsString(account);
+		assertTrue(json.contains("\"balance\":-10.05"));
+		assertEquals(-1005, om.readValue(json, Accounts.class).getBalance());
+		assertEquals(1000, om.readValue("{\"balance\":10}", Accounts.class).getBalance());
+	}
+	
+	/**
+	 * Method to test that amounts with more decimal places than minor units hold are refused.
+	 */
+	@Test
+	void balanceTooPreciseTest() {
+		assertThrows(InvalidFormatException.class, () -> om.readValue("{\"balance\":10.005}", Accounts.class));
+		assertThrows(ArithmeticException.class, () -> MinorUnits.fromDecimal(new BigDecimal("0.001")));
+	}
+	
+	/**
+	 * Method to test that a balance of zero counts as set, so an update can clear a balance.
+	 * @throws Exception
+	 */
+	@Test
+	void balanceSetTest() throws Exception {
+		assertTrue(om.readValue("{\"balance\":0}", Accounts.class).isBalanceSet());
+		assertFalse(om.readValue("{\"description\":\"Test\"}", Accounts.class).isBalanceSet());
+	}
+	
+	/**
+	 * Method to test that summing balances in minor units gives the same total as summing them as 
+	 * BigDecimals, where summing them as doubles does not.
+	 */
+	@Test
+	void exactSumTest() {
+		long total = 0;
+		BigDecimal decimalTotal = BigDecimal.ZERO;
+		double doubleTotal = 0;
+		for (int i = 0; i < 10; i++) {
+			total += 10;
+			decimalTotal = decimalTotal.add(MinorUnits.toDecimal(10));
+			doubleTotal += 0.1;
+		}
+		assertEquals(100, total);
+		assertEquals(total, MinorUnits.fromDecimal(decimalTotal));
+		assertNotEquals(1.0, doubleTotal);
+	}
+	
+	/**
+	 * Method to compare summing and serializing a list of balances held as doubles, BigDecimals and minor 
+	 * units. Only run with the performance profile.
+	 * @throws Exception
+	 */
+	@Test
+	@Tag("performance")
+	void representationTest(TestReporter reporter) throws Exception {
+		List<Double> doubles = new ArrayList<>();
+		List<BigDecimal> decimals = new ArrayList<>();
+		long[] minorUnits = new long[ACCOUNTS];
+		for (int i = 0; i < ACCOUNTS; i++) {
+			minorUnits[i] = i * 7919L % 100000 + 1;
+			decimals.add(MinorUnits.toDecimal(minorUnits[i]));
+			doubles.add(decimals.get(i).doubleValue());
+		}
+		
+		long exact = time(reporter, "long sum", () -> {
+			long total = 0;
+			for (long balance : minorUnits) {
+				total += balance;
+			}
+			return total;
+		});
+		BigDecimal decimalTotal = time(reporter, "BigDecimal sum", () -> {
+			BigDecimal total = BigDecimal.ZERO;
+			for (BigDecimal balance : decimals) {
+				total = total.add(balance);
+			}
+			return total;
+		});
+		double doubleTotal = time(reporter, "double sum", () -> {
+			double total = 0;
+			for (double balance : doubles) {
+				total += balance;
+			}
+			return total;
+		});
+		assertEquals(exact, MinorUnits.fromDecimal(decimalTotal));
+		reporter.publishEntry("double sum error", new BigDecimal(doubleTotal).subtract(MinorUnits.toDecimal(exact))
+				.toPlainString());
+		
+		List<Accounts> accounts = new ArrayList<>();
+		for (int i = 0; i < ACCOUNTS; i++) {
+			accounts.add(new Accounts(i, new AccountType(1, "Test"), "Account", minorUnits[i], 1));
+		}
+		time(reporter, "long serialize", () -> write(accounts));
+		time(reporter, "BigDecimal serialize", () -> write(decimals));
+		time(reporter, "double serialize", () -> write(doubles));
+	}
+	
+	private String write(Object value) {
+		try {
+			return om.writeValueAsString(value);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Method to run work ROUNDS times after a warm up and report the mean time of a run.
+	 */
+	private static <T> T time(TestReporter reporter, String name, Supplier<T> work) {
+		T result = work.get();
+		long start = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++) {
+			result = work.get();
+		}
+		reporter.publishEntry(name + " microseconds"
+				, Long.toString(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / ROUNDS));
+		return result;
+	}
+}
@@ -0,0 +1,101 @@
+package org.generictech.accounts.repo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.generictech.accounts.model.AccountType;
+import org.generictech.accounts.model.Accounts;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test class to test the second-level and query caches of the {@link AccountsRepo}. Each repo call runs 
+ * in its own transaction so that cache entries are written on commit as they are in the application. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@DataJpaTest(properties = "accounts.jpa.cache.enabled=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AccountsCacheTests {
+
+	@Autowired
+	private AccountsRepo accountsRepo;
+	@Autowired
+	private AccountTypeRepo accountTypeRepo;
+	@Autowired
+	private EntityManagerFactory emf;
+	
+	private Statistics statistics;
+	private AccountType type;
+	private Accounts account;
+	
+	@BeforeEach
+	public void setUp() {
+		statistics = emf.unwrap(SessionFactory.class).getStatistics();
+		type = accountTypeRepo.save(new AccountType(0, "Checking"));
+		account = accountsRepo.save(new Accounts(0, type, "Test Account", 10000, 1));
+		statistics.clear();
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		accountsRepo.deleteAll();
+		accountTypeRepo.deleteAll();
+	}
+	
+	/**
+	 * Method to test that once an account has been read it is served from the cache without a statement.
+	 */
+	@Test
+	void findByIdCachedTest() {
+		accountsRepo.findById(account.getId());
+		statistics.clear();
+		assertEquals("Test Account", accountsRepo.findById(account.getId()).get().getDescription());
+		assertEquals("Test Account", accountsRepo.findById(account.getId()).get().getDescription());
+		assertEquals(0, statistics.getPrepareStatementCount());
+		assertEquals(2, statistics.getSecondLevelCacheHitCount());
+	}
+	
+	/**
+	 * Method to test that an update through the repo replaces the cached account.
+	 */
+	@Test
+	void saveInvalidatesTest() {
+		accountsRepo.findById(account.getId());
+		account.setDescription("Updated Account");
+		accountsRepo.save(account);
+		assertEquals("Updated Account", accountsRepo.findById(account.getId()).get().getDescription());
+	}
+	
+	/**
+	 * Method to test that a deleted account is no longer returned from the cache.
+	 */
+	@Test
+	void deleteInvalidatesTest() {
+		accountsRepo.findById(account.getId());
+		accountsRepo.delete(account);
+		assertFalse(accountsRepo.findById(account.getId()).isPresent());
+	}
+	
+	/**
+	 * Method to test that findByUserId is served from the query cache until the accounts table changes.
+	 */
+	@Test
+	void findByUserIdQueryCacheTest() {
+		assertEquals(1, accountsRepo.findByUserId(1).get().size());
+		assertEquals(1, accountsRepo.findByUserId(1).get().size());
+		assertEquals(1, statistics.getQueryCacheHitCount());
+		
+		accountsRepo.save(new Accounts(0, type, "Test Account 2", 200, 1));
+		assertEquals(2, accountsRepo.findByUserId(1).get().size());
+	}
+}
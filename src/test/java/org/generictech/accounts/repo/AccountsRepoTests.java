@@ -0,0 +1,156 @@
+package org.generictech.accounts.repo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import org.generictech.accounts.model.AccountType;
+import org.generictech.accounts.model.Accounts;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+/**
+ * Test class to check the number of SQL statements run by the {@link AccountsRepo} queries
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class AccountsRepoTests {
+
+	@Autowired
+	private AccountsRepo accountsRepo;
+	@Autowired
+	private AccountTypeRepo accountTypeRepo;
+	@Autowired
+	private EntityManager em;
+	
+	private int savedId;
+	
+	/**
+	 * Method to test that findByUserId runs one statement whatever the number of accounts and types.
+	 */
+	@Test
+	void findByUserIdStatementsTest() {
+		assertEquals(1, statementsFor(3, repo -> repo.findByUserId(1).get().forEach(this::touch)));
+		assertEquals(1, statementsFor(30, repo -> repo.findByUserId(1).get().forEach(this::touch)));
+	}
+	
+	/**
+	 * Method to test that findAll runs one statement whatever the number of accounts and types.
+	 */
+	@Test
+	void findAllStatementsTest() {
+		assertEquals(1, statementsFor(30, repo -> repo.findAll().forEach(this::touch)));
+	}
+	
+	/**
+	 * Method to test that findById runs one statement.
+	 */
+	@Test
+	void findByIdStatementsTest() {
+		assertEquals(1, statementsFor(3, repo -> touch(repo.findById(savedId).get())));
+	}
+	
+	/**
+	 * Method to test that a page of accounts is read with one statement.
+	 */
+	@Test
+	void findPageStatementsTest() {
+		assertEquals(1, statementsFor(30, repo -> repo.findByUserIdAndIdGreaterThanOrderByIdAsc(1, 0
+				, PageRequest.of(0, 10)).forEach(this::touch)));
+	}
+	
+	/**
+	 * Method to test that streaming the accounts of a user runs one statement.
+	 */
+	@Test
+	void streamByUserIdStatementsTest() {
+		assertEquals(1, statementsFor(30, repo -> {
+			try (Stream<Accounts> accounts = repo.streamByUserId(1)) {
+				Iterator<Accounts> iterator = accounts.iterator();
+				while (iterator.hasNext()) {
+					touch(iterator.next());
+				}
+			}
+		}));
+	}
+	
+	/**
+	 * Method to test that updateOwned changes only the given attributes in one statement, and only for the owner.
+	 */
+	@Test
+	void updateOwnedTest() {
+		AccountType type = accountTypeRepo.save(new AccountType(0, "Checking"));
+		int id = accountsRepo.save(new Accounts(0, type, "Account", 10, 1)).getId();
+		em.flush();
+		em.clear();
+		Map<String, Object> changes = new LinkedHashMap<>();
+		changes.put("balance", 0L);
+		changes.put(Accounts.BALANCE_COPY, 0.0);
+		Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		
+		assertEquals(0, accountsRepo.updateOwned(id, 2, changes));
+		assertEquals(1, accountsRepo.updateOwned(id, 1, changes));
+		assertEquals(2, statistics.getPrepareStatementCount());
+		Accounts account = accountsRepo.findById(id).get();
+		assertEquals(0, account.getBalance());
+		assertEquals("Account", account.getDescription());
+	}
+	
+	/**
+	 * Method to test that saving an account read before another change fails instead of overwriting it.
+	 */
+	@Test
+	void staleSaveTest() {
+		AccountType type = accountTypeRepo.save(new AccountType(0, "Checking"));
+		int id = accountsRepo.save(new Accounts(0, type, "Account", 10, 1)).getId();
+		em.flush();
+		em.clear();
+		Accounts stale = accountsRepo.findById(id).get();
+		em.detach(stale);
+		Map<String, Object> changes = new LinkedHashMap<>();
+		changes.put("description", "Changed");
+		accountsRepo.updateOwned(id, 1, changes);
+		
+		stale.setBalance(20);
+		assertThrows(ObjectOptimisticLockingFailureException.class, () -> {
+			accountsRepo.saveAndFlush(stale);
+		});
+	}
+	
+	/**
+	 * Method to save the given number of accounts for user 1, each with a different type, and count the 
+	 * statements run by the query.
+	 */
+	private long statementsFor(int count, Consumer<AccountsRepo> query) {
+		for (int i = 0; i < count; i++) {
+			AccountType type = accountTypeRepo.save(new AccountType(0, "Type " + count + "-" + i));
+			savedId = accountsRepo.save(new Accounts(0, type, "Account " + i, i, 1)).getId();
+		}
+		em.flush();
+		em.clear();
+		Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		query.accept(accountsRepo);
+		long statements = statistics.getPrepareStatementCount();
+		em.clear();
+		return statements;
+	}
+	
+	private void touch(Accounts account) {
+		account.getType().getType();
+	}
+}
@@ -0,0 +1,148 @@
+package org.generictech.accounts.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.generictech.accounts.config.Shards;
+import org.generictech.accounts.dto.SystemUserDTO;
+import org.generictech.accounts.exception.AccountNotFoundException;
+import org.generictech.accounts.exception.BadValueException;
+import org.generictech.accounts.exception.UnauthorizedAccessException;
+import org.generictech.accounts.model.AccountType;
+import org.generictech.accounts.model.Accounts;
+import org.generictech.accounts.repo.AccountAdjustmentRepo;
+import org.generictech.accounts.repo.AccountTypeRepo;
+import org.generictech.accounts.repo.AccountsRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test class to test the {@link AccountAdjustmentService} class against an in memory database. Each 
+ * adjustment runs in its own transaction as it does in the application. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@DataJpaTest
+@Import({AccountAdjustmentService.class, AccountSummaryService.class, AccountEventService.class, Shards.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AccountAdjustmentServiceTests {
+
+	@Autowired
+	private AccountAdjustmentService accountAdjustmentService;
+	@Autowired
+	private AccountsRepo accountsRepo;
+	@Autowired
+	private AccountTypeRepo accountTypeRepo;
+	@Autowired
+	private AccountAdjustmentRepo accountAdjustmentRepo;
+	@Autowired
+	private AccountSummaryService accountSummaryService;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	
+	private SystemUserDTO user;
+	private Accounts account;
+	
+	@BeforeEach
+	public void setUp() {
+		user = new SystemUserDTO(1, "TestUser", "t@t.com");
+		AccountType type = accountTypeRepo.save(new AccountType(0, "Checking"));
+		account = accountsRepo.save(new Accounts(0, type, "Test Account", 10000, 1));
+		accountSummaryService.reconcile();
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		jdbcTemplate.update("delete from account_summary");
+		accountAdjustmentRepo.deleteAll();
+		accountsRepo.deleteAll();
+		accountTypeRepo.deleteAll();
+	}
+	
+	/**
+	 * Method to test that adjust returns the new balance and adds the adjustment to the user's summary.
+	 * @throws Exception
+	 */
+	@Test
+	void adjustTest() throws Exception {
+		assertEquals(7550, accountAdjustmentService.adjust(account.getId(), -2450, null, user).getBalance());
+		assertEquals(7550, accountsRepo.findById(account.getId()).get().getBalance());
+		assertEquals(7550, accountSummaryService.findByUserId(1).getBalance());
+		assertEquals(1, accountSummaryService.findByUserId(1).getAccounts());
+	}
+	
+	/**
+	 * Method to test that repeating an idempotency key returns the first result without adjusting again.
+	 * @throws Exception
+	 */
+	@Test
+	void adjustIdempotentTest() throws Exception {
+		assertEquals(11000, accountAdjustmentService.adjust(account.getId(), 1000, "key-1", user).getBalance());
+		assertEquals(11000, accountAdjustmentService.adjust(account.getId(), 1000, "key-1", user).getBalance());
+		assertEquals(11000, accountsRepo.findById(account.getId()).get().getBalance());
+		assertThrows(BadValueException.class, () -> {
+			accountAdjustmentService.adjust(account.getId(), 2000, "key-1", user);
+		});
+	}
+	
+	/**
+	 * Method to test adjust on an account owned by another user and on one that does not exist.
+	 */
+	@Test
+	void adjustNoRowsTest() {
+		SystemUserDTO other = new SystemUserDTO(2, "Other", "o@t.com");
+		assertThrows(UnauthorizedAccessException.class, () -> {
+			accountAdjustmentService.adjust(account.getId(), 10, null, other);
+		});
+		assertThrows(AccountNotFoundException.class, () -> {
+			accountAdjustmentService.adjust(account.getId() + 1000, 10, null, user);
+		});
+		assertEquals(10000, accountsRepo.findById(account.getId()).get().getBalance());
+	}
+	
+	/**
+	 * Method to test that concurrent adjustments to one account are all applied, including retries of 
+	 * the same idempotency key.
+	 * @throws Exception
+	 */
+	@Test
+	void adjustContentionTest() throws Exception {
+		int threads = 8;
+		int perThread = 50;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int thread = t;
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < perThread; i++) {
+					// every adjustment is sent twice with the same key
+					String key = thread + "-" + i;
+					accountAdjustmentService.adjust(account.getId(), 1, key, user);
+					accountAdjustmentService.adjust(account.getId(), 1, key, user);
+				}
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get(60, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+		
+		assertEquals(10000 + threads * perThread, accountsRepo.findById(account.getId()).get().getBalance());
+		assertEquals(10000 + threads * perThread, accountSummaryService.findByUserId(1).getBalance());
+	}
+}
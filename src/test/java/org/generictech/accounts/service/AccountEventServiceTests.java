@@ -0,0 +1,337 @@
+package org.generictech.accounts.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.generictech.accounts.dto.AccountEventDTO;
+import org.generictech.accounts.model.AccountType;
+import org.generictech.accounts.model.Accounts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Test class to test the {@link AccountEventService} class. Subscribers are connected through a mock
+ * servlet so the events written to each client can be read back from its response.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+class AccountEventServiceTests {
+
+	private final List<Runnable> pending = new ArrayList<>();
+	private AccountEventService accountEventService;
+	private MockMvc mockMvc;
+
+	@AfterEach
+	public void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	/**
+	 * Method to test that an event is written to every subscriber of the user it belongs to and to no one
+	 * else.
+	 * @throws Exception
+	 */
+	@Test
+	void sendTest() throws Exception {
+		setUp(8, Runnable::run);
+		MvcResult first = subscribe(1);
+		MvcResult second = subscribe(1);
+		MvcResult other = subscribe(2);
+
+		accountEventService.send(1, new AccountEventDTO(AccountEventDTO.UPDATED, 5, 3));
+
+		for (MvcResult result : new MvcResult[] {first, second}) {
+			String content = result.getResponse().getContentAsString();
+			assertTrue(content.contains("event:updated\n"));
+			assertTrue(content.contains("\"id\":5"));
+			assertTrue(content.contains("\"version\":3"));
+		}
+		assertEquals("", other.getResponse().getContentAsString());
+		assertEquals(3, accountEventService.getSubscriberCount());
+	}
+
+	/**
+	 * Method to test that a published change is only sent once its transaction commits, with the version
+	 * the account has then.
+	 * @throws Exception
+	 */
+	@Test
+	void publishAfterCommitTest() throws Exception {
+		setUp(8, Runnable::run);
+		MvcResult result = subscribe(1);
+		Accounts account = new Accounts(5, new AccountType(1, "Test"), "Test Account", 10000, 1);
+
+		TransactionSynchronizationManager.initSynchronization();
+		accountEventService.publish(1, AccountEventDTO.CREATED, account);
+		account.setVersion(1);
+		assertEquals("", result.getResponse().getContentAsString());
+		TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+
+		String content = result.getResponse().getContentAsString();
+		assertTrue(content.contains("event:created\n"));
+		assertTrue(content.contains("\"version\":1"));
+	}
+
+	/**
+	 * Method to test that a subscriber whose buffer fills up is disconnected without the publisher waiting
+	 * on it, and that its connection is completed with an error straight away.
+	 * @throws Exception
+	 */
+	@Test
+	void slowSubscriberTest() throws Exception {
+		setUp(2, pending::add);
+		MvcResult result = subscribe(1);
+
+		for (int i = 0; i < 3; i++) {
+			accountEventService.send(1, new AccountEventDTO(AccountEventDTO.UPDATED, 5, i));
+		}
+
+		assertEquals(0, accountEventService.getSubscriberCount());
+		assertEquals(1, pending.size());
+		pending.remove(0).run();
+		assertFalse(result.getResponse().getContentAsString().contains("event:"));
+		assertTrue(result.getAsyncResult() instanceof AsyncRequestTimeoutException);
+	}
+
+	/**
+	 * Method to test that a subscriber whose client has stopped reading is disconnected once its write 
+	 * runs past the write timeout, and that other subscribers keep receiving events while the writer is 
+	 * still stuck, with the executor back to its size once the write returns.
+	 * @throws Exception
+	 */
+	@Test
+	void blockedSubscriberTest() throws Exception {
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>());
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		accountEventService = new AccountEventService(8, 60000, 0, 4, pool);
+		mockMvc = MockMvcBuilders.standaloneSetup(new StreamController(accountEventService))
+				.addFilter((request, response, chain) -> chain.doFilter(request
+						, new BlockingResponse((HttpServletResponse) response, writing, release)), "/stream/1")
+				.build();
+		try {
+			MvcResult blocked = subscribe(1);
+			MvcResult other = subscribe(2);
+			accountEventService.send(1, new AccountEventDTO(AccountEventDTO.UPDATED, 5, 1));
+			assertTrue(writing.await(5, TimeUnit.SECONDS));
+			Thread.sleep(10);
+
+			accountEventService.evictStalled();
+			assertEquals(1, accountEventService.getSubscriberCount());
+			assertEquals(2, pool.getCorePoolSize());
+			accountEventService.send(2, new AccountEventDTO(AccountEventDTO.UPDATED, 6, 1));
+			awaitTrue(() -> content(other).contains("\"id\":6"));
+
+			release.countDown();
+			awaitTrue(() -> pool.getCorePoolSize() == 1);
+			mockMvc.perform(asyncDispatch(blocked)).andExpect(status().isOk());
+		} finally {
+			release.countDown();
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Method to test that idle subscribers stay connected and receive every heartbeat.
+	 * @throws Exception
+	 */
+	@Test
+	void idleSubscribersTest() throws Exception {
+		setUp(8, Runnable::run);
+		List<MvcResult> results = subscribeAll(200);
+
+		for (int round = 0; round < 3; round++) {
+			accountEventService.heartbeat();
+		}
+
+		assertEquals(200, accountEventService.getSubscriberCount());
+		for (MvcResult result : results) {
+			assertEquals(3, heartbeats(result));
+		}
+	}
+
+	/**
+	 * Method to test that the heap held for thousands of idle subscribers does not grow as they are sent 
+	 * heartbeats, beyond the heartbeats the mock responses keep. Only run with the performance profile.
+	 * @throws Exception
+	 */
+	@Test
+	@Tag("performance")
+	void idleSubscribersMemoryTest(TestReporter reporter) throws Exception {
+		int subscribers = 5000;
+		int rounds = 20;
+		setUp(8, Runnable::run);
+		long before = usedHeap();
+		List<MvcResult> results = subscribeAll(subscribers);
+		accountEventService.heartbeat();
+		long settled = usedHeap();
+		reporter.publishEntry("bytes per subscriber", Long.toString((settled - before) / subscribers));
+
+		for (int round = 1; round < rounds; round++) {
+			accountEventService.heartbeat();
+		}
+		long growth = usedHeap() - settled;
+		reporter.publishEntry("heap growth over " + rounds + " heartbeats (bytes)", Long.toString(growth));
+
+		assertEquals(subscribers, accountEventService.getSubscriberCount());
+		assertEquals(rounds, heartbeats(results.get(subscribers - 1)));
+		// each heartbeat written to a mock response is kept, about 12 bytes per subscriber per round
+		assertTrue(growth < 4L * 1024 * 1024 + 12L * subscribers * rounds, "heap grew by " + growth + " bytes");
+	}
+
+	private List<MvcResult> subscribeAll(int subscribers) throws Exception {
+		List<MvcResult> results = new ArrayList<>(subscribers);
+		for (int i = 0; i < subscribers; i++) {
+			results.add(subscribe(i));
+		}
+		return results;
+	}
+
+	private static int heartbeats(MvcResult result) {
+		return content(result).split(":heartbeat\n", -1).length - 1;
+	}
+
+	private void setUp(int bufferSize, Executor executor) {
+		accountEventService = new AccountEventService(bufferSize, 60000, 60000, 4, executor);
+		mockMvc = MockMvcBuilders.standaloneSetup(new StreamController(accountEventService)).build();
+	}
+
+	private MvcResult subscribe(int userId) throws Exception {
+		return mockMvc.perform(get("/stream/" + userId))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+	}
+
+	private static String content(MvcResult result) {
+		try {
+			return result.getResponse().getContentAsString();
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "condition not met in time");
+			Thread.sleep(10);
+		}
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Response whose writes block until released, standing in for a client that has stopped reading.
+	 */
+	private static class BlockingResponse extends HttpServletResponseWrapper {
+
+		private final CountDownLatch writing;
+		private final CountDownLatch release;
+
+		BlockingResponse(HttpServletResponse response, CountDownLatch writing, CountDownLatch release) {
+			super(response);
+			this.writing = writing;
+			this.release = release;
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			ServletOutputStream out = super.getOutputStream();
+			return new ServletOutputStream() {
+				@Override
+				public void write(int b) throws IOException {
+					block();
+					out.write(b);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					block();
+					out.write(b, off, len);
+				}
+
+				@Override
+				public void flush() throws IOException {
+					out.flush();
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				@Override
+				public void setWriteListener(WriteListener listener) {
+					out.setWriteListener(listener);
+				}
+			};
+		}
+
+		private void block() throws IOException {
+			writing.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Controller standing in for GET /account/stream without the authentication in front of it.
+	 */
+	@RestController
+	static class StreamController {
+
+		private final AccountEventService accountEventService;
+
+		StreamController(AccountEventService accountEventService) {
+			this.accountEventService = accountEventService;
+		}
+
+		@GetMapping("/stream/{userId}")
+		public SseEmitter subscribe(@PathVariable int userId) {
+			return accountEventService.subscribe(userId);
+		}
+	}
+}
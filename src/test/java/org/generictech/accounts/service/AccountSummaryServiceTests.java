@@ -0,0 +1,214 @@
+package org.generictech.accounts.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.generictech.accounts.config.Shards;
+import org.generictech.accounts.dto.AccountSummaryDTO;
+import org.generictech.accounts.model.AccountType;
+import org.generictech.accounts.model.Accounts;
+import org.generictech.accounts.repo.AccountTypeRepo;
+import org.generictech.accounts.repo.AccountsRepo;
+import org.generictech.accounts.service.AccountSummaryService.Changes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Test class to test the {@link AccountSummaryService} class against an in memory database. Accounts 
+ * saved straight to the repo are not counted in the summaries, which stands in for drift. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@DataJpaTest(properties = {"accounts.summary.reconcile-chunk-users=10", "accounts.summary.reconcile-parallelism=2"})
+@Import({AccountSummaryService.class, Shards.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AccountSummaryServiceTests {
+
+	@Autowired
+	private AccountSummaryService accountSummaryService;
+	@Autowired
+	private AccountsRepo accountsRepo;
+	@Autowired
+	private AccountTypeRepo accountTypeRepo;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	
+	private AccountType checking;
+	private AccountType savings;
+	
+	@BeforeEach
+	public void setUp() {
+		checking = accountTypeRepo.save(new AccountType(0, "Checking"));
+		savings = accountTypeRepo.save(new AccountType(0, "Savings"));
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		jdbcTemplate.update("delete from account_summary");
+		accountsRepo.deleteAll();
+		accountTypeRepo.deleteAll();
+	}
+	
+	/**
+	 * Method to test that changes are added to the user's totals, and that a type is left out once the 
+	 * user has no accounts of it.
+	 */
+	@Test
+	void applyTest() {
+		apply(1, new Changes().add(new Accounts(0, checking, "First", 10, 1)).add(new Accounts(0, checking, "Second", 20, 1))
+				.add(new Accounts(0, savings, "Third", -5, 1)));
+		apply(2, new Changes().add(new Accounts(0, checking, "Other", 1000, 2)));
+		AccountSummaryDTO summary = accountSummaryService.findByUserId(1);
+		assertEquals(3, summary.getAccounts());
+		assertEquals(25, summary.getBalance());
+		assertEquals(2, summary.getTypes().size());
+		assertEquals("Checking", summary.getTypes().get(0).getType().getType());
+		assertEquals(2, summary.getTypes().get(0).getAccounts());
+		assertEquals(30, summary.getTypes().get(0).getBalance());
+		
+		apply(1, new Changes().add(checking.getId(), 0, 2).remove(new Accounts(0, savings, "Third", -5, 1)));
+		summary = accountSummaryService.findByUserId(1);
+		assertEquals(1, summary.getTypes().size());
+		assertEquals(2, summary.getAccounts());
+		assertEquals(32, summary.getBalance());
+	}
+	
+	/**
+	 * Method to test that changes can only be applied inside the transaction that makes them.
+	 */
+	@Test
+	void applyOutsideTransactionTest() {
+		assertThrows(IllegalTransactionStateException.class, () -> accountSummaryService.apply(1
+				, new Changes().add(new Accounts(0, checking, "First", 10, 1))));
+	}
+	
+	/**
+	 * Method to test that with accounts.migration.minor-units.read-new set, totals are read and changed from 
+	 * balance_minor, falling back to the decimal balance where balance_minor is null, and both columns are 
+	 * written.
+	 */
+	@Test
+	void readMinorUnitsTest() {
+		ReflectionTestUtils.setField(accountSummaryService, "readMinorUnits", true);
+		try {
+			apply(1, new Changes().add(new Accounts(0, checking, "First", 1010, 1)));
+			jdbcTemplate.update("update account_summary set balance = 99.99 where system_user_id = 1");
+			assertEquals(1010, accountSummaryService.findByUserId(1).getBalance());
+			
+			apply(1, new Changes().add(checking.getId(), 0, 5));
+			assertEquals(1015L, jdbcTemplate.queryForObject("select balance_minor from account_summary"
+					+ " where system_user_id = 1", Long.class));
+			assertEquals(10.15, jdbcTemplate.queryForObject("select balance from account_summary"
+					+ " where system_user_id = 1", Double.class));
+			
+			jdbcTemplate.update("update account_summary set balance_minor = null, balance = 2.05 where system_user_id = 1");
+			assertEquals(205, accountSummaryService.findByUserId(1).getBalance());
+		} finally {
+			ReflectionTestUtils.setField(accountSummaryService, "readMinorUnits", false);
+		}
+	}
+	
+	/**
+	 * Method to test that reconcile corrects missing, wrong and stale summaries across several chunks, 
+	 * and finds nothing to correct afterwards.
+	 */
+	@Test
+	void reconcileTest() {
+		for (int userId = 1; userId <= 25; userId++) {
+			accountsRepo.save(new Accounts(0, checking, "Checking", userId, userId));
+			accountsRepo.save(new Accounts(0, savings, "Savings", 100, userId));
+		}
+		apply(3, new Changes().add(checking.getId(), 1, 3).add(savings.getId(), 1, 100));
+		apply(4, new Changes().add(checking.getId(), 2, 4).add(savings.getId(), 1, 100));
+		apply(40, new Changes().add(checking.getId(), 1, 40));
+		
+		// 46 missing, one wrong and one for a user without accounts
+		assertEquals(48, accountSummaryService.reconcile());
+		assertEquals(0, accountSummaryService.reconcile());
+		for (int userId = 1; userId <= 25; userId++) {
+			AccountSummaryDTO summary = accountSummaryService.findByUserId(userId);
+			assertEquals(2, summary.getAccounts());
+			assertEquals(userId + 100, summary.getBalance());
+		}
+		assertEquals(0, accountSummaryService.findByUserId(40).getAccounts());
+	}
+	
+	/**
+	 * Method to test that the summary of a user with many accounts matches the total of their accounts.
+	 */
+	@Test
+	void summaryTotalTest() {
+		saveAccounts(1000);
+		long balance = 0;
+		for (Accounts account : accountsRepo.findByUserId(1).get()) {
+			balance += account.getBalance();
+		}
+		AccountSummaryDTO summary = accountSummaryService.findByUserId(1);
+		assertEquals(1000, summary.getAccounts());
+		assertEquals(balance, summary.getBalance());
+	}
+	
+	/**
+	 * Method to report the time to total a user's accounts from their summary and from their accounts. 
+	 * Only run with the performance profile.
+	 * @param reporter
+	 */
+	@Test
+	@Tag("performance")
+	void summaryLatencyTest(TestReporter reporter) {
+		saveAccounts(1000);
+		int reads = 50;
+		long start = System.nanoTime();
+		for (int i = 0; i < reads; i++) {
+			accountSummaryService.findByUserId(1);
+		}
+		reporter.publishEntry("microseconds per summary read", Long.toString(micros(start, reads)));
+		start = System.nanoTime();
+		for (int i = 0; i < reads; i++) {
+			long balance = 0;
+			for (Accounts account : accountsRepo.findByUserId(1).get()) {
+				balance += account.getBalance();
+			}
+			assertEquals(accountSummaryService.findByUserId(1).getBalance(), balance);
+		}
+		reporter.publishEntry("microseconds per total of 1000 accounts", Long.toString(micros(start, reads)));
+	}
+	
+	private void saveAccounts(int count) {
+		List<Accounts> accounts = new ArrayList<>();
+		Changes changes = new Changes();
+		for (int i = 0; i < count; i++) {
+			accounts.add(new Accounts(0, i % 2 == 0 ? checking : savings, "Account " + i, i, 1));
+			changes.add(accounts.get(i));
+		}
+		accountsRepo.saveAll(accounts);
+		apply(1, changes);
+	}
+	
+	private void apply(int userId, Changes changes) {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> accountSummaryService.apply(userId, changes));
+	}
+	
+	private static long micros(long start, int reads) {
+		return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / reads;
+	}
+}
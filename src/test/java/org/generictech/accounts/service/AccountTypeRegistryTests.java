@@ -0,0 +1,83 @@
+package org.generictech.accounts.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.Mockito.doReturn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.generictech.accounts.model.AccountType;
+import org.generictech.accounts.repo.AccountTypeRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Test class to test the {@link AccountTypeRegistry} class
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class AccountTypeRegistryTests {
+
+	@Mock
+	private AccountTypeRepo accountTypeRepo;
+	
+	@InjectMocks
+	private AccountTypeRegistry accountTypeRegistry;
+	
+	private List<AccountType> types = new ArrayList<>();
+	
+	@BeforeEach
+	public void setUp() {
+		types.add(new AccountType(2, "Savings"));
+		types.add(new AccountType(1, "Checking"));
+	}
+	
+	/**
+	 * Method to test that types can be found by id and name once loaded. 
+	 */
+	@Test
+	void findTest() {
+		doReturn(types).when(accountTypeRepo).findAll();
+		accountTypeRegistry.init();
+		
+		assertEquals("Savings", accountTypeRegistry.findById(2).get().getType());
+		assertEquals(1, accountTypeRegistry.findByType("Checking").get().getId());
+		assertFalse(accountTypeRegistry.findById(3).isPresent());
+		assertEquals(1, accountTypeRegistry.getSnapshot().getTypes().get(0).getId());
+	}
+	
+	/**
+	 * Method to test that a change made outside a transaction is visible straight away and changes the ETag. 
+	 */
+	@Test
+	void refreshAfterCommitTest() {
+		doReturn(types).when(accountTypeRepo).findAll();
+		accountTypeRegistry.init();
+		String eTag = accountTypeRegistry.getSnapshot().getETag();
+		
+		doReturn(Arrays.asList(new AccountType(1, "Checking"))).when(accountTypeRepo).findAll();
+		accountTypeRegistry.refreshAfterCommit();
+		
+		assertFalse(accountTypeRegistry.findById(2).isPresent());
+		assertNotEquals(eTag, accountTypeRegistry.getSnapshot().getETag());
+	}
+	
+	/**
+	 * Method to test that the ETag depends only on the types and not their order. 
+	 */
+	@Test
+	void eTagTest() {
+		List<AccountType> reversed = new ArrayList<>(types);
+		Collections.reverse(reversed);
+		assertEquals(new AccountTypeRegistry.Snapshot(types).getETag(), new AccountTypeRegistry.Snapshot(reversed).getETag());
+	}
+}
@@ -1,17 +1,23 @@
 package org.generictech.accounts.service;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
+import org.generictech.accounts.config.Shards;
 import org.generictech.accounts.exception.BadValueException;
 import org.generictech.accounts.exception.ProcessingException;
 import org.generictech.accounts.exception.TypeNotFoundException;
@@ -20,9 +26,13 @@ import org.generictech.accounts.repo.AccountTypeRepo;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 
 
 /**
@@ -36,6 +46,15 @@ class AccountTypeServiceTests {
 	@Mock
 	private AccountTypeRepo accountTypeRepo;
 	
+	@Mock
+	private AccountTypeRegistry accountTypeRegistry;
+	
+	@Mock
+	private Shards shards;
+	
+	@Mock
+	private JdbcTemplate jdbcTemplate;
+	
 	@InjectMocks
 	private AccountTypeService accountTypeService;
 	
@@ -55,9 +74,10 @@ class AccountTypeServiceTests {
 	 */
 	@Test
 	void findAllSuccessTest() {
-		doReturn(types).when(accountTypeRepo).findAll();
+		AccountTypeRegistry.Snapshot snapshot = new AccountTypeRegistry.Snapshot(types);
+		doReturn(snapshot).when(accountTypeRegistry).getSnapshot();
 		
-		assertEquals(types, accountTypeService.findAll());
+		assertEquals(snapshot.getTypes(), accountTypeService.findAll());
 	}
 	
 	/**
@@ -71,6 +91,18 @@ class AccountTypeServiceTests {
 		assertEquals(type, accountTypeService.findById(1));
 	}
 	
+	/**
+	 * Method to test that findById is served from the registry without a repo call. 
+	 * @throws TypeNotFoundException
+	 */
+	@Test 
+	void findByIdRegistryTest() throws TypeNotFoundException {
+		doReturn(Optional.of(type)).when(accountTypeRegistry).findById(1);
+		
+		assertEquals(type, accountTypeService.findById(1));
+		verify(accountTypeRepo, never()).findById(1);
+	}
+	
 	/**
 	 * Method to test the return of a TypeNotFoundException when no type is returned
 	 * from the repo. 
@@ -95,6 +127,18 @@ class AccountTypeServiceTests {
 		doReturn(type).when(accountTypeRepo).save(any(AccountType.class));
 		
 		assertEquals(type, accountTypeService.save(type));
+		verify(accountTypeRegistry).refreshAfterCommit();
+	}
+	
+	/**
+	 * Method to test the proper return if a type with the same name already exists. 
+	 */
+	@Test 
+	void saveDuplicateFailedTest() {
+		doReturn(Optional.of(type)).when(accountTypeRegistry).findByType("Test Type");
+		assertThrows(BadValueException.class, ()->{
+			accountTypeService.save(new AccountType(0, "Test Type"));
+		});
 	}
 	
 	/**
@@ -164,6 +208,7 @@ class AccountTypeServiceTests {
 		doReturn(Optional.of(type)).when(accountTypeRepo).findById(1);
 		doNothing().when(accountTypeRepo).delete(type);
 		assertTrue(accountTypeService.delete(1));
+		verify(accountTypeRegistry).refreshAfterCommit();
 	}
 	
 	/**
@@ -178,4 +223,34 @@ class AccountTypeServiceTests {
 		});
 	}
 	
+	/**
+	 * Method to test that syncing the shards adds missing types, renames changed ones and removes the ones
+	 * deleted from the directory shard, carrying on past a type that is still in use.
+	 */
+	@Test
+	void syncShardsTest() {
+		List<AccountType> shardTypes = new ArrayList<>();
+		shardTypes.add(new AccountType(1, "Test Type"));
+		shardTypes.add(new AccountType(2, "Old Type"));
+		shardTypes.add(new AccountType(4, "Used Type"));
+		shardTypes.add(new AccountType(5, "Deleted Type"));
+		doReturn(true).when(shards).isSharded();
+		doAnswer(invocation -> {
+			invocation.<Runnable>getArgument(0).run();
+			return null;
+		}).when(shards).replicate(any());
+		doReturn(types).when(accountTypeRepo).findAll();
+		doReturn(shardTypes).when(jdbcTemplate).query(anyString(), ArgumentMatchers.<RowMapper<AccountType>>any());
+		lenient().doThrow(new DataIntegrityViolationException("in use")).when(jdbcTemplate)
+				.update("delete from account_type where account_type_id = ?", 4);
+		
+		accountTypeService.syncShards();
+		
+		verify(jdbcTemplate).update("update account_type set type = ? where account_type_id = ?", "Test Type 2", 2);
+		verify(jdbcTemplate).update("insert into account_type (account_type_id, type) values (?, ?)", 3, "Test Type 3");
+		verify(jdbcTemplate).update("delete from account_type where account_type_id = ?", 5);
+		verify(jdbcTemplate).update("delete from account_type where account_type_id = ?", 4);
+		verify(jdbcTemplate, never()).update("update account_type set type = ? where account_type_id = ?", "Test Type", 1);
+	}
+	
 }
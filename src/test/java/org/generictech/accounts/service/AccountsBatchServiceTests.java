@@ -0,0 +1,237 @@
+package org.generictech.accounts.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.generictech.accounts.config.Shards;
+import org.generictech.accounts.dto.BatchResultDTO;
+import org.generictech.accounts.dto.SystemUserDTO;
+import org.generictech.accounts.exception.BadValueException;
+import org.generictech.accounts.model.AccountType;
+import org.generictech.accounts.model.Accounts;
+import org.generictech.accounts.repo.AccountTypeRepo;
+import org.generictech.accounts.repo.AccountsRepo;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Test class to test the {@link AccountsBatchService} class against an in memory database. Each batch
+ * runs in its own transaction as it does in the application, and statement counts show whether the
+ * writes were sent as JDBC batches.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({AccountsBatchService.class, AccountSummaryService.class, AccountEventService.class, Shards.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AccountsBatchServiceTests {
+
+	@Autowired
+	private AccountsBatchService accountsBatchService;
+	@Autowired
+	private AccountsRepo accountsRepo;
+	@Autowired
+	private AccountTypeRepo accountTypeRepo;
+	@Autowired
+	private EntityManagerFactory emf;
+	@Autowired
+	private AccountSummaryService accountSummaryService;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@MockBean
+	private AccountsService accountsService;
+
+	private final ObjectMapper om = new ObjectMapper();
+	private SystemUserDTO user;
+	private AccountType type;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		user = new SystemUserDTO(1, "TestUser", "t@t.com");
+		type = accountTypeRepo.save(new AccountType(0, "Checking"));
+		doAnswer(invocation -> accountTypeRepo.findById(invocation.getArgument(0))).when(accountsService).findType(anyInt());
+		doCallRealMethod().when(accountsService).toChanges(any());
+	}
+
+	@AfterEach
+	public void tearDown() {
+		jdbcTemplate.update("delete from account_summary");
+		accountsRepo.deleteAll();
+		accountTypeRepo.deleteAll();
+	}
+
+	/**
+	 * Method to test that saveAll saves the valid accounts for the user and reports the invalid ones.
+	 * @throws Exception
+	 */
+	@Test
+	void saveAllTest() throws Exception {
+		List<BatchResultDTO> results = accountsBatchService.saveAll(Arrays.asList(
+				new Accounts(0, type, "First", 10, 5)
+				, new Accounts(0, new AccountType(-1, "Missing"), "Second", 20, 1)
+				, new Accounts(0, null, "Third", 30, 1)
+				, new Accounts(0, type, "Fourth", 40, 1)), user);
+		assertEquals(Arrays.asList(201, 404, 400, 201), statuses(results));
+		assertEquals(1, results.get(0).getAccount().getUserId());
+		assertEquals(2, accountsRepo.findByUserId(1).get().size());
+		assertEquals(2, accountSummaryService.findByUserId(1).getAccounts());
+		assertEquals(50, accountSummaryService.findByUserId(1).getBalance());
+	}
+
+	/**
+	 * Method to test that patchAll applies each patch to the user's accounts and reports failed items.
+	 * @throws Exception
+	 */
+	@Test
+	void patchAllTest() throws Exception {
+		Accounts own = accountsRepo.save(new Accounts(0, type, "Own", 10, 1));
+		Accounts other = accountsRepo.save(new Accounts(0, type, "Other", 10, 2));
+		accountSummaryService.reconcile();
+		List<JsonNode> patches = Arrays.asList(
+				om.readTree("{\"id\":" + own.getId() + ",\"balance\":0,\"description\":null}")
+				, om.readTree("{\"id\":" + other.getId() + ",\"balance\":0}")
+				, om.readTree("{\"id\":" + (other.getId() + 100) + ",\"balance\":0}")
+				, om.readTree("{\"id\":" + own.getId() + ",\"userId\":2}")
+				, om.readTree("{\"balance\":0}"));
+		List<BatchResultDTO> results = accountsBatchService.patchAll(patches, user);
+		assertEquals(Arrays.asList(200, 401, 404, 400, 400), statuses(results));
+		Accounts patched = accountsRepo.findById(own.getId()).get();
+		assertEquals(0, patched.getBalance());
+		assertEquals(null, patched.getDescription());
+		assertEquals(1, patched.getUserId());
+		assertEquals(10, accountsRepo.findById(other.getId()).get().getBalance());
+		assertEquals(0, accountSummaryService.reconcile());
+	}
+
+	/**
+	 * Method to test that deleteAll deletes only the user's accounts, once each.
+	 * @throws Exception
+	 */
+	@Test
+	void deleteAllTest() throws Exception {
+		Accounts own = accountsRepo.save(new Accounts(0, type, "Own", 10, 1));
+		Accounts other = accountsRepo.save(new Accounts(0, type, "Other", 10, 2));
+		accountSummaryService.reconcile();
+		List<BatchResultDTO> results = accountsBatchService.deleteAll(Arrays.asList(own.getId(), other.getId()
+				, own.getId(), null), user);
+		assertEquals(Arrays.asList(204, 401, 404, 400), statuses(results));
+		assertFalse(accountsRepo.existsById(own.getId()));
+		assertEquals(true, accountsRepo.existsById(other.getId()));
+		assertEquals(0, accountSummaryService.findByUserId(1).getAccounts());
+		assertEquals(0, accountSummaryService.reconcile());
+	}
+
+	/**
+	 * Method to test that empty and oversized batches are rejected.
+	 */
+	@Test
+	void batchSizeTest() {
+		assertThrows(BadValueException.class, () -> accountsBatchService.saveAll(new ArrayList<>(), user));
+		assertThrows(BadValueException.class, () -> accountsBatchService.saveAll(
+				accounts(AccountsBatchService.MAX_BATCH_SIZE + 1), user));
+		List<Integer> ids = new ArrayList<>();
+		for (int i = 0; i <= AccountsBatchService.MAX_BATCH_SIZE; i++) {
+			ids.add(i);
+		}
+		assertThrows(BadValueException.class, () -> accountsBatchService.deleteAll(ids, user));
+	}
+
+	/**
+	 * Method to test that the inserts, updates and deletes of a batch are sent as JDBC batches.
+	 * @throws Exception
+	 */
+	@Test
+	void batchedStatementsTest() throws Exception {
+		Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		List<BatchResultDTO> saved = accountsBatchService.saveAll(accounts(50), user);
+		// one select for the type, at most two sequence calls for the ids and one batched insert
+		assertTrue(statistics.getPrepareStatementCount() <= 4);
+		
+		List<JsonNode> patches = new ArrayList<>();
+		List<Integer> ids = new ArrayList<>();
+		for (BatchResultDTO result : saved) {
+			patches.add(om.readTree("{\"id\":" + result.getAccount().getId() + ",\"balance\":1}"));
+			ids.add(result.getAccount().getId());
+		}
+
+		statistics.clear();
+		accountsBatchService.patchAll(patches, user);
+		// one select for the accounts and one batched update
+		assertEquals(2, statistics.getPrepareStatementCount());
+
+		statistics.clear();
+		accountsBatchService.deleteAll(ids, user);
+		// one select for the accounts and one batched delete
+		assertEquals(2, statistics.getPrepareStatementCount());
+		assertEquals(0, accountsRepo.count());
+	}
+
+	/**
+	 * Method to report the rows written per second for batches of 1, 50 and 500 accounts. Only run with 
+	 * the performance profile.
+	 * @param reporter
+	 * @throws Exception
+	 */
+	@Test
+	@Tag("performance")
+	void batchThroughputTest(TestReporter reporter) throws Exception {
+		int rows = 500;
+		for (int size : new int[] {1, 50, 500}) {
+			long start = System.nanoTime();
+			for (int written = 0; written < rows; written += size) {
+				accountsBatchService.saveAll(accounts(size), user);
+			}
+			long elapsed = System.nanoTime() - start;
+			assertEquals(rows, accountsRepo.count());
+			reporter.publishEntry("rows per second with batches of " + size
+					, Long.toString(rows * TimeUnit.SECONDS.toNanos(1) / elapsed));
+			accountsRepo.deleteAllInBatch();
+			jdbcTemplate.update("delete from account_summary");
+		}
+	}
+
+	private List<Accounts> accounts(int count) {
+		List<Accounts> accounts = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			accounts.add(new Accounts(0, new AccountType(type.getId(), null), "Account " + i, i, 1));
+		}
+		return accounts;
+	}
+
+	private static List<Integer> statuses(List<BatchResultDTO> results) {
+		List<Integer> statuses = new ArrayList<>(results.size());
+		for (BatchResultDTO result : results) {
+			statuses.add(result.getStatus());
+		}
+		return statuses;
+	}
+}
@@ -0,0 +1,86 @@
+package org.generictech.accounts.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.generictech.accounts.model.AccountType;
+import org.generictech.accounts.model.Accounts;
+import org.generictech.accounts.repo.AccountTypeRepo;
+import org.generictech.accounts.repo.AccountsRepo;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Test class to test the {@link AccountsExportService} class against an in memory database
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@DataJpaTest
+@Import({AccountsExportService.class, JacksonAutoConfiguration.class})
+class AccountsExportServiceTests {
+
+	private static final int ROWS = 2000;
+	
+	@Autowired
+	private AccountsExportService accountsExportService;
+	@Autowired
+	private AccountsRepo accountsRepo;
+	@Autowired
+	private AccountTypeRepo accountTypeRepo;
+	@Autowired
+	private EntityManager em;
+	@Autowired
+	private ObjectMapper om;
+	
+	@BeforeEach
+	public void setUp() {
+		AccountType type = accountTypeRepo.save(new AccountType(0, "Checking"));
+		List<Accounts> accounts = new ArrayList<>();
+		for (int i = 0; i < ROWS; i++) {
+			accounts.add(new Accounts(0, type, "Account " + i, i, i % 2 + 1));
+		}
+		accountsRepo.saveAll(accounts);
+		em.flush();
+		em.clear();
+	}
+	
+	/**
+	 * Method to test that only the accounts of the user are written, in id order, and none are left in
+	 * the persistence context.
+	 * @throws Exception
+	 */
+	@Test
+	void writeByUserIdTest() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		accountsExportService.writeByUserId(2, out);
+		
+		JsonNode written = om.readTree(out.toByteArray());
+		assertEquals(ROWS / 2, written.size());
+		assertEquals("Account 1", written.get(0).get("description").asText());
+		for (JsonNode account : written) {
+			assertEquals(2, account.get("userId").asInt());
+		}
+		assertNoAccountsManaged();
+	}
+	
+	private void assertNoAccountsManaged() {
+		for (Object key : em.unwrap(Session.class).getStatistics().getEntityKeys()) {
+			assertTrue(!Accounts.class.getName().equals(((EntityKey) key).getEntityName()));
+		}
+	}
+}
@@ -5,18 +5,46 @@ import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
+import java.net.SocketTimeoutException;
+import java.net.URI;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+import org.generictech.accounts.config.Shards;
+import org.generictech.accounts.dto.AccountEventDTO;
+import org.generictech.accounts.dto.AccountsPageDTO;
 import org.generictech.accounts.dto.SystemUserDTO;
 import org.generictech.accounts.exception.AccountNotFoundException;
+import org.generictech.accounts.exception.BadValueException;
+import org.generictech.accounts.exception.PreconditionFailedException;
+import org.generictech.accounts.exception.ProcessingRuntimeException;
+import org.generictech.accounts.exception.ServiceUnavailableException;
 import org.generictech.accounts.exception.TypeNotFoundException;
 import org.generictech.accounts.exception.UnauthorizedAccessException;
+import org.generictech.accounts.exception.UserNotFoundException;
 import org.generictech.accounts.model.AccountType;
 import org.generictech.accounts.model.Accounts;
 import org.generictech.accounts.repo.AccountTypeRepo;
@@ -26,11 +54,16 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -47,6 +80,9 @@ class AccountsServiceTests {
 	@Mock
 	private AccountTypeRepo accountTypeRepo;
 	
+	@Mock
+	private AccountTypeRegistry accountTypeRegistry;
+	
 	@Mock
 	private RestTemplate restTemplate;
 	
@@ -54,11 +90,29 @@ class AccountsServiceTests {
 	private ObjectMapper om;
 	
 	@Mock
-	private DiscoveryClient discoveryClient;
+	private AuthServiceResolver authServiceResolver;
 	
 	@Mock
 	private ServiceInstance service;
 	
+	@Spy
+	private TokenCache tokenCache = new TokenCache(100, 60000, 5000, 600000);
+	
+	@Mock
+	private TokenVerifier tokenVerifier;
+	
+	@Spy
+	private AuthCircuitBreaker authCircuitBreaker = new AuthCircuitBreaker(4, 2, 50, 60000, 1);
+	
+	@Mock
+	private Shards shards;
+	
+	@Mock
+	private AccountSummaryService accountSummaryService;
+	
+	@Mock
+	private AccountEventService accountEventService;
+	
 //	@Mock
 //	private URI uri;
 	
@@ -75,11 +129,11 @@ class AccountsServiceTests {
 	public void setUp() {
 		user = new SystemUserDTO(1, "TestUser", "t@t.com");
 		type = new AccountType(1, "Test Type");
-		account = new Accounts(1, type, "Test Account", 100.00, 1);
+		account = new Accounts(1, type, "Test Account", 10000, 1);
 		accounts.add(account);
-		accounts.add(new Accounts(2, type, "Test Account 2", 2.00, 1));
-		accounts.add(new Accounts(3, type, "Test Account 3", 3.00, 1));
-		accounts.add(new Accounts(4, type, "Test Account 4", 4.00, 1));
+		accounts.add(new Accounts(2, type, "Test Account 2", 200, 1));
+		accounts.add(new Accounts(3, type, "Test Account 3", 300, 1));
+		accounts.add(new Accounts(4, type, "Test Account 4", 400, 1));
 		list.add(service);
 	}
 	
@@ -89,6 +143,7 @@ class AccountsServiceTests {
 	@Test
 	void findAllTest() {
 		doReturn(accounts).when(accountsRepo).findAll();
+		doAnswer(invocation -> invocation.<Supplier<List<Accounts>>>getArgument(0).get()).when(shards).gather(any());
 		
 		List<Accounts> returnList = accountsService.findAll();
 		
@@ -120,6 +175,35 @@ class AccountsServiceTests {
 		
 	}
 	
+	/**
+	 * Method to test that findPageByUserId returns a cursor that continues after the last account on the page.
+	 * @throws BadValueException
+	 */
+	@Test
+	void findPageByUserIdTest() throws BadValueException {
+		doReturn(accounts.subList(0, 3)).when(accountsRepo).findByUserIdAndIdGreaterThanOrderByIdAsc(1, 0, PageRequest.of(0, 3));
+		AccountsPageDTO page = accountsService.findPageByUserId(1, 2, null);
+		assertEquals(accounts.subList(0, 2), page.getAccounts());
+		
+		doReturn(accounts.subList(2, 4)).when(accountsRepo).findByUserIdAndIdGreaterThanOrderByIdAsc(1, 2, PageRequest.of(0, 3));
+		AccountsPageDTO last = accountsService.findPageByUserId(1, 2, page.getNext());
+		assertEquals(accounts.subList(2, 4), last.getAccounts());
+		assertEquals(null, last.getNext());
+	}
+	
+	/**
+	 * Method to test findPageByUserId with a limit out of range or a cursor that was not issued by the service.
+	 */
+	@Test
+	void findPageByUserIdBadValueTest() {
+		assertThrows(BadValueException.class, () -> {
+			accountsService.findPageByUserId(1, 0, null);
+		});
+		assertThrows(BadValueException.class, () -> {
+			accountsService.findPageByUserId(1, 10, "not a cursor");
+		});
+	}
+	
 	/**
 	 * Method to test the findById method. 
 	 * @throws AccountNotFoundException
@@ -157,6 +241,128 @@ class AccountsServiceTests {
 		});
 	}
 	
+	/**
+	 * Method to test the findByIdAsync method. 
+	 * @throws Exception
+	 */
+	@Test
+	void findByIdAsyncTest() throws Exception {
+		ReflectionTestUtils.setField(accountsService, "accountsExecutor", (Executor) Runnable::run);
+		doReturn(user).when(tokenVerifier).verify("testToken");
+		doReturn(Optional.of(account)).when(accountsRepo).findById(1);
+		assertEquals(account, accountsService.findByIdAsync(1, "testToken").get());
+	}
+	
+	/**
+	 * Method to test that the findByIdAsync method completes with an UnauthorizedAccessException when 
+	 * the account belongs to another user. 
+	 * @throws Exception
+	 */
+	@Test
+	void findByIdAsyncUnauthorizedAccessTest() throws Exception {
+		ReflectionTestUtils.setField(accountsService, "accountsExecutor", (Executor) Runnable::run);
+		user.setId(3);
+		doReturn(user).when(tokenVerifier).verify("testToken");
+		doReturn(Optional.of(account)).when(accountsRepo).findById(1);
+		ExecutionException e = assertThrows(ExecutionException.class, () -> {
+			accountsService.findByIdAsync(1, "testToken").get();
+		});
+		assertTrue(e.getCause() instanceof UnauthorizedAccessException);
+	}
+	
+	/**
+	 * Method to test that update and delete with an If-Match version check the current version first.
+	 */
+	@Test
+	void versionPreconditionFailedTest() {
+		account.setVersion(2);
+		doReturn(Optional.of(account)).when(accountsRepo).findById(1);
+		assertThrows(PreconditionFailedException.class, () -> {
+			accountsService.update(account, user, 1L);
+		});
+		assertThrows(PreconditionFailedException.class, () -> {
+			accountsService.delete(1, user, 1L);
+		});
+		verify(accountsRepo, times(0)).save(any());
+		verify(accountsRepo, times(0)).delete(any());
+	}
+	
+	/**
+	 * Method to test that patch sends only the supplied members to the repo, including a zero balance, 
+	 * along with the copies of a changed type id and balance.
+	 * @throws Exception
+	 */
+	@Test
+	void patchSuccessTest() throws Exception {
+		Map<String, Object> changes = new LinkedHashMap<>();
+		changes.put("description", null);
+		changes.put("balance", 0L);
+		changes.put("type", type);
+		changes.put(Accounts.TYPE_ID_COPY, 1);
+		changes.put(Accounts.BALANCE_COPY, 0.0);
+		doReturn(Optional.of(type)).when(accountTypeRepo).findById(1);
+		doReturn(1).when(accountsRepo).updateOwned(1, 1, changes);
+		doReturn(Optional.of(account)).when(accountsRepo).findOwnedForUpdate(1, 1);
+		accountsService.patch(1, new ObjectMapper().readTree("{\"description\":null,\"balance\":0,\"type\":{\"id\":1}}"), user);
+		verify(accountsRepo).updateOwned(1, 1, changes);
+		verify(accountSummaryService).apply(eq(1), any(AccountSummaryService.Changes.class));
+		verify(accountEventService).publish(eq(1), argThat((AccountEventDTO event) -> event.getId() == 1 
+				&& event.getVersion() == account.getVersion() + 1 && event.getEvent().equals(AccountEventDTO.UPDATED)));
+		verify(accountsRepo, times(0)).findVersionById(anyInt());
+	}
+	
+	/**
+	 * Method to test that a patch which locks no row only reads the new version back when the user has 
+	 * someone subscribed to their changes.
+	 * @throws Exception
+	 */
+	@Test
+	void patchVersionLookupTest() throws Exception {
+		JsonNode patch = new ObjectMapper().readTree("{\"description\":\"Renamed\"}");
+		doReturn(1).when(accountsRepo).updateOwned(eq(1), eq(1), any());
+		accountsService.patch(1, patch, user);
+		verify(accountsRepo, times(0)).findVersionById(anyInt());
+		verify(accountEventService, times(0)).publish(anyInt(), any(AccountEventDTO.class));
+		
+		doReturn(true).when(accountEventService).hasSubscribers(1);
+		doReturn(4L).when(accountsRepo).findVersionById(1);
+		accountsService.patch(1, patch, user);
+		verify(accountEventService).publish(eq(1), argThat((AccountEventDTO event) -> event.getVersion() == 4));
+	}
+	
+	/**
+	 * Method to test that patch tells a missing account apart from one owned by another user.
+	 * @throws Exception
+	 */
+	@Test
+	void patchNoRowsTest() throws Exception {
+		JsonNode patch = new ObjectMapper().readTree("{\"balance\":5}");
+		doReturn(0).when(accountsRepo).updateOwned(eq(1), eq(1), any());
+		doReturn(true).when(accountsRepo).existsById(1);
+		assertThrows(UnauthorizedAccessException.class, () -> {
+			accountsService.patch(1, patch, user);
+		});
+		doReturn(false).when(accountsRepo).existsById(1);
+		assertThrows(AccountNotFoundException.class, () -> {
+			accountsService.patch(1, patch, user);
+		});
+	}
+	
+	/**
+	 * Method to test that patch rejects read only members and null balances without touching the repo.
+	 * @throws Exception
+	 */
+	@Test
+	void patchBadValueTest() throws Exception {
+		ObjectMapper mapper = new ObjectMapper();
+		for (String patch : new String[] {"{\"userId\":2}", "{\"balance\":null}", "[]", "{\"type\":null}"}) {
+			assertThrows(BadValueException.class, () -> {
+				accountsService.patch(1, mapper.readTree(patch), user);
+			});
+		}
+		verify(accountsRepo, times(0)).updateOwned(anyInt(), anyInt(), any());
+	}
+	
 	/**
 	 * Method to test the successful save method
 	 * @throws TypeNotFoundException
@@ -168,6 +374,7 @@ class AccountsServiceTests {
 		Accounts resultAccount = accountsService.save(account);
 		
 		assertEquals(account, resultAccount);
+		verify(accountEventService).publish(1, AccountEventDTO.CREATED, account);
 	}
 	
 	/**
@@ -199,7 +406,7 @@ class AccountsServiceTests {
 		accountData.setId(1);
 		accountData.setType(type2);
 		accountData.setDescription("Updated Description");
-		accountData.setBalance(1001.00);
+		accountData.setBalance(100100);
 		
 		doReturn(Optional.of(account)).when(accountsRepo).findById(1);
 		doReturn(Optional.of(type2)).when(accountTypeRepo).findById(2);
@@ -231,7 +438,7 @@ class AccountsServiceTests {
 		assertEquals(account, resultAccount);
 		assertEquals(accountData.getDescription(), resultAccount.getDescription());
 		assertEquals(type, resultAccount.getType());
-		assertEquals(100.00, resultAccount.getBalance());
+		assertEquals(10000, resultAccount.getBalance());
 		
 	}
 	
@@ -257,7 +464,7 @@ class AccountsServiceTests {
 		assertEquals(account, resultAccount);
 		assertEquals(accountData.getDescription(), resultAccount.getDescription());
 		assertEquals(type, resultAccount.getType());
-		assertEquals(100.00, resultAccount.getBalance());
+		assertEquals(10000, resultAccount.getBalance());
 		assertNotEquals(accountData.getUserId(), resultAccount.getUserId());
 		
 	}
@@ -362,6 +569,143 @@ class AccountsServiceTests {
 		});
 	}
 	
+	/**
+	 * Method to test that a validated token is served from the cache on later calls.
+	 * @throws Exception
+	 */
+	@Test
+	void getUserCachedTest() throws Exception {
+		doReturn(service).when(authServiceResolver).choose();
+		doReturn(URI.create("http://auth")).when(service).getUri();
+		doReturn(user).when(restTemplate).postForObject(anyString(), any(HttpEntity.class), eq(SystemUserDTO.class));
+		
+		assertEquals(user, accountsService.getUser("testToken"));
+		assertEquals(user, accountsService.getUser("testToken"));
+		verify(restTemplate, times(1)).postForObject(anyString(), any(HttpEntity.class), eq(SystemUserDTO.class));
+	}
+	
+	/**
+	 * Method to test that a token that failed validation is cached and rejected without another 
+	 * call to the user-auth-service. 
+	 * @throws Exception
+	 */
+	@Test
+	void getUserNotFoundCachedTest() throws Exception {
+		doReturn(service).when(authServiceResolver).choose();
+		doReturn(URI.create("http://auth")).when(service).getUri();
+		doThrow(new UserNotFoundException()).when(restTemplate).postForObject(anyString(), any(HttpEntity.class), eq(SystemUserDTO.class));
+		
+		assertThrows(UserNotFoundException.class, () -> {
+			accountsService.getUser("badToken");
+		});
+		assertThrows(UserNotFoundException.class, () -> {
+			accountsService.getUser("badToken");
+		});
+		verify(restTemplate, times(1)).postForObject(anyString(), any(HttpEntity.class), eq(SystemUserDTO.class));
+	}
+	
+	/**
+	 * Method to test that concurrent callers with the same token share one validate request.
+	 * @throws Exception
+	 */
+	@Test
+	void getUserConcurrentSingleRequestTest() throws Exception {
+		int callers = 16;
+		CountDownLatch ready = new CountDownLatch(callers);
+		CountDownLatch release = new CountDownLatch(1);
+		doReturn(service).when(authServiceResolver).choose();
+		doReturn(URI.create("http://auth")).when(service).getUri();
+		doAnswer(invocation -> {
+			release.await(5, TimeUnit.SECONDS);
+			return user;
+		}).when(restTemplate).postForObject(anyString(), any(HttpEntity.class), eq(SystemUserDTO.class));
+		
+		ExecutorService executor = Executors.newFixedThreadPool(callers);
+		List<Future<SystemUserDTO>> results = new ArrayList<>();
+		for (int i = 0; i < callers; i++) {
+			results.add(executor.submit(() -> {
+				ready.countDown();
+				return accountsService.getUser("sharedToken");
+			}));
+		}
+		ready.await(5, TimeUnit.SECONDS);
+		Thread.sleep(100);
+		release.countDown();
+		
+		for (Future<SystemUserDTO> result : results) {
+			assertEquals(user, result.get(5, TimeUnit.SECONDS));
+		}
+		executor.shutdown();
+		verify(restTemplate, times(1)).postForObject(anyString(), any(HttpEntity.class), eq(SystemUserDTO.class));
+	}
+	
+	/**
+	 * Method to test that a user-auth-service that cannot be reached or does not answer in time is
+	 * reported as a ProcessingRuntimeException.
+	 */
+	@Test
+	void getUserUnreachableTest() {
+		doReturn(service).when(authServiceResolver).choose();
+		doReturn(URI.create("http://auth")).when(service).getUri();
+		doThrow(new ResourceAccessException("Read timed out", new SocketTimeoutException("Read timed out")))
+				.when(restTemplate).postForObject(anyString(), any(HttpEntity.class), eq(SystemUserDTO.class));
+		
+		assertThrows(ProcessingRuntimeException.class, () -> {
+			accountsService.getUser("token");
+		});
+	}
+	
+	/**
+	 * Method to test that requests are rejected without a call to the user-auth-service once the
+	 * circuit breaker opens. 
+	 * @throws Exception
+	 */
+	@Test
+	void getUserBreakerOpenTest() throws Exception {
+		doReturn(service).when(authServiceResolver).choose();
+		doReturn(URI.create("http://auth")).when(service).getUri();
+		doThrow(new ProcessingRuntimeException()).when(restTemplate).postForObject(anyString(), any(HttpEntity.class), eq(SystemUserDTO.class));
+		
+		assertThrows(ProcessingRuntimeException.class, () -> {
+			accountsService.getUser("token1");
+		});
+		assertThrows(ProcessingRuntimeException.class, () -> {
+			accountsService.getUser("token2");
+		});
+		assertThrows(ServiceUnavailableException.class, () -> {
+			accountsService.getUser("token3");
+		});
+		verify(restTemplate, times(2)).postForObject(anyString(), any(HttpEntity.class), eq(SystemUserDTO.class));
+	}
+	
+	/**
+	 * Method to test that a previously validated user is used while the circuit breaker is open.
+	 * @throws Exception
+	 */
+	@Test
+	void getUserBreakerOpenFallbackTest() throws Exception {
+		String key = TokenCache.hash("token1");
+		tokenCache.put(key, user);
+		doReturn(null).when(tokenCache).get(key);
+		doReturn(service).when(authServiceResolver).choose();
+		authCircuitBreaker.onFailure(authCircuitBreaker.tryAcquire());
+		authCircuitBreaker.onFailure(authCircuitBreaker.tryAcquire());
+		
+		assertEquals(user, accountsService.getUser("token1"));
+	}
+	
+	/**
+	 * Method to test that a locally verified token does not need a call to the user-auth-service.
+	 * @throws Exception
+	 */
+	@Test
+	void getUserLocallyVerifiedTest() throws Exception {
+		doReturn(user).when(tokenVerifier).verify("signedToken");
+		
+		assertEquals(user, accountsService.getUser("signedToken"));
+		verify(restTemplate, times(0)).postForObject(anyString(), any(HttpEntity.class), eq(SystemUserDTO.class));
+	}
+	
 	// unable to get following tests to work consistently due to MockMaker extension
 	// and final classes. 
 	
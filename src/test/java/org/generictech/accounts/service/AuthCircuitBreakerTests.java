@@ -0,0 +1,148 @@
+package org.generictech.accounts.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.generictech.accounts.service.AuthCircuitBreaker.State;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class to test the {@link AuthCircuitBreaker} class
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+class AuthCircuitBreakerTests {
+
+	private AtomicLong time = new AtomicLong();
+	private AuthCircuitBreaker breaker;
+	
+	@BeforeEach
+	public void setUp() {
+		breaker = new AuthCircuitBreaker(10, 4, 50, 1000, 2, time::get);
+	}
+	
+	/**
+	 * Method to test that the breaker stays closed until the minimum number of calls is recorded.
+	 */
+	@Test
+	void staysClosedBelowMinimumCallsTest() {
+		call(false);
+		call(false);
+		call(false);
+		
+		assertEquals(State.CLOSED, breaker.getState());
+		assertNotEquals(AuthCircuitBreaker.REJECTED, breaker.tryAcquire());
+	}
+	
+	/**
+	 * Method to test that the breaker opens once the failure rate reaches the threshold. 
+	 */
+	@Test
+	void opensAtFailureRateTest() {
+		call(true);
+		call(true);
+		call(true);
+		assertEquals(State.CLOSED, breaker.getState());
+		call(false);
+		call(false);
+		call(true);
+		
+		assertEquals(State.OPEN, breaker.getState());
+		assertEquals(AuthCircuitBreaker.REJECTED, breaker.tryAcquire());
+	}
+	
+	/**
+	 * Method to test that old outcomes slide out of the window.
+	 */
+	@Test
+	void slidingWindowTest() {
+		call(true);
+		call(true);
+		for (int i = 0; i < 8; i++) {
+			call(false);
+		}
+		call(true);
+		call(true);
+		call(true);
+		
+		assertEquals(State.CLOSED, breaker.getState());
+	}
+	
+	/**
+	 * Method to test that the breaker closes after successful probes in the half open state.
+	 */
+	@Test
+	void halfOpenProbesCloseTest() {
+		open();
+		time.addAndGet(1000);
+		
+		long first = breaker.tryAcquire();
+		assertEquals(State.HALF_OPEN, breaker.getState());
+		long second = breaker.tryAcquire();
+		assertNotEquals(AuthCircuitBreaker.REJECTED, second);
+		assertEquals(AuthCircuitBreaker.REJECTED, breaker.tryAcquire());
+		breaker.onSuccess(first);
+		breaker.onSuccess(second);
+		
+		assertEquals(State.CLOSED, breaker.getState());
+	}
+	
+	/**
+	 * Method to test that a failed probe opens the breaker again.
+	 */
+	@Test
+	void halfOpenProbeFailureReopensTest() {
+		open();
+		time.addAndGet(1000);
+		
+		breaker.onFailure(breaker.tryAcquire());
+		
+		assertEquals(State.OPEN, breaker.getState());
+		assertEquals(AuthCircuitBreaker.REJECTED, breaker.tryAcquire());
+	}
+	
+	/**
+	 * Method to test that requests sent while the breaker was closed and finishing once it is half open
+	 * neither take up nor count as probes, and that a late failure does not open it again.
+	 */
+	@Test
+	void staleOutcomeIgnoredTest() {
+		long closed = breaker.tryAcquire();
+		long stalled = breaker.tryAcquire();
+		open();
+		time.addAndGet(1000);
+		
+		long probe = breaker.tryAcquire();
+		assertEquals(State.HALF_OPEN, breaker.getState());
+		breaker.onSuccess(closed);
+		breaker.onSuccess(closed);
+		assertEquals(State.HALF_OPEN, breaker.getState());
+		assertNotEquals(AuthCircuitBreaker.REJECTED, breaker.tryAcquire());
+		assertEquals(AuthCircuitBreaker.REJECTED, breaker.tryAcquire());
+		
+		breaker.onFailure(stalled);
+		assertEquals(State.HALF_OPEN, breaker.getState());
+		breaker.onSuccess(probe);
+		assertEquals(State.HALF_OPEN, breaker.getState());
+	}
+	
+	private void open() {
+		for (int i = 0; i < 4; i++) {
+			call(true);
+		}
+		assertEquals(State.OPEN, breaker.getState());
+	}
+	
+	private void call(boolean failure) {
+		long permit = breaker.tryAcquire();
+		assertNotEquals(AuthCircuitBreaker.REJECTED, permit);
+		if (failure) {
+			breaker.onFailure(permit);
+		} else {
+			breaker.onSuccess(permit);
+		}
+	}
+}
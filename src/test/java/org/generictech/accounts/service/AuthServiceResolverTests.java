@@ -0,0 +1,146 @@
+package org.generictech.accounts.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.generictech.accounts.exception.ProcessingRuntimeException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+
+/**
+ * Test class to test the {@link AuthServiceResolver} class
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+class AuthServiceResolverTests {
+
+	private FakeDiscoveryClient discoveryClient;
+	private AtomicLong time = new AtomicLong();
+	private AuthServiceResolver resolver;
+	
+	@BeforeEach
+	public void setUp() {
+		discoveryClient = new FakeDiscoveryClient();
+		discoveryClient.instances.add(instance("auth-1", 8001));
+		discoveryClient.instances.add(instance("auth-2", 8002));
+		discoveryClient.instances.add(instance("auth-3", 8003));
+		resolver = new AuthServiceResolver(discoveryClient, 2, 1000, time::get);
+	}
+	
+	/**
+	 * Method to test that requests are spread evenly across all instances.
+	 */
+	@Test
+	void chooseSpreadsEvenlyTest() {
+		Map<String, Integer> counts = choose(300);
+		
+		assertEquals(3, counts.size());
+		assertEquals(100, counts.get("auth-1"));
+		assertEquals(100, counts.get("auth-2"));
+		assertEquals(100, counts.get("auth-3"));
+		assertEquals(1, discoveryClient.lookups);
+	}
+	
+	/**
+	 * Method to test that an instance is skipped after repeated failures and used again after 
+	 * the cool down period. 
+	 */
+	@Test
+	void chooseSkipsFailingInstanceTest() {
+		ServiceInstance failing = discoveryClient.instances.get(0);
+		resolver.recordFailure(failing);
+		resolver.recordFailure(failing);
+		
+		Map<String, Integer> counts = choose(200);
+		assertFalse(counts.containsKey("auth-1"));
+		assertEquals(100, counts.get("auth-2"));
+		assertEquals(100, counts.get("auth-3"));
+		
+		time.addAndGet(1000);
+		assertTrue(choose(3).containsKey("auth-1"));
+	}
+	
+	/**
+	 * Method to test that a success resets the consecutive failure count.
+	 */
+	@Test
+	void successResetsFailuresTest() {
+		ServiceInstance instance = discoveryClient.instances.get(0);
+		resolver.recordFailure(instance);
+		resolver.recordSuccess(instance);
+		resolver.recordFailure(instance);
+		
+		assertTrue(choose(3).containsKey("auth-1"));
+	}
+	
+	/**
+	 * Method to test that the instance list is refreshed on a registry heartbeat.
+	 */
+	@Test
+	void refreshOnHeartbeatTest() {
+		choose(3);
+		discoveryClient.instances.add(instance("auth-4", 8004));
+		assertFalse(choose(4).containsKey("auth-4"));
+		
+		resolver.onHeartbeat(new HeartbeatEvent(this, 1));
+		assertEquals(25, choose(100).get("auth-4"));
+	}
+	
+	/**
+	 * Method to test the proper error when no instance is registered.
+	 */
+	@Test
+	void chooseNoInstancesTest() {
+		discoveryClient.instances.clear();
+		assertThrows(ProcessingRuntimeException.class, () -> {
+			resolver.choose();
+		});
+	}
+	
+	private Map<String, Integer> choose(int requests) {
+		Map<String, Integer> counts = new HashMap<>();
+		for (int i = 0; i < requests; i++) {
+			counts.merge(resolver.choose().getInstanceId(), 1, Integer::sum);
+		}
+		return counts;
+	}
+	
+	private static ServiceInstance instance(String id, int port) {
+		return new DefaultServiceInstance(id, AuthServiceResolver.SERVICE_ID, "localhost", port, false);
+	}
+	
+	private static class FakeDiscoveryClient implements DiscoveryClient {
+		private final List<ServiceInstance> instances = new ArrayList<>();
+		private int lookups;
+
+		@Override
+		public String description() {
+			return "fake";
+		}
+
+		@Override
+		public List<ServiceInstance> getInstances(String serviceId) {
+			lookups++;
+			return new ArrayList<>(instances);
+		}
+
+		@Override
+		public List<String> getServices() {
+			List<String> services = new ArrayList<>();
+			services.add(AuthServiceResolver.SERVICE_ID);
+			return services;
+		}
+	}
+}
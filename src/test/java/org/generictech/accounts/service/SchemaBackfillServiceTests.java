@@ -0,0 +1,177 @@
+package org.generictech.accounts.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.generictech.accounts.config.Shards;
+import org.generictech.accounts.dto.BackfillProgressDTO;
+import org.generictech.accounts.model.AccountType;
+import org.generictech.accounts.model.Accounts;
+import org.generictech.accounts.repo.AccountTypeRepo;
+import org.generictech.accounts.repo.AccountsRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test class to test the {@link SchemaBackfillService} class against an in memory database holding
+ * accounts written before account_type_id and the minor unit columns were added. 
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+@DataJpaTest(properties = {"accounts.migration.backfill.chunk-size=7"
+		, "accounts.migration.type-column.backfill-enabled=false", "accounts.migration.minor-units.backfill-enabled=false"})
+@Import({SchemaBackfillService.class, Shards.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SchemaBackfillServiceTests {
+
+	private static final int ACCOUNTS = 30;
+	
+	@Autowired
+	private SchemaBackfillService schemaBackfillService;
+	@Autowired
+	private AccountsRepo accountsRepo;
+	@Autowired
+	private AccountTypeRepo accountTypeRepo;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	
+	private List<Integer> ids = new ArrayList<>();
+	
+	@BeforeEach
+	public void setUp() {
+		AccountType type = accountTypeRepo.save(new AccountType(0, "Checking"));
+		for (int i = 0; i < ACCOUNTS; i++) {
+			ids.add(accountsRepo.save(new Accounts(0, type, "Account " + i, i, 1)).getId());
+		}
+		jdbcTemplate.update("update accounts set account_type_id = null");
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		jdbcTemplate.update("delete from schema_backfill");
+		jdbcTemplate.update("delete from account_adjustment");
+		jdbcTemplate.update("delete from account_summary");
+		accountsRepo.deleteAll();
+		accountTypeRepo.deleteAll();
+	}
+	
+	/**
+	 * Method to test that accounts saved by the application write both type columns and both balance 
+	 * columns.
+	 */
+	@Test
+	void dualWriteTest() {
+		AccountType other = accountTypeRepo.save(new AccountType(0, "Savings"));
+		Accounts account = accountsRepo.save(new Accounts(0, other, "New", 1010, 1));
+		assertEquals(other.getId(), typeIds(account.getId())[0]);
+		assertEquals(other.getId(), typeIds(account.getId())[1]);
+		assertEquals(10.1, jdbcTemplate.queryForObject("select balance from accounts where account_id = ?"
+				, Double.class, account.getId()));
+		assertEquals(1010, jdbcTemplate.queryForObject("select balance_minor from accounts where account_id = ?"
+				, Long.class, account.getId()));
+	}
+	
+	/**
+	 * Method to test that the minor unit backfills convert the decimal amounts of accounts, adjustments 
+	 * and summaries, rounding to the nearest minor unit.
+	 */
+	@Test
+	void minorUnitsTest() {
+		jdbcTemplate.update("update accounts set balance = -0.07, balance_minor = null where account_id = ?", ids.get(0));
+		jdbcTemplate.update("update accounts set balance_minor = null");
+		jdbcTemplate.update("insert into account_adjustment (system_user_id, idempotency_key, account_id, delta, balance"
+				+ ", created_at) values (1, 'key', ?, 0.1, 10.1, current_timestamp)", ids.get(1));
+		jdbcTemplate.update("insert into account_summary (system_user_id, account_type_id, accounts, balance)"
+				+ " values (1, ?, 30, 10.03)", accountTypeRepo.findAll().get(0).getId());
+		
+		for (SchemaBackfillService.Backfill backfill : new SchemaBackfillService.Backfill[] {
+				SchemaBackfillService.ACCOUNT_BALANCE, SchemaBackfillService.ADJUSTMENT_AMOUNTS
+				, SchemaBackfillService.SUMMARY_BALANCE}) {
+			BackfillProgressDTO progress = schemaBackfillService.copyChunk(backfill);
+			while (!progress.isComplete()) {
+				progress = schemaBackfillService.copyChunk(backfill);
+			}
+			assertEquals(backfill.getName(), progress.getName());
+		}
+		
+		assertEquals(-7, jdbcTemplate.queryForObject("select balance_minor from accounts where account_id = ?"
+				, Long.class, ids.get(0)));
+		assertEquals(29, jdbcTemplate.queryForObject("select balance_minor from accounts where account_id = ?"
+				, Long.class, ids.get(29)));
+		assertEquals(0, jdbcTemplate.queryForObject("select count(*) from accounts where balance_minor is null", Long.class));
+		assertEquals(10, jdbcTemplate.queryForObject("select delta_minor from account_adjustment", Long.class));
+		assertEquals(1010, jdbcTemplate.queryForObject("select balance_minor from account_adjustment", Long.class));
+		assertEquals(1003, jdbcTemplate.queryForObject("select balance_minor from account_summary", Long.class));
+	}
+	
+	/**
+	 * Method to test that the backfill copies every account in chunks and then reports no lag.
+	 */
+	@Test
+	void backfillTest() {
+		BackfillProgressDTO progress = schemaBackfillService.copyChunk(SchemaBackfillService.ACCOUNT_TYPE_ID);
+		assertEquals(ids.get(6).intValue(), progress.getLastId());
+		assertEquals(7, progress.getRowsUpdated());
+		assertEquals(ids.get(ACCOUNTS - 1) - ids.get(6), progress.getLag());
+		
+		int chunks = 1;
+		while (!progress.isComplete()) {
+			progress = schemaBackfillService.copyChunk(SchemaBackfillService.ACCOUNT_TYPE_ID);
+			chunks++;
+		}
+		// five chunks of seven and one to check for lag
+		assertEquals(6, chunks);
+		assertEquals(ACCOUNTS, progress.getRowsUpdated());
+		assertEquals(0, progress.getLag());
+		assertEquals(0, lag());
+	}
+	
+	/**
+	 * Method to test that the backfill resumes from the saved id, and that accounts written without the
+	 * copy behind it are caught by another pass.
+	 */
+	@Test
+	void resumeTest() {
+		schemaBackfillService.copyChunk(SchemaBackfillService.ACCOUNT_TYPE_ID);
+		jdbcTemplate.update("update accounts set account_type_id = null where account_id = ?", ids.get(0));
+		
+		BackfillProgressDTO progress = schemaBackfillService.copyChunk(SchemaBackfillService.ACCOUNT_TYPE_ID);
+		assertEquals(ids.get(13).intValue(), progress.getLastId());
+		assertEquals(14, progress.getRowsUpdated());
+		while (progress.getLastId() < ids.get(ACCOUNTS - 1)) {
+			progress = schemaBackfillService.copyChunk(SchemaBackfillService.ACCOUNT_TYPE_ID);
+		}
+		
+		progress = schemaBackfillService.copyChunk(SchemaBackfillService.ACCOUNT_TYPE_ID);
+		assertFalse(progress.isComplete());
+		assertEquals(1, progress.getLag());
+		assertEquals(0, jdbcTemplate.queryForObject("select last_id from schema_backfill", Integer.class));
+		while (!progress.isComplete()) {
+			progress = schemaBackfillService.copyChunk(SchemaBackfillService.ACCOUNT_TYPE_ID);
+		}
+		assertEquals(ACCOUNTS + 1, progress.getRowsUpdated());
+		assertEquals(0, lag());
+		assertTrue(schemaBackfillService.getProgress().get(0).isComplete());
+	}
+	
+	private long lag() {
+		return jdbcTemplate.queryForObject("select count(*) from accounts where account_type_id is null"
+				+ " or account_type_id <> acount_type_id", Long.class);
+	}
+	
+	private int[] typeIds(int id) {
+		return jdbcTemplate.queryForObject("select acount_type_id, account_type_id from accounts where account_id = ?"
+				, (row, i) -> new int[] {row.getInt(1), row.getInt(2)}, id);
+	}
+}
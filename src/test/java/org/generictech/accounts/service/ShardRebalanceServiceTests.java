@@ -0,0 +1,215 @@
+package org.generictech.accounts.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.generictech.accounts.config.ShardDirectory;
+import org.generictech.accounts.config.ShardRing;
+import org.generictech.accounts.config.ShardRoutingDataSource;
+import org.generictech.accounts.migration.V4__Shard_id_ranges;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Test class to test the {@link ShardRebalanceService} class against three in memory shards migrated
+ * the same way the application migrates them. Users start on a ring over the first two shards.
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+class ShardRebalanceServiceTests {
+
+	private static final List<String> NAMES = Arrays.asList("shard-0", "shard-1", "shard-2");
+	private static final int USERS = 20;
+
+	private Map<String, DataSource> shards;
+	private ShardRing ring;
+	private ShardDirectory directory;
+	private ShardRebalanceService shardRebalanceService;
+
+	@BeforeEach
+	public void setUp() {
+		shards = new LinkedHashMap<>();
+		for (int i = 0; i < NAMES.size(); i++) {
+			DataSource shard = new DriverManagerDataSource(url(NAMES.get(i)));
+			Flyway.configure()
+					.dataSource(shard)
+					.locations("classpath:db/migration", "classpath:org/generictech/accounts/migration")
+					.placeholders(Collections.singletonMap(V4__Shard_id_ranges.SHARD_INDEX_PLACEHOLDER, Integer.toString(i)))
+					.load()
+					.migrate();
+			new JdbcTemplate(shard).update("insert into account_type (account_type_id, type) values (1, 'Checking')");
+			shards.put(NAMES.get(i), shard);
+		}
+		ring = new ShardRing(NAMES.subList(0, 2), 128);
+		directory = new ShardDirectory(ring, shards.get("shard-0"));
+		ShardRoutingDataSource routing = new ShardRoutingDataSource(shards, "shard-0", directory, () -> null);
+		shardRebalanceService = new ShardRebalanceService(routing, 0);
+		for (int userId = 1; userId <= USERS; userId++) {
+			JdbcTemplate shard = jdbc(ring.shardFor(userId));
+			for (int i = 0; i < 2; i++) {
+				shard.update("insert into accounts (account_id, acount_type_id, description, balance, balance_minor"
+						+ ", system_user_id, version) values (nextval('accounts_seq'), 1, 'Account', 0.1, 10, ?, 3)", userId);
+			}
+		}
+	}
+
+	@AfterEach
+	public void tearDown() {
+		for (String name : NAMES) {
+			new JdbcTemplate(new DriverManagerDataSource(url(name))).execute("drop all objects");
+		}
+	}
+
+	/**
+	 * Method to test that moving a user copies their accounts, adjustments and summary to the new shard,
+	 * keeping account ids and versions, and removes them from the old shard.
+	 * @throws Exception
+	 */
+	@Test
+	void moveTest() throws Exception {
+		String source = ring.shardFor(1);
+		String target = source.equals("shard-0") ? "shard-1" : "shard-0";
+		List<Integer> ids = accountIds(source, 1);
+		int accountId = ids.get(0);
+		jdbc(source).update("insert into account_adjustment (system_user_id, idempotency_key, account_id, delta, balance"
+				+ ", delta_minor, balance_minor, created_at) values (1, 'key', ?, 0.05, 0.15, 5, 15, ?)", accountId, Timestamp.from(Instant.now()));
+		jdbc(source).update("insert into account_summary (system_user_id, account_type_id, accounts, balance"
+				+ ", balance_minor) values (1, 1, 2, 0.2, 20)");
+
+		shardRebalanceService.move(1, target);
+
+		assertEquals(target, directory.shardFor(1));
+		assertFalse(directory.isMoving(1));
+		assertEquals(ids, accountIds(target, 1));
+		assertTrue(accountIds(source, 1).isEmpty());
+		assertEquals(3L, jdbc(target).queryForObject("select version from accounts where account_id = ?", Long.class
+				, accountId));
+		assertEquals(1, count(target, "account_adjustment", 1));
+		assertEquals(0, count(source, "account_adjustment", 1));
+		assertEquals(1, count(target, "account_summary", 1));
+		assertEquals(0, count(source, "account_summary", 1));
+	}
+
+	/**
+	 * Method to test that a move to a shard that does not exist is refused without marking the user.
+	 */
+	@Test
+	void moveUnknownShardTest() {
+		assertThrows(IllegalArgumentException.class, () -> shardRebalanceService.move(1, "shard-9"));
+		assertFalse(directory.isMoving(1));
+		assertEquals(2, accountIds(ring.shardFor(1), 1).size());
+	}
+
+	/**
+	 * Method to test that rebalancing onto a ring with a new shard moves only the users the new shard
+	 * takes, and leaves nothing more to move.
+	 * @throws Exception
+	 */
+	@Test
+	void rebalanceTest() throws Exception {
+		ShardRing grown = ring.withShards(NAMES);
+		Map<Integer, String> plan = shardRebalanceService.plan(grown);
+		assertFalse(plan.isEmpty());
+		assertEquals(Collections.singleton("shard-2"), new HashSet<>(plan.values()));
+
+		assertEquals(plan, shardRebalanceService.rebalance(grown));
+
+		assertTrue(shardRebalanceService.plan(grown).isEmpty());
+		for (int userId = 1; userId <= USERS; userId++) {
+			for (String name : NAMES) {
+				int expected = name.equals(grown.shardFor(userId)) ? 2 : 0;
+				assertEquals(expected, accountIds(name, userId).size());
+			}
+		}
+	}
+
+	/**
+	 * Method to test that rows a move left on a shard the directory does not place the user on are found
+	 * and removed by a rebalance, while the rows of a user being moved are kept.
+	 * @throws Exception
+	 */
+	@Test
+	void leftoversTest() throws Exception {
+		String other = ring.shardFor(1).equals("shard-0") ? "shard-1" : "shard-0";
+		jdbc(other).update("insert into accounts (account_id, acount_type_id, description, balance, balance_minor"
+				+ ", system_user_id, version) values (nextval('accounts_seq'), 1, 'Account', 0.1, 10, 1, 3)");
+		jdbc(other).update("insert into account_summary (system_user_id, account_type_id, accounts, balance"
+				+ ", balance_minor) values (1, 1, 1, 0.1, 10)");
+		String moving = ring.shardFor(2).equals("shard-0") ? "shard-1" : "shard-0";
+		directory.startMove(2);
+		jdbc(moving).update("insert into accounts (account_id, acount_type_id, description, balance, balance_minor"
+				+ ", system_user_id, version) values (nextval('accounts_seq'), 1, 'Account', 0.1, 10, 2, 3)");
+
+		assertEquals(Collections.singletonMap(other, Collections.singletonList(1)), shardRebalanceService.leftovers());
+
+		assertTrue(shardRebalanceService.rebalance(ring).isEmpty());
+
+		assertTrue(accountIds(other, 1).isEmpty());
+		assertEquals(0, count(other, "account_summary", 1));
+		assertEquals(2, accountIds(ring.shardFor(1), 1).size());
+		assertEquals(1, accountIds(moving, 2).size());
+		assertTrue(shardRebalanceService.leftovers().isEmpty());
+	}
+
+	/**
+	 * Method to test that a move another instance finished after this instance last reloaded the directory
+	 * is not mistaken for leftover rows, and that moving the user back starts from the shard they are on.
+	 * @throws Exception
+	 */
+	@Test
+	void staleDirectoryTest() throws Exception {
+		String source = ring.shardFor(1);
+		String target = source.equals("shard-0") ? "shard-1" : "shard-0";
+		List<Integer> ids = accountIds(source, 1);
+		directory.refresh();
+		ShardDirectory otherDirectory = new ShardDirectory(ring, shards.get("shard-0"));
+		new ShardRebalanceService(new ShardRoutingDataSource(shards, "shard-0", otherDirectory, () -> null), 0)
+				.move(1, target);
+		assertEquals(source, directory.shardFor(1));
+
+		assertTrue(shardRebalanceService.leftovers().isEmpty());
+		assertEquals(0, shardRebalanceService.removeLeftovers());
+		assertEquals(ids, accountIds(target, 1));
+
+		shardRebalanceService.move(1, source);
+		assertEquals(ids, accountIds(source, 1));
+		assertTrue(accountIds(target, 1).isEmpty());
+		otherDirectory.refresh();
+		assertEquals(source, otherDirectory.shardFor(1));
+	}
+
+	private List<Integer> accountIds(String shard, int userId) {
+		return jdbc(shard).queryForList("select account_id from accounts where system_user_id = ? order by account_id"
+				, Integer.class, userId);
+	}
+
+	private int count(String shard, String table, int userId) {
+		return jdbc(shard).queryForObject("select count(*) from " + table + " where system_user_id = ?", Integer.class
+				, userId);
+	}
+
+	private JdbcTemplate jdbc(String shard) {
+		return new JdbcTemplate(shards.get(shard));
+	}
+
+	private static String url(String name) {
+		return "jdbc:h2:mem:rebalance-" + name + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+	}
+}
@@ -0,0 +1,113 @@
+package org.generictech.accounts.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.generictech.accounts.dto.SystemUserDTO;
+import org.generictech.accounts.exception.UserNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class to test the {@link TokenCache} class
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+class TokenCacheTests {
+
+	private AtomicLong time = new AtomicLong();
+	private TokenCache tokenCache;
+	private SystemUserDTO user;
+	
+	@BeforeEach
+	public void setUp() {
+		tokenCache = new TokenCache(2, 1000, 100, 5000, time::get, Runnable::run);
+		user = new SystemUserDTO(1, "TestUser", "t@t.com");
+	}
+	
+	/**
+	 * Method to test that a cached user is returned and counted as a hit.
+	 */
+	@Test
+	void getHitTest() {
+		tokenCache.put("key", user);
+		
+		assertEquals(user, tokenCache.get("key"));
+		assertEquals(1, tokenCache.stats().hitCount());
+	}
+	
+	/**
+	 * Method to test that a missing key returns null and is counted as a miss.
+	 */
+	@Test
+	void getMissTest() {
+		assertNull(tokenCache.get("key"));
+		assertEquals(1, tokenCache.stats().missCount());
+	}
+	
+	/**
+	 * Method to test that entries expire after the configured ttl.
+	 */
+	@Test
+	void expiryTest() {
+		tokenCache.put("key", user);
+		time.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+		assertEquals(user, tokenCache.get("key"));
+		time.addAndGet(TimeUnit.MILLISECONDS.toNanos(2));
+		assertNull(tokenCache.get("key"));
+	}
+	
+	/**
+	 * Method to test that failed validations are rethrown until the shorter negative ttl passes.
+	 */
+	@Test
+	void negativeExpiryTest() {
+		tokenCache.putNotFound("key", "User not found");
+		assertThrows(UserNotFoundException.class, () -> {
+			tokenCache.get("key");
+		});
+		time.addAndGet(TimeUnit.MILLISECONDS.toNanos(101));
+		assertNull(tokenCache.get("key"));
+	}
+	
+	/**
+	 * Method to test that the cache is bounded by the configured size.
+	 */
+	@Test
+	void sizeEvictionTest() {
+		tokenCache.put("key1", user);
+		tokenCache.put("key2", user);
+		tokenCache.put("key3", user);
+		
+		assertEquals(1, tokenCache.stats().evictionCount());
+	}
+	
+	/**
+	 * Method to test that a validated user remains available as a fallback after it expires.
+	 */
+	@Test
+	void fallbackTest() {
+		tokenCache.put("key", user);
+		time.addAndGet(TimeUnit.MILLISECONDS.toNanos(1001));
+		assertNull(tokenCache.get("key"));
+		assertEquals(user, tokenCache.getFallback("key"));
+		
+		tokenCache.putNotFound("key", "User not found");
+		assertNull(tokenCache.getFallback("key"));
+	}
+	
+	/**
+	 * Method to test that tokens are hashed rather than used directly as keys. 
+	 */
+	@Test
+	void hashTest() {
+		assertEquals(TokenCache.hash("token"), TokenCache.hash("token"));
+		assertNotEquals("token", TokenCache.hash("token"));
+		assertNotEquals(TokenCache.hash("token"), TokenCache.hash("token2"));
+	}
+}
@@ -0,0 +1,173 @@
+package org.generictech.accounts.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.generictech.accounts.dto.SystemUserDTO;
+import org.generictech.accounts.exception.UserNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Test class to test the {@link TokenVerifier} class
+ * @author Jaden Wilson
+ * @since 1.0
+ */
+class TokenVerifierTests {
+
+	private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+	private static final byte[] SECRET = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+	private static final String CLAIMS = "{\"sub\":\"7\",\"username\":\"TestUser\",\"email\":\"t@t.com\",\"exp\":2000}";
+	
+	private TokenVerifier tokenVerifier;
+	private KeyPair rsaKeys;
+	private Map<String, Key> keys;
+	
+	@BeforeEach
+	public void setUp() throws Exception {
+		rsaKeys = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+		RSAPublicKey publicKey = (RSAPublicKey) rsaKeys.getPublic();
+		String keySet = "{\"keys\":[{\"kty\":\"oct\",\"kid\":\"hmac\",\"k\":\"" + ENCODER.encodeToString(SECRET) + "\"}"
+				+ ",{\"kty\":\"RSA\",\"kid\":\"rsa\",\"n\":\"" + ENCODER.encodeToString(publicKey.getModulus().toByteArray())
+				+ "\",\"e\":\"" + ENCODER.encodeToString(publicKey.getPublicExponent().toByteArray()) + "\"}]}";
+		keys = new TokenVerifier(new ObjectMapper(), new DefaultResourceLoader(), true, "", "", "", () -> 1000)
+				.parseKeySet(new ByteArrayInputStream(keySet.getBytes(StandardCharsets.UTF_8)));
+		tokenVerifier = verifier("", "");
+	}
+	
+	/**
+	 * Method to test a valid HS256 token.
+	 * @throws Exception
+	 */
+	@Test
+	void verifyHmacTest() throws Exception {
+		SystemUserDTO user = tokenVerifier.verify(hmacToken("hmac", CLAIMS));
+		
+		assertEquals(7, user.getId());
+		assertEquals("TestUser", user.getUsername());
+		assertEquals("t@t.com", user.getEmail());
+	}
+	
+	/**
+	 * Method to test a valid RS256 token.
+	 * @throws Exception
+	 */
+	@Test
+	void verifyRsaTest() throws Exception {
+		String signingInput = encode("{\"alg\":\"RS256\",\"kid\":\"rsa\"}") + "." + encode(CLAIMS);
+		Signature signer = Signature.getInstance("SHA256withRSA");
+		signer.initSign(rsaKeys.getPrivate());
+		signer.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+		
+		assertEquals(7, tokenVerifier.verify(signingInput + "." + ENCODER.encodeToString(signer.sign())).getId());
+	}
+	
+	/**
+	 * Method to test that a token with a bad signature is rejected.
+	 * @throws Exception
+	 */
+	@Test
+	void verifyBadSignatureTest() throws Exception {
+		String token = hmacToken("hmac", CLAIMS);
+		String tampered = token.substring(0, token.lastIndexOf('.') + 1) + ENCODER.encodeToString(new byte[32]);
+		
+		assertThrows(UserNotFoundException.class, () -> {
+			tokenVerifier.verify(tampered);
+		});
+	}
+	
+	/**
+	 * Method to test that an expired token is rejected.
+	 * @throws Exception
+	 */
+	@Test
+	void verifyExpiredTest() throws Exception {
+		String token = hmacToken("hmac", "{\"sub\":\"7\",\"exp\":999}");
+		
+		assertThrows(UserNotFoundException.class, () -> {
+			tokenVerifier.verify(token);
+		});
+	}
+	
+	/**
+	 * Method to test that a signed token without an expiry is rejected.
+	 * @throws Exception
+	 */
+	@Test
+	void verifyNoExpiryTest() throws Exception {
+		String token = hmacToken("hmac", "{\"sub\":\"7\"}");
+		
+		assertThrows(UserNotFoundException.class, () -> {
+			tokenVerifier.verify(token);
+		});
+	}
+	
+	/**
+	 * Method to test that the issuer and audience are checked once they are configured, with the audience
+	 * given either on its own or in an array.
+	 * @throws Exception
+	 */
+	@Test
+	void verifyIssuerAudienceTest() throws Exception {
+		TokenVerifier checking = verifier("user-auth-service", "accounts-service");
+		
+		assertEquals(7, checking.verify(hmacToken("hmac", "{\"sub\":\"7\",\"exp\":2000"
+				+ ",\"iss\":\"user-auth-service\",\"aud\":\"accounts-service\"}")).getId());
+		assertEquals(7, checking.verify(hmacToken("hmac", "{\"sub\":\"7\",\"exp\":2000"
+				+ ",\"iss\":\"user-auth-service\",\"aud\":[\"other\",\"accounts-service\"]}")).getId());
+		for (String claims : new String[] {CLAIMS
+				, "{\"sub\":\"7\",\"exp\":2000,\"iss\":\"other\",\"aud\":\"accounts-service\"}"
+				, "{\"sub\":\"7\",\"exp\":2000,\"iss\":\"user-auth-service\",\"aud\":\"other\"}"}) {
+			String token = hmacToken("hmac", claims);
+			assertThrows(UserNotFoundException.class, () -> {
+				checking.verify(token);
+			});
+		}
+	}
+	
+	/**
+	 * Method to test that tokens that cannot be verified locally are left to the user-auth-service.
+	 * @throws Exception
+	 */
+	@Test
+	void verifyUnknownTest() throws Exception {
+		assertNull(tokenVerifier.verify(hmacToken("unknown", CLAIMS)));
+		assertNull(tokenVerifier.verify("opaqueToken"));
+		assertNull(tokenVerifier.verify(null));
+	}
+	
+	private TokenVerifier verifier(String issuer, String audience) {
+		TokenVerifier verifier = new TokenVerifier(new ObjectMapper(), new DefaultResourceLoader(), true, ""
+				, issuer, audience, () -> 1000);
+		verifier.setKeys(keys);
+		return verifier;
+	}
+	
+	private static String hmacToken(String kid, String claims) throws Exception {
+		String signingInput = encode("{\"alg\":\"HS256\",\"kid\":\"" + kid + "\"}") + "." + encode(claims);
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(SECRET, "HmacSHA256"));
+		return signingInput + "." + ENCODER.encodeToString(mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII)));
+	}
+	
+	private static String encode(String json) {
+		return ENCODER.encodeToString(json.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,7 @@
+-- Schema as Hibernate 5.4 generated it with ddl-auto=update for the Accounts and AccountType entities
+-- of the release before migrations were added, with the PostgreSQL10Dialect and Spring's naming strategies.
+
+create table account_type (account_type_id int4 generated by default as identity, type varchar(255) not null, primary key (account_type_id));
+create table accounts (account_id int4 generated by default as identity, balance float8 not null, description varchar(255), system_user_id int4 not null, acount_type_id int4 not null, primary key (account_id));
+alter table if exists account_type add constraint UK_6qii3htxlvo7us728yv1hs4m2 unique (type);
+alter table if exists accounts add constraint FKi9nb7lvit3ve8lhsmj24bwmns foreign key (acount_type_id) references account_type;